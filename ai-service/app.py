@@ -14,6 +14,13 @@ genai.configure()
 app = Flask(__name__)
 
 
+def trace_id():
+    # The backend sends a W3C "traceparent" header (version-traceid-spanid-flags); logging its
+    # trace id ties these lines to the backend request that made the call
+    parts = request.headers.get('traceparent', '').split('-')
+    return parts[1] if len(parts) == 4 else '-'
+
+
 # --- API ENDPOINT ---
 
 @app.route('/process-receipt', methods=['POST'])
@@ -40,7 +47,7 @@ def process_receipt():
         Analyze the attached receipt file (which could be an image or a PDF) and extract its information into a valid JSON object.
         Your main goal is to be completely accurate.
 
-        The JSON object must have these exact keys: "store_name", "total_price", "items", "total_discount", and "receipt_date".
+        The JSON object must have these exact keys: "store_name", "total_price", "items", "total_discount", "receipt_date", and "raw_text".
 
         Follow these steps carefully:
         1.  First, find every individual item on the receipt. For each item, extract its "name", "quantity", and "price".
@@ -50,7 +57,8 @@ def process_receipt():
         3.  Find the date of the transaction on the receipt. You must format it as "YYYY-MM-DD". If you cannot find a date, use today's date: {datetime.date.today().strftime('%Y-%m-%d')}.
         4.  After extracting all items and the total discount, you MUST calculate the final "total_price". The final "total_price" is the sum of all item prices (quantity * price) minus the total_discount.
         5.  Do not just look for the word 'Total' on the receipt. Use your own calculation as the primary source for the total_price. The printed total on the receipt should only be used as a last resort.
-        6.  Finally, determine the "store_name".
+        6.  Determine the "store_name".
+        7.  Finally, set "raw_text" to the full text printed on the receipt, top to bottom, one printed line per line (separated by "\\n"). Copy it as printed; do not summarize or correct it.
         """
         
         # 3. Call the Gemini 2.5 Flash model with the prompt and the file data.
@@ -64,7 +72,7 @@ def process_receipt():
         return jsonify(structured_data)
 
     except Exception as e:
-        print("DETAILED ERROR:", e) # Add this line to see the error in your terminal
+        print(f"[trace {trace_id()}] DETAILED ERROR:", e) # Add this line to see the error in your terminal
         return jsonify({'error': str(e)}), 500
 
 if __name__ == '__main__':
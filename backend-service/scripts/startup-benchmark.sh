@@ -0,0 +1,133 @@
+#!/usr/bin/env bash
+# Startup benchmark for the deployment modes in pom.xml. Each mode the build produced is
+# started RUNS times (modes interleaved, so drift hits them all alike); for every start it
+# records the time from launch to the first successful request and the resident memory
+# (VmRSS) at that moment, then stops the process. Prints the median and best of each.
+#
+#   jar        java -jar target/backend-service-0.0.1-SNAPSHOT.jar (the packaged fat jar)
+#   extracted  java -jar target/cds/backend-service-0.0.1-SNAPSHOT.jar       (-Pcds)
+#   aot        the same with -Dspring.aot.enabled=true                        (-Paot)
+#   cds        the extracted jar with -XX:SharedArchiveFile; trained and run
+#              with AOT when the jar was AOT-processed, so "aot+cds"          (-Pcds [-Paot])
+#   native     target/backend-service                  (-Pnative native:compile)
+#
+# Usage, from backend-service/ with the database up (docker compose up mysql-db):
+#   mvn -Paot,cds package -DskipTests
+#   scripts/startup-benchmark.sh [runs] [-- application args...]
+#
+# Environment: URL is the request that counts as served (default the login page on
+# localhost:8080), TIMEOUT the seconds to wait for it (default 120), JAVA the java binary.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+shift || true
+if [[ "${1:-}" == "--" ]]; then
+    shift
+fi
+APP_ARGS=("$@")
+URL=${URL:-http://localhost:8080/index.html}
+TIMEOUT=${TIMEOUT:-120}
+JAVA=${JAVA:-${JAVA_HOME:+$JAVA_HOME/bin/}java}
+
+NAME=backend-service-0.0.1-SNAPSHOT
+JAR=target/$NAME.jar
+EXTRACTED=target/cds/$NAME.jar
+ARCHIVE=target/cds/application.jsa
+NATIVE=target/backend-service
+LOG_DIR=target/startup-benchmark
+mkdir -p "$LOG_DIR"
+
+aot_processed() {
+    [[ "$(unzip -Z1 "$1" 2>/dev/null)" == *__ApplicationContextInitializer* ]]
+}
+
+# mode name -> command, for the modes whose artifacts exist
+declare -a MODES=()
+declare -A COMMANDS=()
+add_mode() {
+    MODES+=("$1")
+    COMMANDS[$1]=$2
+}
+if [[ -f $JAR ]]; then
+    add_mode jar "$JAVA -jar $JAR"
+fi
+if [[ -f $EXTRACTED ]]; then
+    add_mode extracted "$JAVA -jar $EXTRACTED"
+    if aot_processed "$EXTRACTED"; then
+        add_mode aot "$JAVA -Dspring.aot.enabled=true -jar $EXTRACTED"
+        if [[ -f $ARCHIVE ]]; then
+            add_mode aot+cds "$JAVA -XX:SharedArchiveFile=$ARCHIVE -Dspring.aot.enabled=true -jar $EXTRACTED"
+        fi
+    elif [[ -f $ARCHIVE ]]; then
+        add_mode cds "$JAVA -XX:SharedArchiveFile=$ARCHIVE -jar $EXTRACTED"
+    fi
+elif [[ -f $JAR ]] && aot_processed "$JAR"; then
+    add_mode aot "$JAVA -Dspring.aot.enabled=true -jar $JAR"
+fi
+if [[ -x $NATIVE ]]; then
+    add_mode native "$NATIVE"
+fi
+if [[ ${#MODES[@]} -eq 0 ]]; then
+    echo "Nothing to run; build first, e.g. mvn -Paot,cds package -DskipTests" >&2
+    exit 1
+fi
+
+if curl -s -o /dev/null --max-time 1 "$URL"; then
+    echo "Something already answers $URL; stop it first" >&2
+    exit 1
+fi
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Starts one mode and prints "<ms to first request> <rss KiB>"
+measure() {
+    local mode=$1 run=$2 log="$LOG_DIR/$1-$2.log"
+    local start pid deadline ms rss
+    start=$(now_ms)
+    # shellcheck disable=SC2086 # the command is deliberately word-split
+    ${COMMANDS[$mode]} "${APP_ARGS[@]}" > "$log" 2>&1 &
+    pid=$!
+    deadline=$(( start + TIMEOUT * 1000 ))
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' --max-time 1 "$URL" || true)" == 200 ]]; do
+        if ! kill -0 "$pid" 2>/dev/null || (( $(now_ms) > deadline )); then
+            kill "$pid" 2>/dev/null || true
+            wait "$pid" 2>/dev/null || true
+            echo "$mode did not serve $URL, see $log" >&2
+            return 1
+        fi
+        sleep 0.01
+    done
+    ms=$(( $(now_ms) - start ))
+    rss=$(awk '/^VmRSS:/ { print $2 }' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$ms $rss"
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+declare -A TIMES=() MEMORY=()
+for run in $(seq 1 "$RUNS"); do
+    for mode in "${MODES[@]}"; do
+        read -r ms rss < <(measure "$mode" "$run")
+        printf '%-10s run %d: %6d ms  %5d MiB\n' "$mode" "$run" "$ms" $(( rss / 1024 ))
+        TIMES[$mode]+="$ms "
+        MEMORY[$mode]+="$rss "
+    done
+done
+
+echo
+printf '%-10s %22s %20s %16s\n' mode "first request p50 ms" "first request min ms" "RSS p50 MiB"
+for mode in "${MODES[@]}"; do
+    times=$(tr ' ' '\n' <<< "${TIMES[$mode]}" | grep .)
+    printf '%-10s %22d %20d %16d\n' "$mode" \
+        "$(median <<< "$times")" \
+        "$(sort -n <<< "$times" | head -1)" \
+        $(( $(tr ' ' '\n' <<< "${MEMORY[$mode]}" | grep . | median) / 1024 ))
+done
@@ -0,0 +1,118 @@
+package com.shubho.backend_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.ExpensePage;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptView;
+import com.shubho.backend_service.model.User;
+import org.springframework.core.io.ClassPathResource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Deterministic receipts that look like what the extractor returns for real grocery, pharmacy
+// and restaurant receipts: abbreviated item names, prices with currency symbols, some
+// quantities above one and a discount now and then
+final class BenchmarkFixtures {
+
+    private static final String[] STORES = {
+            "Trader Joe's", "WHOLE FOODS MARKET", "Safeway #1423", "Costco Wholesale", "CVS/pharmacy",
+            "Target T-2231", "Chipotle Mexican Grill", "Shell Oil 57442", "Walgreens", "Kroger"
+    };
+
+    private static final String[] ITEMS = {
+            "ORG BANANAS", "HASS AVOCADO 4CT", "2% MILK GAL", "LARGE BROWN EGGS 12CT", "SOURDOUGH BREAD",
+            "CHKN BRST BNLS", "GRND BEEF 85/15", "ATL SALMON FILLET", "BABY SPINACH 5OZ", "GREEK YOGURT PLN",
+            "SHARP CHEDDAR", "SPAGHETTI 1LB", "MARINARA SAUCE", "TORTILLA CHIPS", "SPARKLING WATER 12PK",
+            "IPA 6PK", "FZ PIZZA MARGHERITA", "PAPER TOWELS 6RL", "LAUNDRY DETERGENT", "TOOTHPASTE 2PK",
+            "IBUPROFEN 200MG", "DOG FOOD 30LB", "COFFEE WHOLE BEAN", "BURRITO BOWL", "REG UNLEADED",
+            "BAG FEE", "STRAWBERRIES 1LB", "PEANUT BUTTER", "OLIVE OIL XV", "DARK CHOCOLATE BAR"
+    };
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkFixtures() {
+    }
+
+    static ItemCategorizer categorizer() {
+        return new ItemCategorizer(new ClassPathResource("categorizer/dictionary.txt"), 50_000, 10_000);
+    }
+
+    // The extractor's JSON for a receipt with `itemCount` lines
+    static String extractorJson(int itemCount, long seed) {
+        Random random = new Random(seed);
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("store_name", STORES[random.nextInt(STORES.length)]);
+        root.put("receipt_date", LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)).toString());
+        ArrayNode items = root.putArray("items");
+        double total = 0;
+        for (int i = 0; i < itemCount; i++) {
+            int quantity = random.nextInt(10) < 8 ? 1 : 2 + random.nextInt(3);
+            double price = price(random);
+            total += quantity * price;
+            items.addObject()
+                    .put("name", ITEMS[random.nextInt(ITEMS.length)])
+                    .put("quantity", quantity)
+                    .put("price", "$" + String.format(Locale.US, "%.2f", price));
+        }
+        root.put("total_price", "$" + String.format(Locale.US, "%,.2f", total));
+        root.put("total_discount", random.nextInt(4) == 0 ? "-$" + String.format(Locale.US, "%.2f", total * 0.05) : "0.00");
+        root.put("raw_text", "RECEIPT TEXT ".repeat(20 + itemCount * 3));
+        return root.toString();
+    }
+
+    // An unsaved receipt with `itemCount` categorized items, as the write path sees it
+    static Receipt receipt(int itemCount, long seed, ItemCategorizer categorizer) {
+        Random random = new Random(seed);
+        Receipt receipt = new Receipt();
+        receipt.setUser(new User());
+        receipt.setStoreName(STORES[random.nextInt(STORES.length)]);
+        receipt.setReceiptDate(LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)));
+        List<ExpenseItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            ExpenseItem item = new ExpenseItem();
+            item.setItemName(ITEMS[random.nextInt(ITEMS.length)]);
+            item.setQuantity(random.nextInt(10) < 8 ? 1 : 2 + random.nextInt(3));
+            item.setPrice(price(random));
+            item.setReceipt(receipt);
+            items.add(item);
+        }
+        receipt.setItems(items);
+        categorizer.categorize(receipt);
+        return receipt;
+    }
+
+    // One /api/expenses page of `pageSize` receipts with 1 to 40 items each
+    static ExpensePage expensePage(int pageSize, long seed, ItemCategorizer categorizer) {
+        Random random = new Random(seed);
+        List<ReceiptView> receipts = new ArrayList<>(pageSize);
+        long itemId = 1;
+        for (int r = 0; r < pageSize; r++) {
+            Receipt receipt = receipt(1 + random.nextInt(40), random.nextLong(), categorizer);
+            long receiptId = 10_000L + r;
+            List<ExpenseItemView> items = new ArrayList<>(receipt.getItems().size());
+            double total = 0;
+            for (ExpenseItem item : receipt.getItems()) {
+                items.add(new ExpenseItemView(itemId++, receiptId, item.getItemName(), item.getQuantity(),
+                        item.getPrice(), item.getCategory()));
+                total += item.getQuantity() * item.getPrice();
+            }
+            receipts.add(new ReceiptView(receiptId, receipt.getStoreName(), receipt.getReceiptDate(),
+                    Math.round(total * 100) / 100.0, 0.0, "/api/receipts/" + receiptId + "/thumbnail", items));
+        }
+        return new ExpensePage(receipts, "MjAyNS0wMy0wMToxMDAxOQ", 4_217);
+    }
+
+    // Mostly everyday prices, with the occasional large one
+    private static double price(Random random) {
+        double price = random.nextInt(20) == 0 ? 20 + random.nextDouble() * 180 : 0.5 + random.nextDouble() * 15;
+        return Math.round(price * 100) / 100.0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.shubho.backend_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shubho.backend_service.model.ExtractionResult;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// ReceiptService.toReceipt, the mapping every extraction (cached or not) goes through, and
+// its parts: decoding the JSON (ExtractionDecoder, against the tree the mapping used to build
+// with a new ObjectMapper per call) and reading prices (the minor-unit scanner, against the
+// String.replaceAll cleaning it replaced). Run with -prof gc to compare allocations.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReceiptMappingBenchmark {
+
+    private static final ObjectMapper SHARED_MAPPER = new ObjectMapper();
+
+    @Param({"5", "30", "120"})
+    public int itemCount;
+
+    private ReceiptService receiptService;
+    private User user;
+    private String json;
+    private String[] prices;
+
+    @Setup
+    public void setUp() throws IOException {
+        receiptService = new ReceiptService();
+        ReflectionTestUtils.setField(receiptService, "itemCategorizer", BenchmarkFixtures.categorizer());
+        receiptService.setMeterRegistry(new SimpleMeterRegistry());
+        user = new User();
+        json = BenchmarkFixtures.extractorJson(itemCount, 42);
+
+        JsonNode items = SHARED_MAPPER.readTree(json).path("items");
+        prices = new String[items.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = items.get(i).path("price").asText();
+        }
+        // Categorizer cache warm, as it is in a running service
+        receiptService.toReceipt(json, user);
+    }
+
+    @Benchmark
+    public Receipt toReceipt() throws IOException {
+        return receiptService.toReceipt(json, user);
+    }
+
+    @Benchmark
+    public ExtractionResult decode() throws IOException {
+        return ExtractionDecoder.decode(json);
+    }
+
+    @Benchmark
+    public JsonNode readTreeWithNewMapper() throws IOException {
+        return new ObjectMapper().readTree(json);
+    }
+
+    @Benchmark
+    public JsonNode readTreeWithSharedMapper() throws IOException {
+        return SHARED_MAPPER.readTree(json);
+    }
+
+    @Benchmark
+    public void cleanPricesWithReplaceAll(Blackhole blackhole) {
+        for (String price : prices) {
+            blackhole.consume(Double.parseDouble(price.replaceAll("[^\\d.]", "")));
+        }
+    }
+
+    @Benchmark
+    public void scanPricesToMinorUnits(Blackhole blackhole) {
+        for (String price : prices) {
+            blackhole.consume(ExtractionDecoder.minorUnits(price));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.SpendingRollup;
+import com.shubho.backend_service.service.SpendingRollupService.ItemAmount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The in-memory part of keeping a receipt's totals and rollups current as it grows. Item
+// edits used to recompute the totals over every item (recomputeTotals); they now apply the
+// edited item's delta (itemDelta) and fold the amounts into rollup buckets (rollupBuckets).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReceiptTotalsBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int itemCount;
+
+    private Receipt receipt;
+    private ExpenseItem edited;
+    private List<ItemAmount> amounts;
+
+    @Setup
+    public void setUp() {
+        receipt = BenchmarkFixtures.receipt(itemCount, 7, BenchmarkFixtures.categorizer());
+        edited = receipt.getItems().get(itemCount / 2);
+        amounts = new ArrayList<>(itemCount);
+        receipt.getItems().forEach(item -> amounts.add(ItemAmount.of(receipt, item)));
+    }
+
+    @Benchmark
+    public double recomputeTotals() {
+        double total = 0;
+        for (ExpenseItem item : receipt.getItems()) {
+            total += item.getQuantity() * item.getPrice();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double itemDelta() {
+        ItemAmount before = ItemAmount.of(receipt, edited);
+        ItemAmount after = ItemAmount.of(receipt.getUser().getId(), receipt.getReceiptDate(), receipt.getStoreName(),
+                edited.getCategory(), edited.getQuantity() + 1, edited.getPrice());
+        return after.amount() - before.amount();
+    }
+
+    @Benchmark
+    public Map<SpendingRollup.Key, SpendingRollupService.Aggregate> rollupBuckets() {
+        List<ItemAmount> fresh = new ArrayList<>(itemCount);
+        receipt.getItems().forEach(item -> fresh.add(ItemAmount.of(receipt, item)));
+        return SpendingRollupService.aggregate(fresh);
+    }
+
+    @Benchmark
+    public Map<SpendingRollup.Key, SpendingRollupService.Aggregate> rollupBucketsPrecomputed() {
+        return SpendingRollupService.aggregate(amounts);
+    }
+}
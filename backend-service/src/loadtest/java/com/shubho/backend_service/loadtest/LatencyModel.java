@@ -0,0 +1,73 @@
+package com.shubho.backend_service.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+// How long the stand-in extractor takes to answer. Written as
+//   fixed:800ms
+//   uniform:500ms:3s
+//   lognormal:1500ms:8s   (median and 99th percentile)
+// LLM calls have a long right tail, so lognormal is the one to size capacity with.
+sealed interface LatencyModel {
+
+    Duration sample(RandomGenerator random);
+
+    record Fixed(Duration latency) implements LatencyModel {
+        @Override
+        public Duration sample(RandomGenerator random) {
+            return latency;
+        }
+    }
+
+    record Uniform(Duration min, Duration max) implements LatencyModel {
+        @Override
+        public Duration sample(RandomGenerator random) {
+            long min = min().toNanos();
+            long max = max().toNanos();
+            return Duration.ofNanos(max > min ? random.nextLong(min, max + 1) : min);
+        }
+    }
+
+    record LogNormal(Duration median, Duration p99) implements LatencyModel {
+        // z-score of the 99th percentile of a standard normal
+        private static final double Z_99 = 2.3263;
+
+        @Override
+        public Duration sample(RandomGenerator random) {
+            double mu = Math.log(median.toNanos());
+            double sigma = Math.max(0, (Math.log(p99.toNanos()) - mu) / Z_99);
+            return Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+        }
+    }
+
+    static LatencyModel parse(String spec) {
+        String[] parts = spec.split(":");
+        return switch (parts[0]) {
+            case "fixed" -> {
+                requireParts(spec, parts, 2);
+                yield new Fixed(duration(parts[1]));
+            }
+            case "uniform" -> {
+                requireParts(spec, parts, 3);
+                yield new Uniform(duration(parts[1]), duration(parts[2]));
+            }
+            case "lognormal" -> {
+                requireParts(spec, parts, 3);
+                yield new LogNormal(duration(parts[1]), duration(parts[2]));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency model: " + spec);
+        };
+    }
+
+    private static void requireParts(String spec, String[] parts, int expected) {
+        if (parts.length != expected) {
+            throw new IllegalArgumentException("Malformed latency model: " + spec);
+        }
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
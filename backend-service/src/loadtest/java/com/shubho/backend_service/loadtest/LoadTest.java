@@ -0,0 +1,242 @@
+package com.shubho.backend_service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Drives uploads, /api/expenses reads and /api/items edits against a running backend and
+// reports throughput, latency percentiles and errors per operation.
+//
+//   mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--stub --users=20 --duration=60s"
+//
+// The backend must already be up (docker-compose for MySQL, then spring-boot:run) and, with
+// --stub, pointed at the embedded extractor (receipts.extractor.url=http://localhost:5000/process-receipt,
+// the default). Options:
+//   --base-url=http://localhost:8080   backend to test
+//   --users=10                         virtual users, each with its own account and session
+//   --duration=60s --warmup=10s        measured time, after a warm-up that isn't recorded
+//   --mix=upload:1,list:6,edit:3       relative weights of the operations
+//   --rate=0                           total requests/s across all users; 0 runs closed-loop
+//   --think=0ms                        pause between a user's requests in closed-loop mode
+//   --async                            upload with ?async=true (measures the hand-off only)
+//   --stub [--stub-port=5000 ...]      start StubExtractor in-process, see its options
+//   --report=target/loadtest-report.json
+//
+// With --rate each user works to a fixed schedule and latency is measured from when a request
+// was due, not when it was sent, so a stalled server shows up in the percentiles instead of
+// quietly lowering the request rate (coordinated omission).
+public final class LoadTest {
+
+    enum Operation {
+        UPLOAD, LIST, EDIT
+    }
+
+    // Latencies are recorded in microseconds, up to an hour, to 3 significant digits
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    // What one virtual user measured; merged once every user has stopped
+    static final class Results {
+        final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        final Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+        final Map<String, Long> errors = new TreeMap<>();
+
+        Results() {
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new Histogram(MAX_LATENCY_MICROS, 3));
+                errorCounts.put(operation, 0L);
+            }
+        }
+
+        void record(Operation operation, long nanos, String error) {
+            latencies.get(operation).recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(1, nanos / 1_000)));
+            if (error != null) {
+                errorCounts.merge(operation, 1L, Long::sum);
+                errors.merge(operation.name().toLowerCase(Locale.ROOT) + " " + error, 1L, Long::sum);
+            }
+        }
+
+        void add(Results other) {
+            for (Operation operation : Operation.values()) {
+                latencies.get(operation).add(other.latencies.get(operation));
+                errorCounts.merge(operation, other.errorCounts.get(operation), Long::sum);
+            }
+            other.errors.forEach((error, count) -> errors.merge(error, count, Long::sum));
+        }
+    }
+
+    record Settings(String baseUrl, int users, Duration duration, Duration warmup, Map<Operation, Integer> mix,
+                    double rate, Duration think, boolean async, String password) {
+
+        static Settings from(Options options) {
+            return new Settings(
+                    options.get("base-url", "http://localhost:8080"),
+                    options.getInt("users", 10),
+                    options.getDuration("duration", "60s"),
+                    options.getDuration("warmup", "10s"),
+                    parseMix(options.get("mix", "upload:1,list:6,edit:3")),
+                    options.getDouble("rate", 0),
+                    options.getDuration("think", "0ms"),
+                    options.getFlag("async"),
+                    options.get("password", "loadtest-password"));
+        }
+    }
+
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] weight = part.strip().split(":");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Malformed mix: " + spec);
+            }
+            mix.put(Operation.valueOf(weight[0].toUpperCase(Locale.ROOT)), Integer.parseInt(weight[1]));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight: " + spec);
+        }
+        return mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        Settings settings = Settings.from(options);
+        StubExtractor stub = null;
+        if (options.getFlag("stub")) {
+            StubExtractor.Settings stubSettings = StubExtractor.Settings.from(new Options(stubArgs(args)));
+            stub = StubExtractor.start(stubSettings);
+            System.out.println("Stub extractor listening on " + stub.url());
+        }
+        try {
+            Results results = run(settings);
+            print(settings, results);
+            Path report = Path.of(options.get("report", "target/loadtest-report.json"));
+            writeReport(report, settings, results, stub);
+            System.out.println("Report written to " + report.toAbsolutePath());
+        } finally {
+            if (stub != null) {
+                System.out.println(stub.summary());
+                stub.close();
+            }
+        }
+    }
+
+    // --stub-port=5000 --stub-latency=... become the stub's own --port=5000 --latency=...
+    private static String[] stubArgs(String[] args) {
+        List<String> stubArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--stub-")) {
+                stubArgs.add("--" + arg.substring("--stub-".length()));
+            }
+        }
+        return stubArgs.toArray(String[]::new);
+    }
+
+    static Results run(Settings settings) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        System.out.printf(Locale.ROOT, "Logging in %d users at %s%n", settings.users(), settings.baseUrl());
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < settings.users(); i++) {
+            VirtualUser user = new VirtualUser(settings, "loadtest-" + runId + "-" + i, i);
+            user.signIn();
+            users.add(user);
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+        System.out.printf(Locale.ROOT, "Running for %s after a %s warm-up%n", settings.duration(), settings.warmup());
+        Results total = new Results();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Results>> running = new ArrayList<>();
+            for (VirtualUser user : users) {
+                running.add(executor.submit(() -> user.run(start, measureFrom, end)));
+            }
+            for (Future<Results> result : running) {
+                total.add(result.get());
+            }
+        }
+        return total;
+    }
+
+    private static void print(Settings settings, Results results) {
+        double seconds = settings.duration().toNanos() / 1e9;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-8s %9s %8s %9s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = results.latencies.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-8s %9d %8d %9.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    operation.name().toLowerCase(Locale.ROOT), histogram.getTotalCount(),
+                    results.errorCounts.get(operation), histogram.getTotalCount() / seconds,
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1000.0);
+        }
+        if (!results.errors.isEmpty()) {
+            System.out.println();
+            System.out.println("Errors:");
+            results.errors.forEach((error, count) -> System.out.printf(Locale.ROOT, "%8d  %s%n", count, error));
+        }
+    }
+
+    private static void writeReport(Path path, Settings settings, Results results, StubExtractor stub)
+            throws IOException {
+        double seconds = settings.duration().toNanos() / 1e9;
+        ObjectNode report = MAPPER.createObjectNode();
+        ObjectNode config = report.putObject("settings");
+        config.put("baseUrl", settings.baseUrl());
+        config.put("users", settings.users());
+        config.put("duration", settings.duration().toString());
+        config.put("warmup", settings.warmup().toString());
+        config.put("rate", settings.rate());
+        config.put("async", settings.async());
+        settings.mix().forEach((operation, weight) ->
+                config.with("mix").put(operation.name().toLowerCase(Locale.ROOT), weight));
+        ObjectNode operations = report.putObject("operations");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = results.latencies.get(operation);
+            ObjectNode node = operations.putObject(operation.name().toLowerCase(Locale.ROOT));
+            node.put("count", histogram.getTotalCount());
+            node.put("errors", results.errorCounts.get(operation));
+            node.put("throughput", histogram.getTotalCount() / seconds);
+            ObjectNode latency = node.putObject("latencyMs");
+            latency.put("mean", histogram.getMean() / 1000.0);
+            for (double percentile : new double[]{50, 90, 99, 99.9}) {
+                latency.put("p" + (percentile == (long) percentile ? Long.toString((long) percentile) : percentile),
+                        millis(histogram, percentile));
+            }
+            latency.put("max", histogram.getMaxValue() / 1000.0);
+        }
+        report.putPOJO("errors", results.errors);
+        if (stub != null) {
+            report.put("stub", stub.summary());
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), report);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,217 @@
+package com.shubho.backend_service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stands in for the ai-service extractor (POST /process-receipt with an "image" part) so
+// the ingestion path can be loaded without Gemini. Answers with JSON in the same shape the
+// Flask service returns, for receipts of a random size in [minItems, maxItems], after a
+// delay drawn from a LatencyModel. A fraction of calls fail with the Flask 500 body, and a
+// fraction hang for `hang` (longer than the backend's read timeout) before failing.
+//
+// Embeddable (start() on port 0 in a test) or standalone:
+//   mvn -Ploadtest test-compile exec:exec \
+//       -Dloadtest.main=com.shubho.backend_service.loadtest.StubExtractor \
+//       -Dloadtest.args="--port=5000 --latency=lognormal:1500ms:8s --error-rate=0.01"
+public final class StubExtractor implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] STORES = {
+            "Trader Joe's", "WHOLE FOODS MARKET", "Safeway #1423", "Costco Wholesale", "CVS/pharmacy",
+            "Target T-2231", "Chipotle Mexican Grill", "Shell Oil 57442", "Walgreens", "Kroger"
+    };
+
+    private static final String[] ITEMS = {
+            "ORG BANANAS", "HASS AVOCADO 4CT", "2% MILK GAL", "LARGE BROWN EGGS 12CT", "SOURDOUGH BREAD",
+            "CHKN BRST BNLS", "GRND BEEF 85/15", "ATL SALMON FILLET", "BABY SPINACH 5OZ", "GREEK YOGURT PLN",
+            "SHARP CHEDDAR", "SPAGHETTI 1LB", "MARINARA SAUCE", "TORTILLA CHIPS", "SPARKLING WATER 12PK",
+            "IPA 6PK", "FZ PIZZA MARGHERITA", "PAPER TOWELS 6RL", "LAUNDRY DETERGENT", "TOOTHPASTE 2PK",
+            "IBUPROFEN 200MG", "DOG FOOD 30LB", "COFFEE WHOLE BEAN", "BURRITO BOWL", "REG UNLEADED",
+            "BAG FEE", "STRAWBERRIES 1LB", "PEANUT BUTTER", "OLIVE OIL XV", "DARK CHOCOLATE BAR"
+    };
+
+    public record Settings(int port, LatencyModel latency, double errorRate, double hangRate, Duration hang,
+                           int minItems, int maxItems, long seed) {
+
+        static Settings from(Options options) {
+            String[] items = options.get("items", "3-40").split("-");
+            return new Settings(
+                    options.getInt("port", 5000),
+                    LatencyModel.parse(options.get("latency", "lognormal:1500ms:8s")),
+                    options.getDouble("error-rate", 0.0),
+                    options.getDouble("hang-rate", 0.0),
+                    options.getDuration("hang", "120s"),
+                    Integer.parseInt(items[0]),
+                    Integer.parseInt(items[items.length - 1]),
+                    options.getInt("seed", 42));
+        }
+    }
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Split per request, so concurrent requests don't contend on one generator
+    private final SplittableRandom seedSource;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong hung = new AtomicLong();
+
+    private StubExtractor(Settings settings) throws IOException {
+        this.settings = settings;
+        this.seedSource = new SplittableRandom(settings.seed());
+        this.server = HttpServer.create(new InetSocketAddress("localhost", settings.port()), 1024);
+        server.createContext("/process-receipt", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static StubExtractor start(Settings settings) throws IOException {
+        StubExtractor stub = new StubExtractor(settings);
+        stub.server.start();
+        return stub;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String url() {
+        return "http://localhost:" + port() + "/process-receipt";
+    }
+
+    public String summary() {
+        return String.format(Locale.ROOT, "stub extractor: %d served, %d failed, %d hung",
+                served.get(), failed.get(), hung.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                return;
+            }
+            // Read the whole upload, as the real service does, and check the part is there
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            if (!new String(body, StandardCharsets.ISO_8859_1).contains("name=\"image\"")) {
+                respond(exchange, 400, "{\"error\": \"No image file provided\"}");
+                return;
+            }
+
+            SplittableRandom random;
+            synchronized (seedSource) {
+                random = seedSource.split();
+            }
+            double roll = random.nextDouble();
+            if (roll < settings.hangRate()) {
+                hung.incrementAndGet();
+                sleep(settings.hang());
+                respond(exchange, 500, "{\"error\": \"Deadline exceeded\"}");
+                return;
+            }
+            sleep(settings.latency().sample(random));
+            if (roll < settings.hangRate() + settings.errorRate()) {
+                failed.incrementAndGet();
+                respond(exchange, 500, "{\"error\": \"503 The model is overloaded. Please try again later.\"}");
+                return;
+            }
+            int items = random.nextInt(settings.minItems(), settings.maxItems() + 1);
+            respond(exchange, 200, receiptJson(items, random));
+            served.incrementAndGet();
+        }
+    }
+
+    // Same keys and value styles as the Gemini output: prices as currency strings or bare
+    // numbers, a discount now and then, and raw_text with one printed line per line
+    static String receiptJson(int itemCount, SplittableRandom random) {
+        ObjectNode root = MAPPER.createObjectNode();
+        String store = STORES[random.nextInt(STORES.length)];
+        root.put("store_name", store);
+        root.put("receipt_date", LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365)).toString());
+        boolean currencyStrings = random.nextBoolean();
+        StringBuilder rawText = new StringBuilder(store).append('\n');
+        ArrayNode items = root.putArray("items");
+        long totalCents = 0;
+        for (int i = 0; i < itemCount; i++) {
+            String name = ITEMS[random.nextInt(ITEMS.length)];
+            int quantity = random.nextInt(10) < 8 ? 1 : 2 + random.nextInt(3);
+            long cents = random.nextInt(20) == 0 ? 2_000 + random.nextInt(18_000) : 50 + random.nextInt(1_500);
+            totalCents += quantity * cents;
+            ObjectNode item = items.addObject().put("name", name).put("quantity", quantity);
+            if (currencyStrings) {
+                item.put("price", "$" + money(cents));
+            } else {
+                item.put("price", cents / 100.0);
+            }
+            rawText.append(quantity > 1 ? quantity + " @ " : "").append(name).append("    ").append(money(cents)).append('\n');
+        }
+        long discountCents = random.nextInt(4) == 0 ? totalCents / 20 : 0;
+        long finalCents = totalCents - discountCents;
+        if (currencyStrings) {
+            root.put("total_price", "$" + money(finalCents));
+            root.put("total_discount", discountCents > 0 ? "-$" + money(discountCents) : "0.00");
+        } else {
+            root.put("total_price", finalCents / 100.0);
+            root.put("total_discount", discountCents / 100.0);
+        }
+        rawText.append("TOTAL    ").append(money(finalCents));
+        root.put("raw_text", rawText.toString());
+        return root.toString();
+    }
+
+    private static String money(long cents) {
+        return String.format(Locale.US, "%d.%02d", cents / 100, cents % 100);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        StubExtractor stub = start(Settings.from(new Options(args)));
+        System.out.println("Stub extractor listening on " + stub.url());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(stub.summary());
+            stub.close();
+        }));
+        Thread.currentThread().join();
+    }
+}
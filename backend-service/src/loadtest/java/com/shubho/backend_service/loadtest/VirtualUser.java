@@ -0,0 +1,253 @@
+package com.shubho.backend_service.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shubho.backend_service.loadtest.LoadTest.Operation;
+import com.shubho.backend_service.loadtest.LoadTest.Results;
+import com.shubho.backend_service.loadtest.LoadTest.Settings;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+// One simulated user: its own account, its own cookie jar or bearer token, and a loop that
+// issues the configured mix of requests until the run ends.
+final class VirtualUser {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(3);
+
+    // An ordinary phone-sized receipt scan, encoded once; each upload appends a unique
+    // trailer after the JPEG end marker so no two share a hash (and hit the extraction cache)
+    private static final byte[] RECEIPT_JPEG = receiptJpeg();
+
+    // Remembered from list responses so edits touch rows that exist
+    private static final int MAX_KNOWN_ITEMS = 200;
+
+    private record Item(long id, String itemName, Integer quantity, Double price) {
+    }
+
+    private final Settings settings;
+    private final String username;
+    private final SplittableRandom random;
+    private final HttpClient client;
+    private final List<Item> knownItems = new ArrayList<>();
+    private final Operation[] weightedOperations;
+    private String bearerToken;
+    private long uploads;
+
+    VirtualUser(Settings settings, String username, int index) {
+        this.settings = settings;
+        this.username = username;
+        this.random = new SplittableRandom(index);
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        List<Operation> weighted = new ArrayList<>();
+        settings.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        this.weightedOperations = weighted.toArray(Operation[]::new);
+    }
+
+    // Registers the account (an existing one is fine) and logs in. A redirect from /login
+    // means the backend runs in session mode and the cookie jar now holds the session; a
+    // JSON body means token mode.
+    void signIn() throws IOException, InterruptedException {
+        String credentials = MAPPER.writeValueAsString(Map.of("username", username, "password", settings.password()));
+        HttpResponse<String> registered = client.send(request("/api/auth/register")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (registered.statusCode() != 200 && registered.statusCode() != 400) {
+            throw new IOException("Registering " + username + " failed: HTTP " + registered.statusCode()
+                    + " " + registered.body());
+        }
+
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(settings.password(), StandardCharsets.UTF_8);
+        HttpResponse<String> login = client.send(request("/login")
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (login.statusCode() == 302) {
+            String location = login.headers().firstValue("Location").orElse("");
+            if (location.contains("error")) {
+                throw new IOException("Logging in " + username + " failed: redirected to " + location);
+            }
+        } else if (login.statusCode() == 200) {
+            bearerToken = MAPPER.readTree(login.body()).path("accessToken").asText(null);
+            if (bearerToken == null) {
+                throw new IOException("Logging in " + username + " returned no accessToken: " + login.body());
+            }
+        } else {
+            throw new IOException("Logging in " + username + " failed: HTTP " + login.statusCode() + " " + login.body());
+        }
+    }
+
+    Results run(long start, long measureFrom, long end) {
+        Results results = new Results();
+        // Each user's share of --rate, with the users' schedules spread across one interval
+        long interval = settings.rate() > 0 ? (long) (settings.users() * 1e9 / settings.rate()) : 0;
+        long next = start + (interval == 0 ? 0 : random.nextLong(interval));
+        while (!Thread.currentThread().isInterrupted()) {
+            long scheduled;
+            if (interval > 0) {
+                scheduled = next;
+                next += interval;
+                sleepUntil(scheduled);
+            } else {
+                scheduled = System.nanoTime();
+            }
+            if (scheduled >= end) {
+                break;
+            }
+            Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+            if (operation == Operation.EDIT && knownItems.isEmpty()) {
+                // Nothing to edit until a list has been read
+                operation = Operation.LIST;
+            }
+            String error = perform(operation);
+            if (scheduled >= measureFrom) {
+                results.record(operation, System.nanoTime() - scheduled, error);
+            }
+            if (interval == 0 && !settings.think().isZero()) {
+                sleepUntil(System.nanoTime() + settings.think().toNanos());
+            }
+        }
+        return results;
+    }
+
+    // Returns null on success, otherwise a short description used to group the errors
+    private String perform(Operation operation) {
+        try {
+            HttpResponse<String> response = switch (operation) {
+                case UPLOAD -> upload();
+                case LIST -> list();
+                case EDIT -> edit();
+            };
+            int status = response.statusCode();
+            return status >= 200 && status < 300 ? null : "HTTP " + status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (Exception e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private HttpResponse<String> upload() throws IOException, InterruptedException {
+        String boundary = "----loadtest" + Long.toHexString(random.nextLong());
+        byte[] trailer = (username + "/" + uploads++).getBytes(StandardCharsets.US_ASCII);
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"receipt.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofByteArrays(List.of(
+                head.getBytes(StandardCharsets.US_ASCII), RECEIPT_JPEG, trailer,
+                tail.getBytes(StandardCharsets.US_ASCII)));
+        String path = "/api/receipts/upload" + (settings.async() ? "?async=true" : "");
+        return client.send(request(path)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(body)
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> list() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request("/api/expenses?limit=20").GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 200) {
+            remember(MAPPER.readTree(response.body()));
+        }
+        return response;
+    }
+
+    private HttpResponse<String> edit() throws IOException, InterruptedException {
+        Item item = knownItems.get(random.nextInt(knownItems.size()));
+        ObjectNode update = MAPPER.createObjectNode()
+                .put("itemName", item.itemName())
+                .put("quantity", item.quantity() == null ? 1 : 1 + random.nextInt(3))
+                .put("price", item.price() == null ? 1.0 : item.price());
+        update.putNull("category");
+        return client.send(request("/api/items/" + item.id())
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(update.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void remember(JsonNode page) {
+        knownItems.clear();
+        for (JsonNode receipt : page.path("receipts")) {
+            for (JsonNode item : receipt.path("items")) {
+                if (knownItems.size() == MAX_KNOWN_ITEMS) {
+                    return;
+                }
+                knownItems.add(new Item(item.path("id").asLong(), item.path("itemName").asText(null),
+                        item.hasNonNull("quantity") ? item.get("quantity").asInt() : null,
+                        item.hasNonNull("price") ? item.get("price").asDouble() : null));
+            }
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(settings.baseUrl() + path))
+                .timeout(REQUEST_TIMEOUT);
+        if (bearerToken != null) {
+            builder.header("Authorization", "Bearer " + bearerToken);
+        }
+        return builder;
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static byte[] receiptJpeg() {
+        BufferedImage image = new BufferedImage(1200, 2400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(70, 70, 70));
+        graphics.fillRect(0, 0, 1200, 2400);
+        graphics.setColor(new Color(245, 242, 235));
+        graphics.fillRect(200, 100, 800, 2200);
+        graphics.setColor(Color.BLACK);
+        SplittableRandom lines = new SplittableRandom(7);
+        for (int y = 180; y < 2200; y += 48) {
+            graphics.fillRect(240, y, 200 + lines.nextInt(350), 18);
+            graphics.fillRect(860, y, 100, 18);
+        }
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpeg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
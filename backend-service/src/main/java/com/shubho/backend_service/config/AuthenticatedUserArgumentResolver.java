@@ -0,0 +1,45 @@
+package com.shubho.backend_service.config;
+
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.service.UserIdCache;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+// Lets controller methods take an AuthenticatedUser parameter. Normally that's the principal
+// itself (see UserDetailsServiceImpl); any other kind of principal is mapped to one through
+// the username -> id cache.
+@Component
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final UserIdCache userIdCache;
+
+    public AuthenticatedUserArgumentResolver(UserIdCache userIdCache) {
+        this.userIdCache = userIdCache;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new AuthenticationCredentialsNotFoundException("Not logged in");
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        String username = authentication.getName();
+        return new AuthenticatedUser(userIdCache.idOf(username), username);
+    }
+}
@@ -0,0 +1,52 @@
+package com.shubho.backend_service.config;
+
+import com.shubho.backend_service.service.CategoryBackfillService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+
+// Categorizes items that were stored without a category, in the background so startup isn't
+// held up. Ordered after SpendingRollupBackfill, whose rebuild must not race these updates.
+@Component
+@Order(2)
+public class CategoryBackfillRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryBackfillRunner.class);
+
+    @Autowired
+    private CategoryBackfillService categoryBackfillService;
+
+    @Autowired
+    @Qualifier("receiptIngestionExecutor")
+    private ExecutorService executor;
+
+    // A runtime check, like SpendingRollupBackfill's, so AOT builds still honour it
+    @Value("${receipts.categorizer.backfill-on-startup:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                CategoryBackfillService.Result result = categoryBackfillService.backfill();
+                if (result.scanned() > 0) {
+                    log.info("Category backfill categorized {} of {} uncategorized items",
+                            result.categorized(), result.scanned());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Category backfill failed", e);
+            }
+        });
+    }
+}
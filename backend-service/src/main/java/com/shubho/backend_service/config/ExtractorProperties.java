@@ -0,0 +1,23 @@
+package com.shubho.backend_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Settings for the HTTP client that talks to the Python receipt extractor (receipts.extractor.*)
+@ConfigurationProperties(prefix = "receipts.extractor")
+public record ExtractorProperties(
+        @DefaultValue("http://localhost:5000/process-receipt") String url,
+        @DefaultValue("2s") Duration connectTimeout,
+        @DefaultValue("60s") Duration readTimeout,
+        @DefaultValue("20") int maxConnections,
+        @DefaultValue("30s") Duration keepAlive,
+        @DefaultValue("8") int maxConcurrentCalls,
+        @DefaultValue("10s") Duration maxBulkheadWait,
+        @DefaultValue("3") int retryMaxAttempts,
+        @DefaultValue("500ms") Duration retryInitialBackoff,
+        @DefaultValue("50") float failureRateThreshold,
+        @DefaultValue("20") int slidingWindowSize,
+        @DefaultValue("30s") Duration openStateDuration) {
+}
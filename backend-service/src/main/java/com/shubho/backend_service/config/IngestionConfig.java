@@ -0,0 +1,24 @@
+package com.shubho.backend_service.config;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class IngestionConfig {
+
+    // One virtual thread per ingestion task. The thread itself is cheap; the number of
+    // extractions actually running at once is capped by ReceiptJobService. Tasks carry the
+    // submitting request's context, so their logs and extractor calls keep its trace id.
+    @Bean(destroyMethod = "close")
+    public ExecutorService receiptIngestionExecutor() {
+        ContextSnapshotFactory snapshots = ContextSnapshotFactory.builder().build();
+        return ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("receipt-ingest-", 0).factory()),
+                snapshots::captureAll);
+    }
+}
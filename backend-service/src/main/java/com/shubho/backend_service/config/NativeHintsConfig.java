@@ -0,0 +1,58 @@
+package com.shubho.backend_service.config;
+
+import com.shubho.backend_service.model.BatchUploadResult;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.ExpensePage;
+import com.shubho.backend_service.model.ImportJob;
+import com.shubho.backend_service.model.ItemBatchResult;
+import com.shubho.backend_service.model.ItemOwnership;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptImage;
+import com.shubho.backend_service.model.ReceiptJob;
+import com.shubho.backend_service.model.ReceiptOwnership;
+import com.shubho.backend_service.model.ReceiptSummary;
+import com.shubho.backend_service.model.SearchResults;
+import com.shubho.backend_service.model.SpendingSummary;
+import com.shubho.backend_service.model.TokenPair;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.List;
+
+// Reflection and resources a native image needs but AOT processing can't discover from the
+// bean definitions and handler signatures. Only read by the native build (-Pnative).
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.Hints.class)
+public class NativeHintsConfig {
+
+    // Instantiated by Hibernate from the "select new ..." expressions in the repositories
+    static final List<Class<?>> QUERY_RESULTS = List.of(
+            ReceiptSummary.class, ExpenseItemView.class, ReceiptImage.class, ItemOwnership.class,
+            ReceiptOwnership.class);
+
+    // Serialized by Jackson but returned as ResponseEntity<?>, so missing from the signatures
+    static final List<Class<?>> RESPONSE_BODIES = List.of(
+            ExpensePage.class, Receipt.class, SpendingSummary.class, SearchResults.class,
+            BatchUploadResult.class, ItemBatchResult.class, ImportJob.class, ReceiptJob.class, TokenPair.class);
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : QUERY_RESULTS) {
+                hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+            }
+            new BindingReflectionHintsRegistrar()
+                    .registerReflectionHints(hints.reflection(), RESPONSE_BODIES.toArray(Class<?>[]::new));
+            // The optional migration location (Boot only registers db/migration)
+            hints.resources().registerPattern("db/partitioning/*.sql");
+            // Glyph lists, standard fonts and colour profiles for rendering PDF receipts
+            hints.resources().registerPattern("org/apache/pdfbox/resources/**");
+            hints.resources().registerPattern("org/apache/fontbox/**");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.shubho.backend_service.config;
+
+import com.shubho.backend_service.service.BoundedPasswordEncoder;
+import com.shubho.backend_service.service.ExpenseExportService;
+import com.shubho.backend_service.service.ReceiptImagePreprocessor;
+import com.shubho.backend_service.service.ReceiptJobService;
+import com.shubho.backend_service.service.StatementImportService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ObservabilityConfig {
+
+    // Wraps the pool so every statement (JPA and JdbcTemplate alike) is counted for the
+    // current request (see RequestMetricsFilter) and logged when it runs longer than the
+    // threshold. This replaces echoing every statement with spring.jpa.show-sql. Static so
+    // the data source is wrapped before anything else is built on it.
+    @Bean
+    public static BeanPostProcessor queryMetricsDataSourceWrapper(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                Duration slowQuery = DurationStyle.detectAndParse(
+                        environment.getProperty("observability.slow-query-threshold", "250ms"));
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .countQuery()
+                        .logSlowQueryBySlf4j(slowQuery.toMillis(), TimeUnit.MILLISECONDS, SLF4JLogLevel.WARN,
+                                "slow-query")
+                        .multiline()
+                        .build();
+            }
+        };
+    }
+
+    // How much work is waiting behind each of the app's own concurrency limits. The
+    // connection pool (hikaricp.*), the extractor bulkhead (resilience4j.bulkhead.*) and the
+    // HTTP client pool report themselves.
+    @Bean
+    public MeterBinder workQueueMetrics(ReceiptJobService receiptJobService,
+                                        ExpenseExportService expenseExportService,
+                                        StatementImportService statementImportService,
+                                        ReceiptImagePreprocessor imagePreprocessor,
+                                        PasswordEncoder passwordEncoder) {
+        return registry -> {
+            Gauge.builder("receipts.ingestion.jobs", receiptJobService, ReceiptJobService::queuedJobs)
+                    .tag("state", "queued")
+                    .description("Receipt jobs accepted and waiting for an extraction slot")
+                    .register(registry);
+            Gauge.builder("receipts.ingestion.jobs", receiptJobService, ReceiptJobService::runningJobs)
+                    .tag("state", "running")
+                    .register(registry);
+            Gauge.builder("receipts.export.running", expenseExportService, ExpenseExportService::runningExports)
+                    .register(registry);
+            Gauge.builder("receipts.import.running", statementImportService, StatementImportService::runningImports)
+                    .register(registry);
+            Gauge.builder("receipts.preprocess.pool", imagePreprocessor, ReceiptImagePreprocessor::queued)
+                    .tag("state", "queued")
+                    .description("Uploads waiting for a preprocessing thread")
+                    .register(registry);
+            Gauge.builder("receipts.preprocess.pool", imagePreprocessor, ReceiptImagePreprocessor::active)
+                    .tag("state", "active")
+                    .register(registry);
+            if (passwordEncoder instanceof BoundedPasswordEncoder bounded) {
+                Gauge.builder("auth.password.hashing", bounded, BoundedPasswordEncoder::queued)
+                        .tag("state", "queued")
+                        .register(registry);
+                Gauge.builder("auth.password.hashing", bounded, BoundedPasswordEncoder::active)
+                        .tag("state", "active")
+                        .register(registry);
+            }
+        };
+    }
+}
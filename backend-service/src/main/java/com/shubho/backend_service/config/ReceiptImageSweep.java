@@ -0,0 +1,49 @@
+package com.shubho.backend_service.config;
+
+import com.shubho.backend_service.service.ReceiptImageStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Uploads are stored before their receipt is saved, and deleting a receipt leaves its file
+// behind. Every receipts.images.sweep-interval the files no receipt points to are deleted
+// (see ReceiptImageStore.deleteUnreferenced).
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+public class ReceiptImageSweep {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptImageSweep.class);
+
+    @Autowired
+    private ReceiptImageStore receiptImageStore;
+
+    // Read when the sweep runs, not as a bean condition (see SpendingRollupBackfill)
+    @Value("${receipts.images.sweep-enabled:true}")
+    private boolean enabled;
+
+    @Value("${receipts.images.sweep-min-age:P1D}")
+    private Duration minAge;
+
+    @Scheduled(initialDelayString = "${receipts.images.sweep-initial-delay:PT10M}",
+            fixedDelayString = "${receipts.images.sweep-interval:PT6H}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int deleted = receiptImageStore.deleteUnreferenced(minAge);
+            if (deleted > 0) {
+                log.info("Deleted {} receipt files no receipt refers to", deleted);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Sweeping unreferenced receipt files failed", e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.shubho.backend_service.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Records how many SQL statements each request ran (http.server.requests.statements, tagged
+// like http.server.requests) and logs requests slower than the threshold with that count.
+// Latency itself is the http.server.requests timer Spring MVC already publishes.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger("slow-request");
+
+    // Histogram buckets; a request past a few dozen statements is usually an N+1
+    private static final double[] STATEMENT_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 250, 1000};
+
+    private final MeterRegistry meterRegistry;
+    private final long slowRequestNanos;
+
+    public RequestMetricsFilter(MeterRegistry meterRegistry,
+                                @Value("${observability.slow-request-threshold:1s}") Duration slowRequest) {
+        this.meterRegistry = meterRegistry;
+        this.slowRequestNanos = slowRequest.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // Counts are per thread; start from zero in case the last request on it left some
+        QueryCountHolder.clear();
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            QueryCount queries = QueryCountHolder.getGrandTotal();
+            QueryCountHolder.clear();
+            record(request, response, queries, elapsed);
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, QueryCount queries, long elapsed) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        long statements = queries.getTotal();
+        DistributionSummary.builder("http.server.requests.statements")
+                .description("SQL statements run while handling a request")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .serviceLevelObjectives(STATEMENT_BUCKETS)
+                .register(meterRegistry)
+                .record(statements);
+        if (elapsed > slowRequestNanos) {
+            log.warn("{} {} took {} ms: status {}, {} statements ({} failed)", request.getMethod(),
+                    request.getRequestURI(), elapsed / 1_000_000, response.getStatus(), statements,
+                    queries.getFailure());
+        }
+    }
+}
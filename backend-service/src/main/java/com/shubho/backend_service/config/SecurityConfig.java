@@ -1,35 +1,67 @@
 package com.shubho.backend_service.config;
 
+import com.shubho.backend_service.service.BoundedPasswordEncoder;
+import com.shubho.backend_service.service.PasswordHashingBusyException;
+import com.shubho.backend_service.service.TokenService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 
-import static org.springframework.security.config.Customizer.withDefaults; // <-- Import this
+import java.util.List;
+import java.util.Map;
 
+// auth.mode picks how requests are authenticated: "session" (the default) is form login with
+// a server-side session, "token" is stateless bearer tokens from TokenService.
 @Configuration
+@EnableConfigurationProperties(TokenProperties.class)
 public class SecurityConfig {
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // BCrypt at the configured cost, with hashes tagged "{bcrypt}" so the scheme can change later.
+    // Untagged hashes from before still verify and are re-hashed on their next login (as are
+    // hashes of a lower cost, see UserDetailsServiceImpl.updatePassword). All hashing runs on
+    // a bounded pool so a login storm can't take the CPU from the rest of the API.
+    @Bean(destroyMethod = "close")
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-cost:10}") int cost,
+                                           @Value("${auth.password.hashing-threads:0}") int threads,
+                                           @Value("${auth.password.max-queued:50}") int maxQueued) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(delegating, poolSize, maxQueued);
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
-
-    @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    @ConditionalOnProperty(name = "auth.mode", havingValue = "session", matchIfMissing = true)
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           @Value("${auth.mode:session}") String authMode) throws Exception {
+        requireAuthMode("session", authMode);
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         // Allow access to login page, registration API, and static files
                         .requestMatchers("/", "/index.html", "/app.js", "/style.css", "/api/auth/register").permitAll()
+                        // Probes and the Prometheus scrape (see management.server.port)
+                        .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
                         // Secure all other requests
                         .anyRequest().authenticated()
                 )
@@ -37,7 +69,7 @@ public class SecurityConfig {
                         .loginPage("/index.html")
                         .loginProcessingUrl("/login") // Spring Security handles this URL
                         .defaultSuccessUrl("/dashboard.html", true) // On success, go here
-                        .failureUrl("/index.html?error=true") // On failure, go here
+                        .failureHandler(loginFailureHandler()) // On failure, back to the login page
                         .permitAll()
                 )
                 .logout(logout -> logout
@@ -46,4 +78,64 @@ public class SecurityConfig {
                 );
         return http.build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    @ConditionalOnProperty(name = "auth.mode", havingValue = "token")
+    public SecurityFilterChain tokenFilterChain(HttpSecurity http, TokenService tokenService,
+                                                @Value("${auth.mode}") String authMode) throws Exception {
+        requireAuthMode("token", authMode);
+        http
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth
+                        // The pages themselves are public; the APIs they call need a token
+                        .requestMatchers("/", "/index.html", "/dashboard.html", "/app.js", "/style.css").permitAll()
+                        .requestMatchers("/login", "/logout", "/api/auth/register", "/api/auth/refresh").permitAll()
+                        .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
+                        .anyRequest().authenticated()
+                )
+                // Bearer tokens are checked against the signing keys only, never the database
+                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt
+                        .decoder(tokenService.accessTokenDecoder())
+                        .jwtAuthenticationConverter(token -> UsernamePasswordAuthenticationToken.authenticated(
+                                TokenService.principal(token), token, List.of()))
+                ));
+        return http.build();
+    }
+
+    // Checks the username and password posted to /login in token mode
+    @Bean
+    @ConditionalOnProperty(name = "auth.mode", havingValue = "token")
+    public AuthenticationManager authenticationManager(UserDetailsService userDetailsService,
+                                                       UserDetailsPasswordService userDetailsPasswordService,
+                                                       PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserDetailsPasswordService(userDetailsPasswordService);
+        return new ProviderManager(provider);
+    }
+
+    // The conditions above pick the chain, and an AOT-processed build (the aot and native
+    // profiles in pom.xml) settles them when it is compiled rather than at startup. Refuse to
+    // start instead of quietly running the other auth mode.
+    private static void requireAuthMode(String built, String configured) {
+        if (!built.equalsIgnoreCase(configured)) {
+            throw new IllegalStateException("auth.mode is " + configured + " but this build was AOT-processed with auth.mode="
+                    + built + "; rebuild with -Dspring-boot.aot.jvmArguments=-Dauth.mode=" + configured);
+        }
+    }
+
+    // A shed login gets a 503 to retry, not the "wrong password" page
+    private static AuthenticationFailureHandler loginFailureHandler() {
+        AuthenticationFailureHandler badCredentials = new SimpleUrlAuthenticationFailureHandler("/index.html?error=true");
+        return (request, response, exception) -> {
+            if (exception instanceof PasswordHashingBusyException) {
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.getWriter().write(exception.getMessage());
+            } else {
+                badCredentials.onAuthenticationFailure(request, response, exception);
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.shubho.backend_service.config;
+
+import com.shubho.backend_service.model.RollupRebuildReport;
+import com.shubho.backend_service.service.SpendingRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Receipts saved before spending_rollups existed have no rollup rows. On startup, if the
+// table is empty but there are items, every user's rollups are rebuilt from the raw rows
+// (one transaction per user). POST /api/analytics/rebuild does the same for a single user.
+@Component
+@Order(1)
+public class SpendingRollupBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SpendingRollupBackfill.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    // Read when the runner runs, not as a bean condition: an AOT build settles conditions
+    // when it is compiled, and this switch has to keep working per deployment
+    @Value("${receipts.rollups.backfill-on-startup:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        Integer rollups = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM spending_rollups", Integer.class);
+        Integer items = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expense_items", Integer.class);
+        if (rollups == null || rollups > 0 || items == null || items == 0) {
+            return;
+        }
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT DISTINCT user_id FROM receipts", Long.class);
+        for (Long userId : userIds) {
+            RollupRebuildReport report = spendingRollupService.rebuild(userId);
+            log.info("Backfilled {} spending rollups for user {}", report.bucketsAfter(), userId);
+        }
+    }
+}
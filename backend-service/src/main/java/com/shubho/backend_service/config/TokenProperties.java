@@ -0,0 +1,22 @@
+package com.shubho.backend_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Signed-token settings, used when auth.mode=token (auth.token.*). Keys are base64 HMAC
+// secrets of at least 32 bytes, by key id. Every listed key verifies, only activeKey signs.
+@ConfigurationProperties(prefix = "auth.token")
+public record TokenProperties(
+        @DefaultValue("expense-vision") String issuer,
+        @DefaultValue("15m") Duration accessTtl,
+        @DefaultValue("7d") Duration refreshTtl,
+        String activeKey,
+        Map<String, String> keys) {
+
+    public TokenProperties {
+        keys = keys == null ? Map.of() : Map.copyOf(keys);
+    }
+}
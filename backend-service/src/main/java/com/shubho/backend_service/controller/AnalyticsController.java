@@ -0,0 +1,49 @@
+package com.shubho.backend_service.controller;
+
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.model.RollupRebuildReport;
+import com.shubho.backend_service.service.SpendingRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    // Spending totals between two months (inclusive), grouped by month, category or store.
+    // Served from the rollups, so the cost doesn't grow with the number of receipts.
+    @GetMapping("/summary")
+    public ResponseEntity<?> getSummary(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(defaultValue = "month") String groupBy,
+            AuthenticatedUser user) {
+        YearMonth end = to != null ? to : YearMonth.now();
+        YearMonth start = from != null ? from : end.minusMonths(11);
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().body("from must not be after to");
+        }
+        try {
+            return ResponseEntity.ok(spendingRollupService.summarize(user.getId(), start, end, groupBy));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Recomputes the current user's rollups from their items and reports any drift
+    @PostMapping("/rebuild")
+    public ResponseEntity<RollupRebuildReport> rebuild(AuthenticatedUser user) {
+        return ResponseEntity.ok(spendingRollupService.rebuild(user.getId()));
+    }
+}
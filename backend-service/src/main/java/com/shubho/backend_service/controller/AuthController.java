@@ -1,7 +1,10 @@
 package com.shubho.backend_service.controller;
 
 import com.shubho.backend_service.repository.UserRepository;
+import com.shubho.backend_service.service.PasswordHashingBusyException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -26,7 +29,13 @@ public class AuthController {
             return ResponseEntity.badRequest().body("Username is already taken!");
         }
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        try {
+            user.setPassword(passwordEncoder.encode(user.getPassword()));
+        } catch (PasswordHashingBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
+        }
         userRepository.save(user);
 
         return ResponseEntity.ok("User registered successfully!");
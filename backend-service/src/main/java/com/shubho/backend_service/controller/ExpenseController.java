@@ -1,41 +1,124 @@
 package com.shubho.backend_service.controller;
 
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.model.ChangeFeed;
+import com.shubho.backend_service.model.ExpenseFilter;
 import com.shubho.backend_service.model.Receipt;
-import com.shubho.backend_service.model.User;
 import com.shubho.backend_service.repository.ReceiptRepository;
-import com.shubho.backend_service.repository.UserRepository;
+import com.shubho.backend_service.service.ChangeLogService;
+import com.shubho.backend_service.service.ExpenseExportService;
+import com.shubho.backend_service.service.ExpenseQueryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
 public class ExpenseController {
 
     @Autowired
-    private UserRepository userRepository;
+    private ReceiptRepository receiptRepository;
 
     @Autowired
-    private ReceiptRepository receiptRepository;
+    private ExpenseQueryService expenseQueryService;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private ExpenseExportService expenseExportService;
 
+    // Returns one keyset page of the user's receipts, newest first. Pass the returned
+    // nextCursor as ?cursor= for the next page. ?all=true restores the old behaviour of
+    // returning every receipt in a single array.
     @GetMapping("/expenses")
-    public ResponseEntity<List<Receipt>> getExpensesForUser(Principal principal) {
-        // Get the username of the currently logged-in user
-        String username = principal.getName();
+    public ResponseEntity<?> getExpensesForUser(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String store,
+            @RequestParam(required = false) Double minTotal,
+            @RequestParam(required = false) Double maxTotal,
+            @RequestParam(defaultValue = "false") boolean all,
+            AuthenticatedUser user) {
+        if (all) {
+            // Find all receipts associated with the logged-in user
+            List<Receipt> receipts = receiptRepository.findAllWithItemsByUserId(user.getId());
+            return ResponseEntity.ok(receipts);
+        }
+
+        try {
+            ExpenseFilter filter = new ExpenseFilter(from, to, store, minTotal, maxTotal);
+            return ResponseEntity.ok(expenseQueryService.findPage(user.getId(), filter, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-        // Find the user entity in the database
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    // Everything that changed since the client's version. The ETag is the user's current
+    // change version, so a poll with a matching If-None-Match costs one indexed lookup.
+    @GetMapping("/expenses/changes")
+    public ResponseEntity<ChangeFeed> getChangesSince(@RequestParam(defaultValue = "0") long since,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                      AuthenticatedUser user) {
+        long current = changeLogService.currentVersion(user.getId());
+        String etag = "\"" + current + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        if (current <= since) {
+            return ResponseEntity.ok().eTag(etag).body(new ChangeFeed(current, List.of(), List.of(), List.of(), List.of()));
+        }
+
+        ChangeFeed feed = changeLogService.changesSince(user.getId(), since);
+        return ResponseEntity.ok().eTag("\"" + feed.version() + "\"").body(feed);
+    }
 
-        // Find all receipts associated with that user
-        List<Receipt> receipts = receiptRepository.findByUser(user);
+    // The user's receipts and items between two dates (inclusive) as a CSV or NDJSON download,
+    // streamed from the database as it's written. gzip=true compresses it (a .gz file).
+    @GetMapping("/expenses/export")
+    public ResponseEntity<?> exportExpenses(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            AuthenticatedUser user) {
+        ExpenseExportService.Format exportFormat;
+        try {
+            exportFormat = ExpenseExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("format must be csv or ndjson");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().body("from must not be after to");
+        }
 
-        // Return the list of receipts as a JSON response
-        return ResponseEntity.ok(receipts);
+        StreamingResponseBody body;
+        try {
+            body = expenseExportService.open(user.getId(), exportFormat, from, to, gzip);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+        String filename = "expenses-" + LocalDate.now() + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
     }
 }
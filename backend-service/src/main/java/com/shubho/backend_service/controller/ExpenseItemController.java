@@ -1,13 +1,18 @@
 package com.shubho.backend_service.controller;
 
-import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.AuthenticatedUser;
 import com.shubho.backend_service.model.ExpenseItemDto;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.ItemBatchResult;
+import com.shubho.backend_service.model.ItemOperation;
 import com.shubho.backend_service.service.ExpenseItemService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/items")
@@ -17,34 +22,59 @@ public class ExpenseItemController {
     private ExpenseItemService expenseItemService;
 
     @PostMapping("/receipt/{receiptId}")
-    public ResponseEntity<?> createExpenseItem(@PathVariable Long receiptId, @RequestBody ExpenseItemDto itemDto, Principal principal) {
+    public ResponseEntity<?> createExpenseItem(@PathVariable Long receiptId, @RequestBody ExpenseItemDto itemDto, AuthenticatedUser user) {
         try {
-            ExpenseItem newItem = expenseItemService.createExpenseItem(receiptId, itemDto, principal.getName());
+            ExpenseItemView newItem = expenseItemService.createExpenseItem(receiptId, itemDto, user.getId());
             return ResponseEntity.ok(newItem);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Several creates, updates and deletes on one receipt, applied together or not at all
+    @PatchMapping("/receipt/{receiptId}")
+    public ResponseEntity<?> applyItemOperations(@PathVariable Long receiptId, @RequestBody List<ItemOperation> operations, AuthenticatedUser user) {
+        try {
+            ItemBatchResult result = expenseItemService.applyOperations(receiptId, operations, user.getId());
+            return ResponseEntity.ok(result);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
     @PutMapping("/{itemId}")
-    public ResponseEntity<?> updateExpenseItem(@PathVariable Long itemId, @RequestBody ExpenseItemDto itemDto, Principal principal) {
+    public ResponseEntity<?> updateExpenseItem(@PathVariable Long itemId, @RequestBody ExpenseItemDto itemDto, AuthenticatedUser user) {
         try {
-            ExpenseItem updatedItem = expenseItemService.updateExpenseItem(itemId, itemDto, principal.getName());
+            ExpenseItemView updatedItem = expenseItemService.updateExpenseItem(itemId, itemDto, user.getId());
             return ResponseEntity.ok(updatedItem);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
     @DeleteMapping("/{itemId}")
-    public ResponseEntity<?> deleteExpenseItem(@PathVariable Long itemId, Principal principal) {
+    public ResponseEntity<?> deleteExpenseItem(@PathVariable Long itemId, AuthenticatedUser user) {
 
         try {
             System.out.println(itemId);
-            expenseItemService.deleteExpenseItem(itemId, principal.getName());
+            expenseItemService.deleteExpenseItem(itemId, user.getId());
             return ResponseEntity.ok("Item deleted successfully");
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Another request changed the same receipt first; the client should reload and retry
+    private static ResponseEntity<String> conflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("This receipt was changed by another request. Reload it and try again.");
+    }
+}
@@ -0,0 +1,87 @@
+package com.shubho.backend_service.controller;
+
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.model.ImportJob;
+import com.shubho.backend_service.service.StatementImportService;
+import com.shubho.backend_service.service.StatementParser.ChargeSign;
+import com.shubho.backend_service.service.StatementParser.Format;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    @Autowired
+    private StatementImportService statementImportService;
+
+    // Imports the charges on a CSV or OFX/QFX statement as receipts. The format defaults from
+    // the file extension; `charges` says which sign a single CSV amount column uses for
+    // spending, and `dateFormat` (a DateTimeFormatter pattern) overrides date detection.
+    @PostMapping("/statement")
+    public ResponseEntity<?> importStatement(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(value = "format", required = false) Format format,
+                                             @RequestParam(value = "charges", defaultValue = "NEGATIVE") ChargeSign charges,
+                                             @RequestParam(value = "dateFormat", required = false) String dateFormat,
+                                             AuthenticatedUser user) {
+        DateTimeFormatter dates;
+        try {
+            dates = dateFormat == null || dateFormat.isBlank() ? null : DateTimeFormatter.ofPattern(dateFormat);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid dateFormat: " + e.getMessage());
+        }
+        String fileName = file.getOriginalFilename() == null ? "statement" : file.getOriginalFilename();
+        Format resolved = format != null ? format : formatOf(fileName);
+
+        // The upload may only be held in memory for this request, and the import reads it twice
+        Path copy = null;
+        try {
+            copy = Files.createTempFile("statement-", "." + resolved.name().toLowerCase(Locale.ROOT));
+            file.transferTo(copy);
+            ImportJob job = statementImportService.submit(copy, fileName, resolved, charges, dates, user.getId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/import/jobs/" + job.getId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(copy);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (IOException e) {
+            deleteQuietly(copy);
+            return ResponseEntity.status(500).body("Error reading statement: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ImportJob> getJob(@PathVariable String jobId, AuthenticatedUser user) {
+        return statementImportService.findJob(jobId, user.getId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static Format formatOf(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".ofx") || name.endsWith(".qfx") ? Format.OFX : Format.CSV;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Left for the OS to clean up with the rest of the temp directory
+        }
+    }
+}
@@ -1,11 +1,32 @@
 package com.shubho.backend_service.controller;
 
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.model.BatchUploadResult;
+import com.shubho.backend_service.model.ReceiptImage;
+import com.shubho.backend_service.model.ReceiptJob;
+import com.shubho.backend_service.service.ReceiptBatchService;
+import com.shubho.backend_service.service.ReceiptImageStore;
+import com.shubho.backend_service.service.ExtractorUnavailableException;
+import com.shubho.backend_service.service.ReceiptJobService;
 import com.shubho.backend_service.service.ReceiptService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import java.security.Principal; // Import this
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/receipts")
@@ -14,15 +35,125 @@ public class ReceiptController {
     @Autowired
     private ReceiptService receiptService;
 
-    // Modify the method to accept the Principal object
+    @Autowired
+    private ReceiptJobService receiptJobService;
+
+    @Autowired
+    private ReceiptBatchService receiptBatchService;
+
+    @Autowired
+    private ReceiptImageStore receiptImageStore;
+
+    @Value("${receipts.ingestion.async-by-default:false}")
+    private boolean asyncByDefault;
+
+    // The logged-in user arrives as an AuthenticatedUser (see AuthenticatedUserArgumentResolver)
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadReceipt(@RequestParam("image") MultipartFile file, Principal principal) {
+    public ResponseEntity<?> uploadReceipt(@RequestParam("image") MultipartFile file,
+                                           @RequestParam(value = "async", required = false) Boolean async,
+                                           AuthenticatedUser user) {
+        if (async != null ? async : asyncByDefault) {
+            return submitReceiptJob(file, user);
+        }
         try {
-            // Get the username from the principal and pass it to the service
-            receiptService.processAndSaveReceipt(file, principal.getName());
+            // Pass the user's id from the principal to the service
+            receiptService.processAndSaveReceipt(file, user.getId());
             return ResponseEntity.ok("Receipt processed successfully!");
+        } catch (ExtractorUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error processing receipt: " + e.getMessage());
+        }
+    }
+
+    // Accepts many receipt files (or ZIP archives of them) and returns a per-file manifest
+    @PostMapping("/batch")
+    public ResponseEntity<?> uploadReceiptBatch(@RequestParam("files") List<MultipartFile> files, AuthenticatedUser user) {
+        try {
+            List<BatchUploadResult> manifest = receiptBatchService.processBatch(files, user.getId());
+            return ResponseEntity.ok(manifest);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Error processing receipts: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ReceiptJob> getJob(@PathVariable String jobId, AuthenticatedUser user) {
+        return receiptJobService.findJob(jobId, user.getId())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Jobs that are still queued or running for the current user
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ReceiptJob>> getActiveJobs(AuthenticatedUser user) {
+        return ResponseEntity.ok(receiptJobService.findActiveJobs(user.getId()));
+    }
+
+    // The uploaded file. Strong ETag (its content hash) and Range requests, see FileResponses.
+    @GetMapping("/{receiptId}/image")
+    public void getImage(@PathVariable Long receiptId, AuthenticatedUser user,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ReceiptImage> image = receiptImageStore.findForReceipt(receiptId, user.getId());
+        Optional<Path> file = image.flatMap(receiptImageStore::original);
+        if (file.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String contentType = image.get().contentType();
+        // Types the store couldn't identify are never rendered inline
+        ContentDisposition.Builder disposition = MediaType.APPLICATION_OCTET_STREAM_VALUE.equals(contentType)
+                ? ContentDisposition.attachment()
+                : ContentDisposition.inline();
+        if (image.get().filename() != null) {
+            disposition.filename(image.get().filename(), StandardCharsets.UTF_8);
+        }
+        FileResponses.send(file.get(), contentType, "\"" + image.get().hash() + "\"", disposition.build(),
+                request, response);
+    }
+
+    // A small rendering for listings, created on first request; 404 for files it can't be
+    // made from, 503 while the preprocessing pool is saturated
+    @GetMapping("/{receiptId}/thumbnail")
+    public void getThumbnail(@PathVariable Long receiptId, AuthenticatedUser user,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ReceiptImage> image = receiptImageStore.findForReceipt(receiptId, user.getId());
+        if (image.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        // Known before rendering, so a revalidation never renders
+        String etag = "\"" + image.get().hash() + "-" + receiptImageStore.thumbnailSize() + "\"";
+        if (FileResponses.notModified(etag, request, response)) {
+            return;
+        }
+        Optional<Path> thumbnail;
+        try {
+            thumbnail = receiptImageStore.thumbnail(image.get());
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        if (thumbnail.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        FileResponses.send(thumbnail.get(), MediaType.IMAGE_JPEG_VALUE, etag, ContentDisposition.inline().build(),
+                request, response);
+    }
+
+    private ResponseEntity<?> submitReceiptJob(MultipartFile file, AuthenticatedUser user) {
+        try {
+            ReceiptJob job = receiptJobService.submit(receiptImageStore.store(file), user.getId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/receipts/jobs/" + job.getId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error processing receipt: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package com.shubho.backend_service.controller;
+
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.service.SearchIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    // Searches the user's store names, item names and receipt text. Each word matches
+    // exactly, as a prefix ("banan") or with a typo or two ("bananna").
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(defaultValue = "0") int page,
+                                    @RequestParam(defaultValue = "20") int size,
+                                    AuthenticatedUser user) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(searchIndexService.search(user.getId(), q, page, size));
+    }
+
+    // Rebuilds the current user's index from the database
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuild(AuthenticatedUser user) {
+        return ResponseEntity.ok(Map.of("documents", searchIndexService.rebuild(user.getId())));
+    }
+}
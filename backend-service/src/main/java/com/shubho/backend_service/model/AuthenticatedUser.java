@@ -0,0 +1,28 @@
+package com.shubho.backend_service.model;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+
+// The security principal for a logged-in user. It carries the users.id so request handling
+// never has to look the user up by name again.
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    private final Long id;
+
+    public AuthenticatedUser(Long id, String username, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    // For callers that only know who the user is, not their credentials
+    public AuthenticatedUser(Long id, String username) {
+        this(id, username, "", List.of());
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,31 @@
+package com.shubho.backend_service.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// One line of the manifest returned by /api/receipts/batch. problems lists the fields of a
+// saved receipt that the extractor returned unreadable.
+public record BatchUploadResult(String fileName, Status status, Long receiptId, Integer itemCount, String error,
+                                @JsonInclude(JsonInclude.Include.NON_EMPTY) List<ExtractionResult.Problem> problems) {
+
+    public enum Status {
+        SAVED,
+        FAILED,
+        // A file in a ZIP archive that isn't a receipt image or PDF
+        SKIPPED
+    }
+
+    public static BatchUploadResult saved(String fileName, Receipt receipt) {
+        return new BatchUploadResult(fileName, Status.SAVED, receipt.getId(), receipt.getItems().size(), null,
+                receipt.getExtractionProblems());
+    }
+
+    public static BatchUploadResult failed(String fileName, String error) {
+        return new BatchUploadResult(fileName, Status.FAILED, null, null, error, List.of());
+    }
+
+    public static BatchUploadResult skipped(String fileName, String reason) {
+        return new BatchUploadResult(fileName, Status.SKIPPED, null, null, reason, List.of());
+    }
+}
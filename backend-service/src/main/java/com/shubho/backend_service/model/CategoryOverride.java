@@ -0,0 +1,73 @@
+package com.shubho.backend_service.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// A user's correction of an item's category, keyed by the normalized store and item names.
+// The categorizer checks these before its built-in dictionary.
+@Entity
+@Table(name = "category_overrides",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "store_key", "item_key"}))
+public class CategoryOverride {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_override_seq")
+    @SequenceGenerator(name = "category_override_seq", sequenceName = "category_overrides_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "store_key", nullable = false)
+    private String storeKey;
+
+    @Column(name = "item_key", nullable = false)
+    private String itemKey;
+
+    @Column(nullable = false, length = 100)
+    private String category;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    protected CategoryOverride() {
+    }
+
+    public CategoryOverride(Long userId, String storeKey, String itemKey, String category) {
+        this.userId = userId;
+        this.storeKey = storeKey;
+        this.itemKey = itemKey;
+        setCategory(category);
+    }
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getStoreKey() {
+        return storeKey;
+    }
+
+    public String getItemKey() {
+        return itemKey;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+        this.updatedAt = Instant.now();
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
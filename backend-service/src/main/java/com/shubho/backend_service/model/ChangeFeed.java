@@ -0,0 +1,9 @@
+package com.shubho.backend_service.model;
+
+import java.util.List;
+
+// Response of /api/expenses/changes: everything that changed after the client's version.
+// Upserted receipts carry only their header fields; item changes are listed separately.
+public record ChangeFeed(long version, List<ReceiptSummary> receipts, List<ExpenseItemView> items,
+                         List<Long> deletedReceiptIds, List<Long> deletedItemIds) {
+}
@@ -0,0 +1,7 @@
+package com.shubho.backend_service.model;
+
+import java.time.LocalDate;
+
+// Optional /api/expenses filters; null fields are not applied
+public record ExpenseFilter(LocalDate from, LocalDate to, String store, Double minTotal, Double maxTotal) {
+}
@@ -7,7 +7,8 @@ import jakarta.persistence.*;
 @Table(name = "expense_items")
 public class ExpenseItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_item_seq")
+    @SequenceGenerator(name = "expense_item_seq", sequenceName = "expense_items_seq", allocationSize = 50)
     private Long id;
 
     private String itemName;
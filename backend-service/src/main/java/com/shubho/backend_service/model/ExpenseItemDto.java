@@ -1,5 +1,7 @@
 package com.shubho.backend_service.model;
 
 // This record is a simple data carrier for creating and updating items.
-public record ExpenseItemDto(String itemName, Integer quantity, Double price) {
-}
\ No newline at end of file
+// A blank category lets the categorizer pick one; a category set on update is remembered
+// as the user's correction for that item name.
+public record ExpenseItemDto(String itemName, Integer quantity, Double price, String category) {
+}
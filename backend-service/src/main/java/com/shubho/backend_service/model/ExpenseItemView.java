@@ -0,0 +1,6 @@
+package com.shubho.backend_service.model;
+
+// Read-only item row returned by the /api/expenses projections
+public record ExpenseItemView(Long id, Long receiptId, String itemName, Integer quantity, Double price,
+                              String category) {
+}
@@ -0,0 +1,9 @@
+package com.shubho.backend_service.model;
+
+import java.util.List;
+
+// One page of /api/expenses; pass nextCursor back as ?cursor= to get the following page.
+// version is the user's change version read before the page, the starting point for
+// /api/expenses/changes?since=.
+public record ExpensePage(List<ReceiptView> receipts, String nextCursor, long version) {
+}
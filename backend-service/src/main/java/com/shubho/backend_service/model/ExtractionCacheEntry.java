@@ -0,0 +1,43 @@
+package com.shubho.backend_service.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Extractor output for one uploaded file, keyed by the SHA-256 of the file bytes
+@Entity
+@Table(name = "extraction_cache")
+public class ExtractionCacheEntry {
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Lob
+    @Column(name = "response_json", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String responseJson;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    protected ExtractionCacheEntry() {
+    }
+
+    public ExtractionCacheEntry(String contentHash, String responseJson) {
+        this.contentHash = contentHash;
+        this.responseJson = responseJson;
+        this.createdAt = Instant.now();
+    }
+
+    // Getters
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getResponseJson() {
+        return responseJson;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,18 @@
+package com.shubho.backend_service.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// The extractor's JSON decoded by ExtractionDecoder. Money is in minor units (cents), so
+// nothing is rounded until it reaches the entity. receiptDate is null when the extractor
+// gave none or an unreadable one; every field that couldn't be read is listed in problems.
+public record ExtractionResult(String storeName, LocalDate receiptDate, long totalMinor, long discountMinor,
+                               String rawText, List<Item> items, List<Problem> problems) {
+
+    public record Item(String name, int quantity, long priceMinor) {
+    }
+
+    // field is a path such as "items[3].price"; value is the text as received (shortened)
+    public record Problem(String field, String value, String reason) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.shubho.backend_service.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// In-memory record of one statement import, polled through /api/import/jobs/{id}. The
+// counters are written by the import worker only and read by the status endpoint.
+public class ImportJob {
+
+    private static final int MAX_PROBLEMS = 20;
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long userId;
+    private final String fileName;
+    private final String format;
+    private final Instant submittedAt = Instant.now();
+    private final List<String> problems = new CopyOnWriteArrayList<>();
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile long transactionsRead;
+    private volatile long imported;
+    private volatile long duplicates;
+    private volatile long skipped;
+    private volatile String error;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public ImportJob(Long userId, String fileName, String format) {
+        this.userId = userId;
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    public void markRunning() {
+        this.startedAt = Instant.now();
+        this.status = JobStatus.RUNNING;
+    }
+
+    public void markDone() {
+        this.finishedAt = Instant.now();
+        this.status = JobStatus.DONE;
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = JobStatus.FAILED;
+    }
+
+    public void transactionRead() {
+        transactionsRead++;
+    }
+
+    public void imported(int count) {
+        imported += count;
+    }
+
+    public void duplicate() {
+        duplicates++;
+    }
+
+    // A row that isn't a charge or couldn't be read; only the first few reasons are kept
+    public void skipped(long line, String reason) {
+        skipped++;
+        if (problems.size() < MAX_PROBLEMS) {
+            problems.add("Line " + line + ": " + reason);
+        }
+    }
+
+    // Getters
+
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public long getTransactionsRead() {
+        return transactionsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
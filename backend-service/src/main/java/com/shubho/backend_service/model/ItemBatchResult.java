@@ -0,0 +1,7 @@
+package com.shubho.backend_service.model;
+
+import java.util.List;
+
+// Outcome of a bulk item edit: the created and updated rows, and the ids that were deleted
+public record ItemBatchResult(Long receiptId, List<ExpenseItemView> saved, List<Long> deleted) {
+}
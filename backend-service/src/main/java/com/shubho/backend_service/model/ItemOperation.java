@@ -0,0 +1,16 @@
+package com.shubho.backend_service.model;
+
+// One line of a PATCH /api/items/receipt/{receiptId} request. CREATE takes the item fields
+// and no id; UPDATE takes the id and the new fields; DELETE takes only the id.
+public record ItemOperation(Op op, Long id, String itemName, Integer quantity, Double price, String category) {
+
+    public enum Op {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    public ExpenseItemDto fields() {
+        return new ExpenseItemDto(itemName, quantity, price, category);
+    }
+}
@@ -0,0 +1,12 @@
+package com.shubho.backend_service.model;
+
+import java.time.LocalDate;
+
+// An item's current values together with its receipt's ownership, read in one query
+public record ItemOwnership(Long itemId, String itemName, Integer quantity, Double price, String category,
+                            Long receiptId, Long userId, long receiptVersion, String storeName, LocalDate receiptDate) {
+
+    public ReceiptOwnership receipt() {
+        return new ReceiptOwnership(receiptId, userId, receiptVersion, storeName, receiptDate);
+    }
+}
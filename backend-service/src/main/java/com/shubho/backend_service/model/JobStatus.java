@@ -0,0 +1,13 @@
+package com.shubho.backend_service.model;
+
+// Lifecycle of a background receipt ingestion job.
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
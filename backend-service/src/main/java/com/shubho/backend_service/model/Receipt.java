@@ -1,14 +1,19 @@
 package com.shubho.backend_service.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
+// The indexes for the per-user date-range scans (listings, exports and statement duplicate
+// checks) are in the migrations, see db/migration/V3__access_path_indexes.sql
 @Table(name = "receipts")
 public class Receipt {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receipt_seq")
+    @SequenceGenerator(name = "receipt_seq", sequenceName = "receipts_seq", allocationSize = 50)
     private Long id;
 
     private String storeName;
@@ -16,20 +21,49 @@ public class Receipt {
     private LocalDate receiptDate;
     private Double totalDiscount;
 
+    // Optimistic lock. Item edits bump it in the same statement that adjusts the totals
+    // (see ReceiptRepository.applyTotalDelta)
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @Lob // Good for long text
     @Column(name = "raw_text", columnDefinition = "TEXT")
     private String rawText;
 
+    // The uploaded file in the image store (see ReceiptImageStore); null for receipts that
+    // weren't uploaded, such as statement imports
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "image_content_type", length = 100)
+    private String imageContentType;
+
+    @Column(name = "image_filename")
+    private String imageFilename;
+
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @OneToMany(mappedBy = "receipt", cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+    // Lazy: list views read items through projections (see ExpenseQueryService), and code
+    // that needs the collection loads it in batches instead of one select per receipt
+    @OneToMany(mappedBy = "receipt", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    @BatchSize(size = 50)
     private List<ExpenseItem> items;
 
+    // Fields the extractor returned that couldn't be read, for the upload response only; the
+    // stored receipt holds the fallback values (see ExtractionDecoder)
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<ExtractionResult.Problem> extractionProblems = List.of();
 
     // Getters and Setters
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getStoreName() {
         return storeName;
     }
@@ -70,6 +104,30 @@ public class Receipt {
         this.rawText = rawText;
     }
 
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public String getImageContentType() {
+        return imageContentType;
+    }
+
+    public void setImageContentType(String imageContentType) {
+        this.imageContentType = imageContentType;
+    }
+
+    public String getImageFilename() {
+        return imageFilename;
+    }
+
+    public void setImageFilename(String imageFilename) {
+        this.imageFilename = imageFilename;
+    }
+
     public List<ExpenseItem> getItems() {
         return items;
     }
@@ -93,4 +151,12 @@ public class Receipt {
     public void setId(Long id) {
         this.id = id;
     }
-}
\ No newline at end of file
+
+    public List<ExtractionResult.Problem> getExtractionProblems() {
+        return extractionProblems;
+    }
+
+    public void setExtractionProblems(List<ExtractionResult.Problem> extractionProblems) {
+        this.extractionProblems = extractionProblems;
+    }
+}
@@ -0,0 +1,74 @@
+package com.shubho.backend_service.model;
+
+import jakarta.persistence.*;
+
+// One row of the per-user change log behind /api/expenses/changes. Every write to a
+// receipt or item appends a row stamped with the user's new change version. Read through
+// idx_receipt_changes_user_version_cover (see db/migration).
+@Entity
+@Table(name = "receipt_changes")
+public class ReceiptChange {
+
+    public enum EntityType {
+        RECEIPT,
+        ITEM
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receipt_change_seq")
+    @SequenceGenerator(name = "receipt_change_seq", sequenceName = "receipt_changes_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 16)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    protected ReceiptChange() {
+    }
+
+    public ReceiptChange(Long userId, long version, EntityType entityType, Long entityId, boolean deleted) {
+        this.userId = userId;
+        this.version = version;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.deleted = deleted;
+    }
+
+    // Getters
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
@@ -0,0 +1,6 @@
+package com.shubho.backend_service.model;
+
+// An uploaded receipt file in the image store (see ReceiptImageStore). The SHA-256 of its
+// bytes names the blob and doubles as the extraction cache key.
+public record ReceiptImage(String hash, String contentType, String filename) {
+}
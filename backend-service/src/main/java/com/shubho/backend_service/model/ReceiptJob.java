@@ -0,0 +1,92 @@
+package com.shubho.backend_service.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// In-memory record of one asynchronous receipt upload. Fields are volatile because the
+// job is written by the ingestion worker and read by the status endpoint concurrently.
+public class ReceiptJob {
+    private final String id = UUID.randomUUID().toString();
+    private final Long userId;
+    private final String fileName;
+    private final Instant submittedAt = Instant.now();
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile Long receiptId;
+    private volatile String error;
+    private volatile List<ExtractionResult.Problem> problems = List.of();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public ReceiptJob(Long userId, String fileName) {
+        this.userId = userId;
+        this.fileName = fileName;
+    }
+
+    public void markRunning() {
+        this.startedAt = Instant.now();
+        this.status = JobStatus.RUNNING;
+    }
+
+    public void markDone(Long receiptId, List<ExtractionResult.Problem> problems) {
+        this.receiptId = receiptId;
+        this.problems = problems;
+        this.finishedAt = Instant.now();
+        this.status = JobStatus.DONE;
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = JobStatus.FAILED;
+    }
+
+    // Getters
+
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public Long getReceiptId() {
+        return receiptId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // Fields of the saved receipt that the extractor returned unreadable
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<ExtractionResult.Problem> getProblems() {
+        return problems;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.shubho.backend_service.model;
+
+import java.time.LocalDate;
+
+// What an item mutation needs to know about a receipt, read in one query instead of walking
+// receipt -> user through lazy associations
+public record ReceiptOwnership(Long receiptId, Long userId, long version, String storeName, LocalDate receiptDate) {
+}
@@ -0,0 +1,9 @@
+package com.shubho.backend_service.model;
+
+import java.time.LocalDate;
+
+// Receipt columns read by projection queries, without the user or items. imageHash is the
+// uploaded file's content hash, null when there is none.
+public record ReceiptSummary(Long id, String storeName, LocalDate receiptDate, Double totalAmount,
+                             Double totalDiscount, String imageHash) {
+}
@@ -0,0 +1,16 @@
+package com.shubho.backend_service.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// A receipt with its items as served by /api/expenses. Listings show thumbnailUrl (null
+// for receipts without an uploaded file) and only load the original when it's opened.
+public record ReceiptView(Long id, String storeName, LocalDate receiptDate, Double totalAmount, Double totalDiscount,
+                          String thumbnailUrl, List<ExpenseItemView> items) {
+
+    public static ReceiptView of(ReceiptSummary summary, List<ExpenseItemView> items) {
+        String thumbnailUrl = summary.imageHash() != null ? "/api/receipts/" + summary.id() + "/thumbnail" : null;
+        return new ReceiptView(summary.id(), summary.storeName(), summary.receiptDate(), summary.totalAmount(),
+                summary.totalDiscount(), thumbnailUrl, items);
+    }
+}
@@ -0,0 +1,4 @@
+package com.shubho.backend_service.model;
+
+public record RefreshRequest(String refreshToken) {
+}
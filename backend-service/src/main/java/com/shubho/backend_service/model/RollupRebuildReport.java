@@ -0,0 +1,6 @@
+package com.shubho.backend_service.model;
+
+// Outcome of recomputing a user's rollups from raw rows. mismatchedBuckets counts buckets
+// whose incrementally maintained values disagreed with the recomputation.
+public record RollupRebuildReport(Long userId, int bucketsBefore, int bucketsAfter, int mismatchedBuckets) {
+}
@@ -0,0 +1,13 @@
+package com.shubho.backend_service.model;
+
+import java.time.LocalDate;
+
+// One /api/search result: a receipt (matched on its store or raw text) or a line item
+// (matched on its name). receiptId is the receipt itself for RECEIPT hits.
+public record SearchHit(Type type, long id, long receiptId, String title, String storeName, LocalDate date,
+                        Double amount, double score) {
+
+    public enum Type {
+        RECEIPT, ITEM
+    }
+}
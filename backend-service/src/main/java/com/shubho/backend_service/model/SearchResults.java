@@ -0,0 +1,7 @@
+package com.shubho.backend_service.model;
+
+import java.util.List;
+
+// One page of /api/search hits, best first; total counts every hit, not just this page
+public record SearchResults(String query, int total, int page, int size, List<SearchHit> hits) {
+}
@@ -0,0 +1,5 @@
+package com.shubho.backend_service.model;
+
+// One row of /api/analytics/summary: spending grouped by month, category or store
+public record SpendingBucket(String key, double total, long count, Double min, Double max) {
+}
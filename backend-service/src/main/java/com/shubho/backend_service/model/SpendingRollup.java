@@ -0,0 +1,61 @@
+package com.shubho.backend_service.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Pre-aggregated item spending for one (user, month, category, store) bucket. Maintained
+// incrementally by SpendingRollupService in the same transaction as the item writes.
+@Entity
+@Table(name = "spending_rollups")
+public class SpendingRollup {
+
+    @Embeddable
+    public record Key(
+            @Column(name = "user_id", nullable = false) Long userId,
+            @Column(name = "rollup_month", nullable = false) LocalDate month,
+            @Column(name = "category", nullable = false, length = 100) String category,
+            @Column(name = "store_name", nullable = false) String storeName) implements Serializable {
+    }
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "total_amount", nullable = false)
+    private double totalAmount;
+
+    @Column(name = "item_count", nullable = false)
+    private long itemCount;
+
+    @Column(name = "min_amount")
+    private Double minAmount;
+
+    @Column(name = "max_amount")
+    private Double maxAmount;
+
+    protected SpendingRollup() {
+    }
+
+    // Getters
+
+    public Key getId() {
+        return id;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public Double getMinAmount() {
+        return minAmount;
+    }
+
+    public Double getMaxAmount() {
+        return maxAmount;
+    }
+}
@@ -0,0 +1,8 @@
+package com.shubho.backend_service.model;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public record SpendingSummary(YearMonth from, YearMonth to, String groupBy, double total, long count,
+                              List<SpendingBucket> buckets) {
+}
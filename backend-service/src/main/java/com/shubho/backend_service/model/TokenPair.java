@@ -0,0 +1,6 @@
+package com.shubho.backend_service.model;
+
+// What /login and /api/auth/refresh return in token mode. expiresIn is the access
+// token's lifetime in seconds.
+public record TokenPair(String accessToken, String refreshToken, String tokenType, long expiresIn) {
+}
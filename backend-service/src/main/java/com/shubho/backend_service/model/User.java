@@ -1,11 +1,13 @@
 package com.shubho.backend_service.model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "users")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -14,8 +16,17 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    // Bumped on every change to this user's receipts or items (see ChangeLogService)
+    @Column(name = "change_version", nullable = false)
+    @JsonIgnore
+    private long changeVersion;
+
     // Getters and Setters
 
+    public Long getId() {
+        return id;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -31,4 +42,8 @@ public class User {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public long getChangeVersion() {
+        return changeVersion;
+    }
 }
\ No newline at end of file
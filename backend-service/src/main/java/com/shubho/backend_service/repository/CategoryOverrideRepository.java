@@ -0,0 +1,14 @@
+package com.shubho.backend_service.repository;
+
+import com.shubho.backend_service.model.CategoryOverride;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CategoryOverrideRepository extends JpaRepository<CategoryOverride, Long> {
+
+    List<CategoryOverride> findByUserIdOrderByUpdatedAtAsc(Long userId);
+
+    Optional<CategoryOverride> findByUserIdAndStoreKeyAndItemKey(Long userId, String storeKey, String itemKey);
+}
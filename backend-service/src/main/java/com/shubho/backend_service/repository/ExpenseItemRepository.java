@@ -1,7 +1,60 @@
 package com.shubho.backend_service.repository;
 
 import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.ItemOwnership;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface ExpenseItemRepository extends JpaRepository<ExpenseItem, Long> {
-}
\ No newline at end of file
+
+    // Items for a whole page of receipts in one query
+    @Query("""
+            select new com.shubho.backend_service.model.ExpenseItemView(
+                i.id, i.receipt.id, i.itemName, i.quantity, i.price, i.category)
+            from ExpenseItem i
+            where i.receipt.id in :receiptIds
+            order by i.id""")
+    List<ExpenseItemView> findViewsByReceiptIds(@Param("receiptIds") Collection<Long> receiptIds);
+
+    @Query("""
+            select new com.shubho.backend_service.model.ExpenseItemView(
+                i.id, i.receipt.id, i.itemName, i.quantity, i.price, i.category)
+            from ExpenseItem i
+            where i.receipt.user.id = :userId and i.id in :ids""")
+    List<ExpenseItemView> findViewsByIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("""
+            select new com.shubho.backend_service.model.ExpenseItemView(
+                i.id, i.receipt.id, i.itemName, i.quantity, i.price, i.category)
+            from ExpenseItem i
+            where i.receipt.id = :receiptId and i.id in :ids""")
+    List<ExpenseItemView> findViewsOnReceipt(@Param("receiptId") Long receiptId, @Param("ids") Collection<Long> ids);
+
+    @Query("""
+            select new com.shubho.backend_service.model.ItemOwnership(
+                i.id, i.itemName, i.quantity, i.price, i.category,
+                r.id, r.user.id, r.version, r.storeName, r.receiptDate)
+            from ExpenseItem i join i.receipt r
+            where i.id = :itemId""")
+    Optional<ItemOwnership> findOwnership(@Param("itemId") Long itemId);
+
+    @Modifying
+    @Query("""
+            update ExpenseItem i
+            set i.itemName = :itemName, i.quantity = :quantity, i.price = :price, i.category = :category
+            where i.id = :itemId""")
+    int updateFields(@Param("itemId") Long itemId, @Param("itemName") String itemName,
+                     @Param("quantity") Integer quantity, @Param("price") Double price,
+                     @Param("category") String category);
+
+    @Modifying
+    @Query("delete from ExpenseItem i where i.id = :itemId")
+    int deleteItem(@Param("itemId") Long itemId);
+}
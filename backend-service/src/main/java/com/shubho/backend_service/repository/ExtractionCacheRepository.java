@@ -0,0 +1,7 @@
+package com.shubho.backend_service.repository;
+
+import com.shubho.backend_service.model.ExtractionCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ExtractionCacheRepository extends JpaRepository<ExtractionCacheEntry, String> {
+}
@@ -0,0 +1,10 @@
+package com.shubho.backend_service.repository;
+
+import com.shubho.backend_service.model.ReceiptChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ReceiptChangeRepository extends JpaRepository<ReceiptChange, Long> {
+    List<ReceiptChange> findByUserIdAndVersionGreaterThanOrderByVersionAsc(Long userId, long version);
+}
@@ -1,11 +1,83 @@
 package com.shubho.backend_service.repository;
 
 import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptImage;
+import com.shubho.backend_service.model.ReceiptOwnership;
+import com.shubho.backend_service.model.ReceiptSummary;
 import com.shubho.backend_service.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
     List<Receipt> findByUser(User user);
-}
\ No newline at end of file
+
+    // Full entity graph in one query, for the legacy ?all=true listing
+    @Query("select distinct r from Receipt r left join fetch r.items where r.user.id = :userId")
+    List<Receipt> findAllWithItemsByUserId(@Param("userId") Long userId);
+
+    // Keyset page ordered newest first by (receiptDate, id). The cursor is the last row of
+    // the previous page; a null cursor starts from the top.
+    @Query("""
+            select new com.shubho.backend_service.model.ReceiptSummary(
+                r.id, r.storeName, r.receiptDate, r.totalAmount, r.totalDiscount, r.imageHash)
+            from Receipt r
+            where r.user.id = :userId
+              and (:afterDate is null or r.receiptDate < :afterDate
+                   or (r.receiptDate = :afterDate and r.id < :afterId))
+              and (:fromDate is null or r.receiptDate >= :fromDate)
+              and (:toDate is null or r.receiptDate <= :toDate)
+              and (:store is null or lower(r.storeName) like lower(concat('%', :store, '%')))
+              and (:minTotal is null or r.totalAmount >= :minTotal)
+              and (:maxTotal is null or r.totalAmount <= :maxTotal)
+            order by r.receiptDate desc, r.id desc""")
+    List<ReceiptSummary> findPage(@Param("userId") Long userId,
+                                  @Param("afterDate") LocalDate afterDate,
+                                  @Param("afterId") Long afterId,
+                                  @Param("fromDate") LocalDate fromDate,
+                                  @Param("toDate") LocalDate toDate,
+                                  @Param("store") String store,
+                                  @Param("minTotal") Double minTotal,
+                                  @Param("maxTotal") Double maxTotal,
+                                  Limit limit);
+
+    @Query("""
+            select new com.shubho.backend_service.model.ReceiptSummary(
+                r.id, r.storeName, r.receiptDate, r.totalAmount, r.totalDiscount, r.imageHash)
+            from Receipt r
+            where r.user.id = :userId and r.id in :ids""")
+    List<ReceiptSummary> findSummariesByIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("""
+            select new com.shubho.backend_service.model.ReceiptImage(r.imageHash, r.imageContentType, r.imageFilename)
+            from Receipt r
+            where r.id = :receiptId and r.user.id = :userId and r.imageHash is not null""")
+    Optional<ReceiptImage> findImage(@Param("receiptId") Long receiptId, @Param("userId") Long userId);
+
+    // The stored files among `hashes` that some receipt still points to
+    @Query("select distinct r.imageHash from Receipt r where r.imageHash in :hashes")
+    List<String> findReferencedImageHashes(@Param("hashes") Collection<String> hashes);
+
+    @Query("""
+            select new com.shubho.backend_service.model.ReceiptOwnership(
+                r.id, r.user.id, r.version, r.storeName, r.receiptDate)
+            from Receipt r
+            where r.id = :receiptId""")
+    Optional<ReceiptOwnership> findOwnership(@Param("receiptId") Long receiptId);
+
+    // Applies one item's change to the totals without reading the other items. Matches no row
+    // if the receipt's version moved on since the caller read it.
+    @Modifying
+    @Query("""
+            update Receipt r
+            set r.totalAmount = round(coalesce(r.totalAmount, 0) + :delta, 2), r.version = r.version + 1
+            where r.id = :receiptId and r.version = :version""")
+    int applyTotalDelta(@Param("receiptId") Long receiptId, @Param("delta") double delta, @Param("version") long version);
+}
@@ -0,0 +1,47 @@
+package com.shubho.backend_service.repository;
+
+import com.shubho.backend_service.model.SpendingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SpendingRollupRepository extends JpaRepository<SpendingRollup, SpendingRollup.Key> {
+
+    List<SpendingRollup> findByIdUserId(Long userId);
+
+    @Modifying
+    @Query("delete from SpendingRollup r where r.id.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    // Rows are [key, total, count, min, max]; the key is the month, category or store
+    @Query("""
+            select r.id.month, sum(r.totalAmount), sum(r.itemCount), min(r.minAmount), max(r.maxAmount)
+            from SpendingRollup r
+            where r.id.userId = :userId and r.id.month between :fromMonth and :toMonth
+            group by r.id.month
+            order by r.id.month""")
+    List<Object[]> summarizeByMonth(@Param("userId") Long userId, @Param("fromMonth") LocalDate fromMonth,
+                                    @Param("toMonth") LocalDate toMonth);
+
+    @Query("""
+            select r.id.category, sum(r.totalAmount), sum(r.itemCount), min(r.minAmount), max(r.maxAmount)
+            from SpendingRollup r
+            where r.id.userId = :userId and r.id.month between :fromMonth and :toMonth
+            group by r.id.category
+            order by sum(r.totalAmount) desc""")
+    List<Object[]> summarizeByCategory(@Param("userId") Long userId, @Param("fromMonth") LocalDate fromMonth,
+                                       @Param("toMonth") LocalDate toMonth);
+
+    @Query("""
+            select r.id.storeName, sum(r.totalAmount), sum(r.itemCount), min(r.minAmount), max(r.maxAmount)
+            from SpendingRollup r
+            where r.id.userId = :userId and r.id.month between :fromMonth and :toMonth
+            group by r.id.storeName
+            order by sum(r.totalAmount) desc""")
+    List<Object[]> summarizeByStore(@Param("userId") Long userId, @Param("fromMonth") LocalDate fromMonth,
+                                    @Param("toMonth") LocalDate toMonth);
+}
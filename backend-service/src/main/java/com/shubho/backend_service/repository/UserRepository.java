@@ -2,8 +2,24 @@ package com.shubho.backend_service.repository;
 
 import com.shubho.backend_service.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
-}
\ No newline at end of file
+
+    // Takes the user's row lock until commit, so change versions commit in order per user
+    @Modifying(flushAutomatically = true)
+    @Query("update User u set u.changeVersion = u.changeVersion + 1 where u.id = :userId")
+    int incrementChangeVersion(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("update User u set u.password = :password where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
+    @Query("select u.changeVersion from User u where u.id = :userId")
+    Long findChangeVersion(@Param("userId") Long userId);
+}
@@ -0,0 +1,170 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ReceiptChange.EntityType;
+import com.shubho.backend_service.service.ChangeLogService.Change;
+import com.shubho.backend_service.service.SpendingRollupService.ItemAmount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Categorizes items stored before the categorizer existed. Uncategorized rows are read in
+// keyset batches; each batch is categorized and written in its own transaction on the
+// ingestion executor, with at most `parallelism` batches in flight. A run covers the items up
+// to the highest id when it started and records that id once every batch succeeded, so the
+// next startup only scans items written since (new ones are categorized as they're saved).
+@Service
+public class CategoryBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryBackfillService.class);
+
+    private static final String NEXT_BATCH = """
+            SELECT i.id, i.item_name, i.quantity, i.price, r.user_id, r.store_name, r.receipt_date
+            FROM expense_items i JOIN receipts r ON r.id = i.receipt_id
+            WHERE i.category IS NULL AND i.id > ? AND i.id <= ?
+            ORDER BY i.id
+            LIMIT ?""";
+
+    private static final String PROGRESS_NAME = "item-categories";
+
+    private static final String LAST_ID = "SELECT last_id FROM backfill_progress WHERE name = ?";
+
+    private static final String SAVE_LAST_ID = """
+            INSERT INTO backfill_progress (name, last_id) VALUES (?, ?)
+            ON DUPLICATE KEY UPDATE last_id = GREATEST(last_id, VALUES(last_id))""";
+
+    private static final String SET_CATEGORY = "UPDATE expense_items SET category = ? WHERE id = ? AND category IS NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ItemCategorizer itemCategorizer;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    @Autowired
+    @Qualifier("receiptIngestionExecutor")
+    private ExecutorService executor;
+
+    @Value("${receipts.categorizer.backfill-batch-size:500}")
+    private int batchSize;
+
+    @Value("${receipts.categorizer.backfill-parallelism:4}")
+    private int parallelism;
+
+    private record Row(long id, String itemName, Integer quantity, Double price, long userId, String storeName,
+                       LocalDate receiptDate) {
+    }
+
+    public record Result(int scanned, int categorized) {
+    }
+
+    public Result backfill() {
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        AtomicInteger categorized = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        int scanned = 0;
+        long lastId = jdbcTemplate.queryForList(LAST_ID, Long.class, PROGRESS_NAME).stream().findFirst().orElse(0L);
+        Long upTo = jdbcTemplate.queryForObject("SELECT MAX(id) FROM expense_items", Long.class);
+        if (upTo == null || upTo <= lastId) {
+            return new Result(0, 0);
+        }
+        while (true) {
+            List<Row> rows = jdbcTemplate.query(NEXT_BATCH, (rs, rowNum) -> new Row(
+                    rs.getLong(1), rs.getString(2), rs.getObject(3, Integer.class),
+                    rs.getObject(4, Double.class), rs.getLong(5), rs.getString(6),
+                    rs.getObject(7, LocalDate.class)), lastId, upTo, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            scanned += rows.size();
+            lastId = rows.get(rows.size() - 1).id();
+
+            inFlight.acquireUninterruptibly();
+            batches.add(CompletableFuture
+                    .runAsync(() -> categorized.addAndGet(categorizeBatch(rows)), executor)
+                    .whenComplete((ignored, error) -> {
+                        inFlight.release();
+                        if (error != null) {
+                            failed.set(true);
+                            log.warn("Category backfill batch ending at item {} failed", rows.get(rows.size() - 1).id(), error);
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+        // After a failed batch the next startup scans this range again
+        if (!failed.get()) {
+            jdbcTemplate.update(SAVE_LAST_ID, PROGRESS_NAME, upTo);
+        }
+        return new Result(scanned, categorized.get());
+    }
+
+    private int categorizeBatch(List<Row> rows) {
+        // Grouped by user in id order, so concurrent batches take user row locks in the same order
+        Map<Long, List<Row>> byUser = new TreeMap<>();
+        Map<Long, String> categories = new TreeMap<>();
+        for (Row row : rows) {
+            String category = itemCategorizer.categorize(row.userId(), row.storeName(), row.itemName());
+            if (category != null) {
+                categories.put(row.id(), category);
+                byUser.computeIfAbsent(row.userId(), id -> new ArrayList<>()).add(row);
+            }
+        }
+        if (categories.isEmpty()) {
+            return 0;
+        }
+
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(categories.keySet());
+            int[] counts = jdbcTemplate.batchUpdate(SET_CATEGORY, ids.stream()
+                    .map(id -> new Object[]{categories.get(id), id})
+                    .toList());
+            // A row the user categorized in the meantime wasn't touched and keeps its rollup
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    categories.remove(ids.get(i));
+                }
+            }
+            byUser.values().forEach(userRows -> userRows.removeIf(row -> !categories.containsKey(row.id())));
+            byUser.values().removeIf(List::isEmpty);
+
+            byUser.forEach((userId, userRows) -> {
+                changeLogService.record(userId, userRows.stream()
+                        .map(row -> new Change(EntityType.ITEM, row.id(), false))
+                        .toList());
+                // Each item moves from the uncategorized rollup bucket to its new category's
+                spendingRollupService.remove(userRows.stream().map(row -> amount(row, null)).toList());
+                spendingRollupService.add(userRows.stream().map(row -> amount(row, categories.get(row.id()))).toList());
+            });
+            return categories.size();
+        });
+    }
+
+    private static ItemAmount amount(Row row, String category) {
+        return ItemAmount.of(row.userId(), row.receiptDate(), row.storeName(), category, row.quantity(), row.price());
+    }
+}
@@ -0,0 +1,124 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ChangeFeed;
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptChange;
+import com.shubho.backend_service.model.ReceiptChange.EntityType;
+import com.shubho.backend_service.model.ReceiptSummary;
+import com.shubho.backend_service.repository.ExpenseItemRepository;
+import com.shubho.backend_service.repository.ReceiptChangeRepository;
+import com.shubho.backend_service.repository.ReceiptRepository;
+import com.shubho.backend_service.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-user change versioning for delta sync. Each write transaction bumps users.change_version
+// (which row-locks the user until commit, so versions become visible in order) and appends
+// one receipt_changes row per touched receipt/item stamped with the new version.
+@Service
+@Transactional
+public class ChangeLogService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReceiptChangeRepository receiptChangeRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private ExpenseItemRepository expenseItemRepository;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    public record Change(EntityType type, Long id, boolean deleted) {
+    }
+
+    // Newly stored receipts: the receipt headers and every one of their items
+    public void receiptsSaved(Long userId, List<Receipt> receipts) {
+        List<Change> changes = new ArrayList<>();
+        for (Receipt receipt : receipts) {
+            changes.add(new Change(EntityType.RECEIPT, receipt.getId(), false));
+            if (receipt.getItems() != null) {
+                for (ExpenseItem item : receipt.getItems()) {
+                    changes.add(new Change(EntityType.ITEM, item.getId(), false));
+                }
+            }
+        }
+        record(userId, changes);
+    }
+
+    // An item was created, edited or deleted; its receipt's totals changed with it
+    public void itemChanged(Long userId, Long receiptId, Long itemId, boolean deleted) {
+        record(userId, List.of(
+                new Change(EntityType.RECEIPT, receiptId, false),
+                new Change(EntityType.ITEM, itemId, deleted)));
+    }
+
+    public long record(Long userId, List<Change> changes) {
+        userRepository.incrementChangeVersion(userId);
+        long version = userRepository.findChangeVersion(userId);
+        receiptChangeRepository.saveAll(changes.stream()
+                .map(change -> new ReceiptChange(userId, version, change.type(), change.id(), change.deleted()))
+                .toList());
+        // The user's search index catches up from this log once the write is visible
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    searchIndexService.changed(userId);
+                }
+            });
+        }
+        return version;
+    }
+
+    @Transactional(readOnly = true)
+    public long currentVersion(Long userId) {
+        Long version = userRepository.findChangeVersion(userId);
+        return version == null ? 0 : version;
+    }
+
+    // Collapses the log after `since` to the latest state per receipt/item and loads the
+    // rows that still exist through projections
+    @Transactional(readOnly = true)
+    public ChangeFeed changesSince(Long userId, long since) {
+        long version = currentVersion(userId);
+        Map<Long, Boolean> receipts = new LinkedHashMap<>();
+        Map<Long, Boolean> items = new LinkedHashMap<>();
+        for (ReceiptChange change : receiptChangeRepository.findByUserIdAndVersionGreaterThanOrderByVersionAsc(userId, since)) {
+            Map<Long, Boolean> target = change.getEntityType() == EntityType.RECEIPT ? receipts : items;
+            target.remove(change.getEntityId());
+            target.put(change.getEntityId(), change.isDeleted());
+            version = Math.max(version, change.getVersion());
+        }
+
+        List<Long> upsertedReceipts = keys(receipts, false);
+        List<Long> upsertedItems = keys(items, false);
+        List<ReceiptSummary> receiptRows = upsertedReceipts.isEmpty() ? List.of()
+                : receiptRepository.findSummariesByIds(userId, upsertedReceipts);
+        List<ExpenseItemView> itemRows = upsertedItems.isEmpty() ? List.of()
+                : expenseItemRepository.findViewsByIds(userId, upsertedItems);
+        return new ChangeFeed(version, receiptRows, itemRows, keys(receipts, true), keys(items, true));
+    }
+
+    private static List<Long> keys(Map<Long, Boolean> state, boolean deleted) {
+        return state.entrySet().stream()
+                .filter(entry -> entry.getValue() == deleted)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
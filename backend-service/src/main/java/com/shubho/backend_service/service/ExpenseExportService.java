@@ -0,0 +1,320 @@
+package com.shubho.backend_service.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+// Streams a user's receipts and items straight from a forward-only result set to the response.
+// Rows come back ordered by receipt, so at most one row (CSV) or one receipt's header (NDJSON)
+// is in memory at a time however long the history is. Each export holds a connection until
+// it finishes, so only a few may run at once.
+@Service
+public class ExpenseExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseExportService.class);
+
+    private static final String ROWS = """
+            SELECT r.id, r.receipt_date, r.store_name, r.total_amount, r.total_discount,
+                   i.id, i.item_name, i.category, i.quantity, i.price
+            FROM receipts r LEFT JOIN expense_items i ON i.receipt_id = r.id
+            WHERE r.user_id = ?""";
+
+    private static final String ORDER = " ORDER BY r.receipt_date, r.id, i.id";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    // Connector/J only streams rows one at a time with this exact fetch size; other drivers
+    // take it as a plain hint
+    private static final int MYSQL_STREAMING = Integer.MIN_VALUE;
+    private static final int FETCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Semaphore running;
+    private final int maxConcurrent;
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public ExpenseExportService(@Value("${receipts.export.max-concurrent:2}") int maxConcurrent) {
+        this.running = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int runningExports() {
+        return maxConcurrent - running.availablePermits();
+    }
+
+    // Reserves an export slot now, so the caller can still answer 503, and returns the body
+    // that writes the export once the response is being sent
+    public StreamingResponseBody open(Long userId, Format format, LocalDate from, LocalDate to, boolean gzip) {
+        if (!running.tryAcquire()) {
+            throw new RejectedExecutionException("Too many exports in progress, please try again shortly");
+        }
+        return out -> {
+            try {
+                export(userId, format, from, to, gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out);
+            } finally {
+                running.release();
+            }
+        };
+    }
+
+    // Writes the export to `out` and finishes it (finishing a GZIP stream) without closing it
+    public long export(Long userId, Format format, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        ExportWriter rows = format == Format.CSV ? new CsvWriter(writer) : new NdjsonWriter(writer);
+        try {
+            jdbcTemplate.query(statement(userId, from, to), (RowCallbackHandler) rs -> {
+                try {
+                    rows.row(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download
+            throw e.getCause();
+        }
+        rows.finish();
+        writer.flush();
+        if (out instanceof GZIPOutputStream gzip) {
+            gzip.finish();
+        }
+        log.info("Exported {} rows as {} for user {} in {} ms", rows.count(), format,
+                userId, (System.nanoTime() - started) / 1_000_000);
+        return rows.count();
+    }
+
+    private static PreparedStatementCreator statement(Long userId, LocalDate from, LocalDate to) {
+        return connection -> {
+            StringBuilder sql = new StringBuilder(ROWS);
+            List<Object> args = new ArrayList<>();
+            args.add(userId);
+            if (from != null) {
+                sql.append(" AND r.receipt_date >= ?");
+                args.add(Date.valueOf(from));
+            }
+            if (to != null) {
+                sql.append(" AND r.receipt_date <= ?");
+                args.add(Date.valueOf(to));
+            }
+            sql.append(ORDER);
+            PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(isMySql(connection) ? MYSQL_STREAMING : FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        };
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    private interface ExportWriter {
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+
+        long count();
+    }
+
+    // One line per item, receipt columns repeated; receipts without items get one line with
+    // empty item columns
+    private static final class CsvWriter implements ExportWriter {
+
+        private final Writer writer;
+        private long count;
+
+        CsvWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("receipt_id,receipt_date,store_name,receipt_total,receipt_discount,"
+                    + "item_id,item_name,category,quantity,price\r\n");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            writer.write(String.valueOf(rs.getObject(2, LocalDate.class)));
+            writer.write(',');
+            text(rs.getString(3));
+            writer.write(',');
+            number(rs.getObject(4));
+            writer.write(',');
+            number(rs.getObject(5));
+            writer.write(',');
+            number(rs.getObject(6));
+            writer.write(',');
+            text(rs.getString(7));
+            writer.write(',');
+            text(rs.getString(8));
+            writer.write(',');
+            number(rs.getObject(9));
+            writer.write(',');
+            number(rs.getObject(10));
+            writer.write("\r\n");
+            count++;
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        private void number(Object value) throws IOException {
+            if (value instanceof Double amount) {
+                writer.write(BigDecimal.valueOf(amount).toPlainString());
+            } else if (value != null) {
+                writer.write(value.toString());
+            }
+        }
+
+        // RFC 4180 quoting, and a leading quote on anything a spreadsheet would run as a formula
+        private void text(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    // One JSON object per receipt and line, with its items nested. Items are written as their
+    // rows arrive, so a receipt with many items isn't held in memory either.
+    private static final class NdjsonWriter implements ExportWriter {
+
+        private final JsonGenerator json;
+        private long currentReceipt = -1;
+        private long count;
+
+        NdjsonWriter(Writer writer) throws IOException {
+            this.json = JSON.createGenerator(writer);
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            long receiptId = rs.getLong(1);
+            if (receiptId != currentReceipt) {
+                endReceipt();
+                currentReceipt = receiptId;
+                json.writeStartObject();
+                json.writeNumberField("id", receiptId);
+                json.writeStringField("receiptDate", String.valueOf(rs.getObject(2, LocalDate.class)));
+                json.writeStringField("storeName", rs.getString(3));
+                writeNumber("totalAmount", rs.getObject(4, Double.class));
+                writeNumber("totalDiscount", rs.getObject(5, Double.class));
+                json.writeArrayFieldStart("items");
+            }
+            Long itemId = rs.getObject(6, Long.class);
+            if (itemId != null) {
+                json.writeStartObject();
+                json.writeNumberField("id", itemId);
+                json.writeStringField("itemName", rs.getString(7));
+                json.writeStringField("category", rs.getString(8));
+                Integer quantity = rs.getObject(9, Integer.class);
+                if (quantity == null) {
+                    json.writeNullField("quantity");
+                } else {
+                    json.writeNumberField("quantity", quantity);
+                }
+                writeNumber("price", rs.getObject(10, Double.class));
+                json.writeEndObject();
+            }
+            count++;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            endReceipt();
+            json.flush();
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        private void endReceipt() throws IOException {
+            if (currentReceipt >= 0) {
+                json.writeEndArray();
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+        }
+
+        private void writeNumber(String field, Double value) throws IOException {
+            if (value == null) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, value);
+            }
+        }
+    }
+}
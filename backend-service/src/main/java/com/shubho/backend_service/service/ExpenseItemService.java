@@ -2,95 +2,292 @@ package com.shubho.backend_service.service;
 
 import com.shubho.backend_service.model.ExpenseItem;
 import com.shubho.backend_service.model.ExpenseItemDto;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.ItemBatchResult;
+import com.shubho.backend_service.model.ItemOperation;
+import com.shubho.backend_service.model.ItemOwnership;
 import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptOwnership;
 import com.shubho.backend_service.repository.ExpenseItemRepository;
 import com.shubho.backend_service.repository.ReceiptRepository;
+import com.shubho.backend_service.model.ReceiptChange.EntityType;
+import com.shubho.backend_service.service.ChangeLogService.Change;
+import com.shubho.backend_service.service.SpendingRollupService.ItemAmount;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Item mutations never load the receipt's other items: ownership comes from one projection
+// query compared against the caller's user id, and the receipt's totals are adjusted by the
+// item's delta in a single UPDATE that also checks and bumps the receipt's @Version. A
+// concurrent edit to the same receipt makes that UPDATE match nothing, which surfaces as
+// ObjectOptimisticLockingFailureException (409).
 @Service
 @Transactional
 public class ExpenseItemService {
 
+    private static final String UPDATE_ITEM =
+            "UPDATE expense_items SET item_name = ?, quantity = ?, price = ?, category = ? WHERE id = ? AND receipt_id = ?";
+
+    private static final String DELETE_ITEM = "DELETE FROM expense_items WHERE id = ? AND receipt_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Autowired
     private ExpenseItemRepository expenseItemRepository;
 
     @Autowired
     private ReceiptRepository receiptRepository;
 
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    @Autowired
+    private ItemCategorizer itemCategorizer;
+
     // CREATE
-    public ExpenseItem createExpenseItem(Long receiptId, ExpenseItemDto itemDto, String username) {
-        Receipt receipt = receiptRepository.findById(receiptId)
+    public ExpenseItemView createExpenseItem(Long receiptId, ExpenseItemDto itemDto, Long userId) {
+        ReceiptOwnership receipt = receiptRepository.findOwnership(receiptId)
                 .orElseThrow(() -> new RuntimeException("Receipt not found"));
 
         // Security Check
-        if (!receipt.getUser().getUsername().equals(username)) {
+        if (!receipt.userId().equals(userId)) {
             throw new AccessDeniedException("You do not have permission to add items to this receipt");
         }
 
+        String category = hasText(itemDto.category()) ? itemDto.category().trim()
+                : itemCategorizer.categorize(receipt.userId(), receipt.storeName(), itemDto.itemName());
+        ItemAmount added = amount(receipt, category, itemDto.quantity(), itemDto.price());
+
+        // Update the parent receipt's totals first; this also locks the receipt row
+        applyTotalDelta(receipt, added.amount());
+
         ExpenseItem newItem = new ExpenseItem();
         newItem.setItemName(itemDto.itemName());
         newItem.setQuantity(itemDto.quantity());
         newItem.setPrice(itemDto.price());
-        newItem.setReceipt(receipt);
+        newItem.setCategory(category);
+        newItem.setReceipt(receiptRepository.getReferenceById(receiptId));
         ExpenseItem savedItem = expenseItemRepository.save(newItem);
 
-        // After saving the new item, update the parent receipt's totals
-        updateReceiptTotals(receipt);
+        changeLogService.itemChanged(receipt.userId(), receiptId, savedItem.getId(), false);
+        spendingRollupService.add(List.of(added));
 
-        return savedItem;
+        return new ExpenseItemView(savedItem.getId(), receiptId, savedItem.getItemName(), savedItem.getQuantity(),
+                savedItem.getPrice(), savedItem.getCategory());
     }
 
     // UPDATE
-    public ExpenseItem updateExpenseItem(Long itemId, ExpenseItemDto itemDto, String username) {
-        ExpenseItem item = expenseItemRepository.findById(itemId)
+    public ExpenseItemView updateExpenseItem(Long itemId, ExpenseItemDto itemDto, Long userId) {
+        ItemOwnership item = expenseItemRepository.findOwnership(itemId)
                 .orElseThrow(() -> new RuntimeException("Item not found"));
 
         // Security Check
-        if (!item.getReceipt().getUser().getUsername().equals(username)) {
+        if (!item.userId().equals(userId)) {
             throw new AccessDeniedException("You do not have permission to edit this item");
         }
 
-        item.setItemName(itemDto.itemName());
-        item.setQuantity(itemDto.quantity());
-        item.setPrice(itemDto.price());
-        updateReceiptTotals(item.getReceipt());
+        ReceiptOwnership receipt = item.receipt();
+        String category = resolveCategory(receipt, item.itemName(), item.category(), itemDto);
+
+        ItemAmount before = amount(receipt, item.category(), item.quantity(), item.price());
+        ItemAmount after = amount(receipt, category, itemDto.quantity(), itemDto.price());
+        applyTotalDelta(receipt, after.amount() - before.amount());
+        expenseItemRepository.updateFields(itemId, itemDto.itemName(), itemDto.quantity(), itemDto.price(), category);
 
-        return expenseItemRepository.save(item);
+        changeLogService.itemChanged(receipt.userId(), receipt.receiptId(), itemId, false);
+        // An edit moves the amount out of the old value and into the new one; the item row
+        // already holds the new price, so any min/max the removal recomputes sees it
+        spendingRollupService.remove(List.of(before));
+        spendingRollupService.add(List.of(after));
+        return new ExpenseItemView(itemId, receipt.receiptId(), itemDto.itemName(), itemDto.quantity(),
+                itemDto.price(), category);
     }
 
     // DELETE
-    @Transactional
-    public void deleteExpenseItem(Long itemId, String username) {
-        // Step 1: Find the item to be deleted.
-        ExpenseItem item = expenseItemRepository.findById(itemId)
+    public void deleteExpenseItem(Long itemId, Long userId) {
+        // Step 1: Find the item to be deleted, together with its receipt's owner.
+        ItemOwnership item = expenseItemRepository.findOwnership(itemId)
                 .orElseThrow(() -> new RuntimeException("Item not found"));
 
         // Step 2: Perform the security check to ensure ownership.
-        if (!item.getReceipt().getUser().getUsername().equals(username)) {
+        if (!item.userId().equals(userId)) {
             throw new AccessDeniedException("You do not have permission to delete this item");
         }
 
-        // Step 3: Get the parent receipt.
-        Receipt receipt = item.getReceipt();
+        // Step 3: Take the item's amount off the receipt's totals, then delete the row.
+        ReceiptOwnership receipt = item.receipt();
+        ItemAmount removed = amount(receipt, item.category(), item.quantity(), item.price());
+        applyTotalDelta(receipt, -removed.amount());
+        expenseItemRepository.deleteItem(itemId);
+
+        changeLogService.itemChanged(receipt.userId(), receipt.receiptId(), itemId, true);
+        spendingRollupService.remove(List.of(removed));
+    }
+
+    // BULK
+    // Applies a whole correction of one receipt in one transaction: one ownership check, one
+    // read of the affected items, one totals update, and JDBC batches for the item rows
+    public ItemBatchResult applyOperations(Long receiptId, List<ItemOperation> operations, Long userId) {
+        ReceiptOwnership receipt = receiptRepository.findOwnership(receiptId)
+                .orElseThrow(() -> new RuntimeException("Receipt not found"));
+
+        // Security Check
+        if (!receipt.userId().equals(userId)) {
+            throw new AccessDeniedException("You do not have permission to edit this receipt");
+        }
+
+        Map<Long, ExpenseItemView> current = loadTargets(receiptId, operations);
 
-        // Step 4: Remove the child item from the parent's list.
-        // Because of 'orphanRemoval = true', this will cause JPA to delete the item from the database.
-        receipt.getItems().remove(item);
+        double delta = 0;
+        List<ItemAmount> removed = new ArrayList<>();
+        List<ItemAmount> added = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<ExpenseItem> created = new ArrayList<>();
+        List<ExpenseItemView> saved = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (ItemOperation operation : operations) {
+            ExpenseItemView before = current.get(operation.id());
+            switch (operation.op()) {
+                case CREATE -> {
+                    String category = hasText(operation.category()) ? operation.category().trim()
+                            : itemCategorizer.categorize(receipt.userId(), receipt.storeName(), operation.itemName());
+                    ItemAmount amount = amount(receipt, category, operation.quantity(), operation.price());
+                    added.add(amount);
+                    delta += amount.amount();
 
-        updateReceiptTotals(receipt);
+                    ExpenseItem newItem = new ExpenseItem();
+                    newItem.setItemName(operation.itemName());
+                    newItem.setQuantity(operation.quantity());
+                    newItem.setPrice(operation.price());
+                    newItem.setCategory(category);
+                    newItem.setReceipt(receiptRepository.getReferenceById(receiptId));
+                    created.add(newItem);
+                }
+                case UPDATE -> {
+                    String category = resolveCategory(receipt, before.itemName(), before.category(), operation.fields());
+                    ItemAmount oldAmount = amount(receipt, before.category(), before.quantity(), before.price());
+                    ItemAmount newAmount = amount(receipt, category, operation.quantity(), operation.price());
+                    removed.add(oldAmount);
+                    added.add(newAmount);
+                    delta += newAmount.amount() - oldAmount.amount();
+                    updates.add(new Object[]{operation.itemName(), operation.quantity(), operation.price(), category,
+                            operation.id(), receiptId});
+                    saved.add(new ExpenseItemView(operation.id(), receiptId, operation.itemName(),
+                            operation.quantity(), operation.price(), category));
+                }
+                case DELETE -> {
+                    ItemAmount oldAmount = amount(receipt, before.category(), before.quantity(), before.price());
+                    removed.add(oldAmount);
+                    delta -= oldAmount.amount();
+                    deletes.add(new Object[]{operation.id(), receiptId});
+                    deleted.add(operation.id());
+                }
+            }
+        }
+
+        applyTotalDelta(receipt, delta);
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_ITEM, updates);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ITEM, deletes);
+        }
+        // Sequence ids, so Hibernate batches these inserts too
+        for (ExpenseItem item : expenseItemRepository.saveAllAndFlush(created)) {
+            saved.add(new ExpenseItemView(item.getId(), receiptId, item.getItemName(), item.getQuantity(),
+                    item.getPrice(), item.getCategory()));
+        }
+
+        List<Change> changes = new ArrayList<>();
+        changes.add(new Change(EntityType.RECEIPT, receiptId, false));
+        saved.forEach(item -> changes.add(new Change(EntityType.ITEM, item.id(), false)));
+        deleted.forEach(id -> changes.add(new Change(EntityType.ITEM, id, true)));
+        changeLogService.record(receipt.userId(), changes);
+        spendingRollupService.remove(removed);
+        spendingRollupService.add(added);
+
+        return new ItemBatchResult(receiptId, saved, deleted);
     }
 
-    private void updateReceiptTotals(Receipt receipt) {
-        double subtotal = receipt.getItems().stream()
-                .mapToDouble(item -> item.getQuantity()*item.getPrice())
-                .sum();
+    // Validates the operations and reads the current values of every item they update or
+    // delete, all of which must be on this receipt
+    private Map<Long, ExpenseItemView> loadTargets(Long receiptId, List<ItemOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No operations given");
+        }
+        Set<Long> ids = new HashSet<>();
+        for (ItemOperation operation : operations) {
+            if (operation.op() == null) {
+                throw new IllegalArgumentException("Every operation needs an op (CREATE, UPDATE or DELETE)");
+            }
+            if (operation.op() == ItemOperation.Op.CREATE) {
+                if (operation.id() != null) {
+                    throw new IllegalArgumentException("CREATE operations must not have an id");
+                }
+            } else if (operation.id() == null) {
+                throw new IllegalArgumentException(operation.op() + " operations need an item id");
+            } else if (!ids.add(operation.id())) {
+                throw new IllegalArgumentException("Item " + operation.id() + " appears in more than one operation");
+            }
+        }
 
-        double discount = receipt.getTotalDiscount() != null ? receipt.getTotalDiscount() : 0;
+        Map<Long, ExpenseItemView> current = new HashMap<>();
+        if (!ids.isEmpty()) {
+            expenseItemRepository.findViewsOnReceipt(receiptId, ids).forEach(item -> current.put(item.id(), item));
+        }
+        for (Long id : ids) {
+            if (!current.containsKey(id)) {
+                throw new IllegalArgumentException("Item " + id + " is not on this receipt");
+            }
+        }
+        return current;
+    }
+
+    // Keeps the current category unless the user picked one (which is remembered for this item
+    // name) or renamed the item (which is categorized afresh)
+    private String resolveCategory(ReceiptOwnership receipt, String currentName, String currentCategory,
+                                   ExpenseItemDto itemDto) {
+        if (hasText(itemDto.category())) {
+            if (!itemDto.category().trim().equals(currentCategory)) {
+                return itemCategorizer.recordCorrection(receipt.userId(), receipt.storeName(),
+                        itemDto.itemName(), itemDto.category());
+            }
+            return currentCategory;
+        }
+        if (!Objects.equals(itemDto.itemName(), currentName)) {
+            return itemCategorizer.categorize(receipt.userId(), receipt.storeName(), itemDto.itemName());
+        }
+        return currentCategory;
+    }
+
+    private void applyTotalDelta(ReceiptOwnership receipt, double delta) {
+        if (receiptRepository.applyTotalDelta(receipt.receiptId(), delta, receipt.version()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Receipt.class, receipt.receiptId());
+        }
+    }
+
+    private static ItemAmount amount(ReceiptOwnership receipt, String category, Integer quantity, Double price) {
+        return ItemAmount.of(receipt.userId(), receipt.receiptDate(), receipt.storeName(), category, quantity, price);
+    }
 
-        receipt.setTotalAmount(subtotal-discount);
-        receiptRepository.save(receipt);
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ExpenseFilter;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.ExpensePage;
+import com.shubho.backend_service.model.ReceiptSummary;
+import com.shubho.backend_service.model.ReceiptView;
+import com.shubho.backend_service.repository.ExpenseItemRepository;
+import com.shubho.backend_service.repository.ReceiptRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Read side of /api/expenses: keyset pages built from two projection queries
+// (one for the receipts, one for all of their items) instead of managed entities.
+@Service
+@Transactional(readOnly = true)
+public class ExpenseQueryService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private ExpenseItemRepository expenseItemRepository;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    public ExpensePage findPage(Long userId, ExpenseFilter filter, String cursor, int pageSize) {
+        int size = Math.clamp(pageSize, 1, MAX_PAGE_SIZE);
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        long version = changeLogService.currentVersion(userId);
+
+        // Fetch one extra row to learn whether another page exists
+        List<ReceiptSummary> rows = receiptRepository.findPage(userId,
+                after == null ? null : after.receiptDate(),
+                after == null ? null : after.id(),
+                filter.from(), filter.to(), blankToNull(filter.store()), filter.minTotal(), filter.maxTotal(),
+                Limit.of(size + 1));
+
+        boolean hasMore = rows.size() > size;
+        List<ReceiptSummary> page = hasMore ? rows.subList(0, size) : rows;
+
+        Map<Long, List<ExpenseItemView>> itemsByReceipt = page.isEmpty() ? Map.of()
+                : expenseItemRepository.findViewsByReceiptIds(page.stream().map(ReceiptSummary::id).toList())
+                        .stream()
+                        .collect(Collectors.groupingBy(ExpenseItemView::receiptId));
+
+        List<ReceiptView> receipts = page.stream()
+                .map(summary -> ReceiptView.of(summary, itemsByReceipt.getOrDefault(summary.id(), List.of())))
+                .toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            ReceiptSummary last = page.get(page.size() - 1);
+            nextCursor = new Cursor(last.receiptDate(), last.id()).encode();
+        }
+        return new ExpensePage(receipts, nextCursor, version);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // Opaque cursor: base64url("<receiptDate>:<id>") of the last receipt on a page
+    record Cursor(LocalDate receiptDate, Long id) {
+
+        String encode() {
+            String raw = receiptDate + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                return new Cursor(LocalDate.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.shubho.backend_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shubho.backend_service.model.ExtractionCacheEntry;
+import com.shubho.backend_service.repository.ExtractionCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+// Two-tier cache of extractor responses: a bounded Caffeine (W-TinyLFU) map in front of
+// the extraction_cache table, so repeat uploads of the same file skip the AI call.
+@Service
+public class ExtractionCacheService {
+
+    @Autowired
+    private ExtractionCacheRepository extractionCacheRepository;
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Cache<String, String> memoryCache;
+
+    // extraction.cache.lookups by the tier that answered, for sizing the in-memory tier
+    private Counter memoryHits;
+    private Counter databaseHits;
+    private Counter misses;
+
+    public ExtractionCacheService(@Value("${receipts.extraction-cache.enabled:true}") boolean enabled,
+                                  @Value("${receipts.extraction-cache.max-entries:10000}") long maxEntries,
+                                  @Value("${receipts.extraction-cache.ttl:P30D}") Duration ttl) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.memoryCache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.memoryHits = lookupCounter(meterRegistry, "memory_hit");
+        this.databaseHits = lookupCounter(meterRegistry, "database_hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        // Size and evictions of the in-memory tier, as the cache.* meters with cache=extraction
+        CaffeineCacheMetrics.monitor(meterRegistry, memoryCache, "extraction");
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("extraction.cache.lookups")
+                .description("Extraction cache lookups by the tier that answered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public Optional<String> find(String contentHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        String cached = memoryCache.getIfPresent(contentHash);
+        if (cached != null) {
+            memoryHits.increment();
+            return Optional.of(cached);
+        }
+
+        Optional<ExtractionCacheEntry> stored = extractionCacheRepository.findById(contentHash);
+        if (stored.isPresent()) {
+            ExtractionCacheEntry entry = stored.get();
+            if (entry.getCreatedAt().isAfter(Instant.now().minus(ttl))) {
+                databaseHits.increment();
+                memoryCache.put(contentHash, entry.getResponseJson());
+                return Optional.of(entry.getResponseJson());
+            }
+            // Expired rows are dropped lazily; the fresh response will replace them
+            extractionCacheRepository.delete(entry);
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void store(String contentHash, String responseJson) {
+        if (!enabled) {
+            return;
+        }
+        memoryCache.put(contentHash, responseJson);
+        try {
+            extractionCacheRepository.save(new ExtractionCacheEntry(contentHash, responseJson));
+        } catch (DataIntegrityViolationException e) {
+            // Another upload of the same file stored it first; either copy is fine
+        }
+    }
+}
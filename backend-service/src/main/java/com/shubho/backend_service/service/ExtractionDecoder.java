@@ -0,0 +1,349 @@
+package com.shubho.backend_service.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.shubho.backend_service.model.ExtractionResult;
+import com.shubho.backend_service.model.ExtractionResult.Item;
+import com.shubho.backend_service.model.ExtractionResult.Problem;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Decodes the extractor's JSON in one pass over the token stream, without building a tree,
+// and reads prices with a scanner instead of a regex. The JsonFactory is thread-safe and
+// shared. Unknown fields are skipped, and a field that can't be read is reported as a
+// Problem rather than quietly becoming 0; the problems go back to the uploader with the receipt.
+public final class ExtractionDecoder {
+
+    // Returned by minorUnits for text that holds no amount or doesn't read cleanly
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    // Item index for fields outside the items array
+    private static final int TOP_LEVEL = -1;
+
+    private static final int MAX_PROBLEM_VALUE_LENGTH = 100;
+    // Larger amounts are certainly misreads, and this keeps the arithmetic far from overflow
+    private static final int MAX_INTEGER_DIGITS = 13;
+
+    private ExtractionDecoder() {
+    }
+
+    public static ExtractionResult decode(String json) throws IOException {
+        String storeName = null;
+        LocalDate receiptDate = null;
+        String totalText = null;
+        long discount = 0;
+        String rawText = null;
+        List<Item> items = new ArrayList<>();
+        List<Problem> problems = new ArrayList<>(0);
+
+        try (JsonParser parser = JSON.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Extractor response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "store_name" -> storeName = text(parser, TOP_LEVEL, field, problems);
+                    case "receipt_date" -> receiptDate = date(text(parser, TOP_LEVEL, field, problems), field, problems);
+                    case "total_price" -> totalText = text(parser, TOP_LEVEL, field, problems);
+                    case "total_discount" -> {
+                        // Printed either way round ("-$2.00" or "2.00"); it is always taken off
+                        long value = amount(text(parser, TOP_LEVEL, field, problems), field, problems);
+                        discount = value == INVALID ? 0 : Math.abs(value);
+                    }
+                    case "raw_text" -> rawText = text(parser, TOP_LEVEL, field, problems);
+                    case "items" -> readItems(parser, items, problems);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        long total = totalText == null ? INVALID : minorUnits(totalText);
+        if (total == INVALID) {
+            total = 0;
+            for (Item item : items) {
+                total += item.priceMinor() * item.quantity();
+            }
+            total -= discount;
+            problems.add(new Problem("total_price", shorten(totalText),
+                    (totalText == null ? "Missing" : "Unreadable") + " total; used the sum of the items"));
+        }
+        return new ExtractionResult(storeName, receiptDate, total, discount, rawText, items, problems);
+    }
+
+    // Reads an amount such as "$1,234.50", "1.234,56 €", "12,5", "-3.00" or "(3.00)" as minor
+    // units, rounding half up beyond two decimals. When both "." and "," occur the last one is
+    // the decimal separator; a lone "," is one when one or two digits follow it, and a lone
+    // "." always is. Other separators (including spaces and apostrophes between digits) must
+    // group the integer part in threes. Text after the number (a tax flag, a currency code) is
+    // ignored as long as it holds no further digits. Returns INVALID when there is no amount
+    // or the number doesn't read cleanly, so the caller reports it instead of storing a guess.
+    public static long minorUnits(CharSequence text) {
+        int length = text.length();
+        int start = 0;
+        boolean negative = false;
+        // Skip currency symbols and codes up to the first digit, noting a sign on the way
+        while (start < length && !isDigit(text.charAt(start))) {
+            char c = text.charAt(start);
+            if (c == '-' || c == '(' || c == '\u2212') {
+                negative = true;
+            }
+            start++;
+        }
+        if (start == length) {
+            return INVALID;
+        }
+
+        // The number: digits and separators, ending on a digit
+        int end = start;
+        int lastDigit = start;
+        for (; end < length; end++) {
+            char c = text.charAt(end);
+            if (isDigit(c)) {
+                lastDigit = end;
+            } else if (!(c == '.' || c == ',' || (isGroupSpace(c) && end + 1 < length && isDigit(text.charAt(end + 1))))) {
+                break;
+            }
+        }
+        end = lastDigit + 1;
+        for (int i = end; i < length; i++) {
+            if (isDigit(text.charAt(i))) {
+                return INVALID;
+            }
+        }
+
+        int decimal = decimalSeparator(text, start, end);
+        if (decimal == INVALID_POSITION) {
+            return INVALID;
+        }
+        char decimalChar = decimal < 0 ? 0 : text.charAt(decimal);
+        int integerEnd = decimal < 0 ? end : decimal;
+
+        long units = 0;
+        int integerDigits = 0;
+        // Digits since the last grouping separator, or -1 before the first one
+        int groupDigits = -1;
+        char grouping = 0;
+        for (int i = start; i < integerEnd; i++) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                if (++integerDigits > MAX_INTEGER_DIGITS) {
+                    return INVALID;
+                }
+                units = units * 10 + (c - '0');
+                if (groupDigits >= 0) {
+                    groupDigits++;
+                }
+            } else {
+                boolean leadingGroup = groupDigits < 0;
+                if (c == decimalChar || (grouping != 0 && c != grouping)
+                        || (leadingGroup ? integerDigits > 3 : groupDigits != 3)) {
+                    return INVALID;
+                }
+                grouping = c;
+                groupDigits = 0;
+            }
+        }
+        if (groupDigits >= 0 && groupDigits != 3) {
+            return INVALID;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        for (int i = decimal < 0 ? end : decimal + 1; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return INVALID;
+            }
+            if (fractionDigits < 2) {
+                fraction = fraction * 10 + (c - '0');
+            } else if (fractionDigits == 2) {
+                roundUp = c >= '5';
+            }
+            fractionDigits++;
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+        long minor = units * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -minor : minor;
+    }
+
+    private static final int INVALID_POSITION = -2;
+
+    // Position of the decimal separator in text[start, end), -1 when the number has none, or
+    // INVALID_POSITION when a lone "," can't be told apart ("1,2345")
+    private static int decimalSeparator(CharSequence text, int start, int end) {
+        int lastDot = -1;
+        int lastComma = -1;
+        int dots = 0;
+        int commas = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                dots++;
+                lastDot = i;
+            } else if (c == ',') {
+                commas++;
+                lastComma = i;
+            }
+        }
+        if (dots > 0 && commas > 0) {
+            return Math.max(lastDot, lastComma);
+        }
+        if (dots == 1) {
+            return lastDot;
+        }
+        if (commas == 1) {
+            int digitsAfter = 0;
+            for (int i = lastComma + 1; i < end && isDigit(text.charAt(i)); i++) {
+                digitsAfter++;
+            }
+            if (digitsAfter <= 2) {
+                return lastComma;
+            }
+            return digitsAfter == 3 ? -1 : INVALID_POSITION;
+        }
+        // Repeated separators of one kind can only be grouping
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Thousands separators that never mark decimals: spaces (plain, no-break, narrow) and "'"
+    private static boolean isGroupSpace(char c) {
+        return c == ' ' || c == '\u00a0' || c == '\u202f' || c == '\'';
+    }
+
+    private static void readItems(JsonParser parser, List<Item> items, List<Problem> problems) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            problems.add(new Problem("items", shorten(parser.getText()), "Expected an array"));
+            parser.skipChildren();
+            return;
+        }
+        int index = -1;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            index++;
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                problems.add(new Problem(path(index, null), shorten(parser.getText()), "Expected an object"));
+                parser.skipChildren();
+                continue;
+            }
+            String name = "";
+            int quantity = 1;
+            long price = INVALID;
+            String priceText = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name" -> {
+                        String value = text(parser, index, field, problems);
+                        name = value == null ? "" : value;
+                    }
+                    case "quantity" -> quantity = quantity(parser, index, field, problems);
+                    case "price" -> {
+                        priceText = text(parser, index, field, problems);
+                        price = priceText == null ? INVALID : minorUnits(priceText);
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            if (price == INVALID) {
+                problems.add(new Problem(path(index, "price"), shorten(priceText),
+                        priceText == null ? "Missing price; recorded as 0" : "Unreadable price; recorded as 0"));
+                price = 0;
+            }
+            items.add(new Item(name, quantity, price));
+        }
+    }
+
+    private static int quantity(JsonParser parser, int index, String field, List<Problem> problems) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+            int value = parser.getIntValue();
+            if (value > 0) {
+                return value;
+            }
+        } else if (token == JsonToken.VALUE_NULL) {
+            return 1;
+        } else if (token == JsonToken.VALUE_STRING) {
+            String value = parser.getText().strip();
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed > 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+        }
+        problems.add(new Problem(path(index, field), shorten(parser.getText()), "Unreadable quantity; recorded as 1"));
+        parser.skipChildren();
+        return 1;
+    }
+
+    // A scalar as text; numbers keep their exact spelling, so 3.10 isn't read through a double
+    private static String text(JsonParser parser, int index, String field, List<Problem> problems)
+            throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        problems.add(new Problem(path(index, field), null, "Expected a single value"));
+        parser.skipChildren();
+        return null;
+    }
+
+    private static long amount(String text, String field, List<Problem> problems) {
+        if (text == null) {
+            return INVALID;
+        }
+        long value = minorUnits(text);
+        if (value == INVALID) {
+            problems.add(new Problem(field, shorten(text), "Unreadable amount"));
+        }
+        return value;
+    }
+
+    private static LocalDate date(String text, String field, List<Problem> problems) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text.strip());
+        } catch (DateTimeParseException e) {
+            problems.add(new Problem(field, shorten(text), "Not an ISO date (yyyy-MM-dd)"));
+            return null;
+        }
+    }
+
+    // Only built when there is a problem to report, so a clean decode allocates no paths
+    private static String path(int index, String field) {
+        if (index == TOP_LEVEL) {
+            return field;
+        }
+        return field == null ? "items[" + index + "]" : "items[" + index + "]." + field;
+    }
+
+    private static String shorten(String value) {
+        if (value == null || value.length() <= MAX_PROBLEM_VALUE_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_PROBLEM_VALUE_LENGTH);
+    }
+}
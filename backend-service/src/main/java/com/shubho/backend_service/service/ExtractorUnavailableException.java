@@ -0,0 +1,8 @@
+package com.shubho.backend_service.service;
+
+// Thrown without calling the extractor when its circuit is open or too many calls are in flight
+public class ExtractorUnavailableException extends RuntimeException {
+    public ExtractorUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,201 @@
+package com.shubho.backend_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.shubho.backend_service.model.CategoryOverride;
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.repository.CategoryOverrideRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Assigns a category to line items locally instead of asking the extractor for one. Lookup
+// order: the user's own corrections (same store first, then any store), then the keyword
+// dictionary over the item name, then the merchant dictionary over the store name.
+@Service
+public class ItemCategorizer {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemCategorizer.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_CATEGORY_LENGTH = 100;
+
+    // Caffeine can't hold nulls, so "no dictionary match" is cached as this
+    private static final String NO_MATCH = "";
+
+    @Autowired
+    private CategoryOverrideRepository categoryOverrideRepository;
+
+    private final KeywordMatcher itemMatcher;
+    private final KeywordMatcher storeMatcher;
+    private final Cache<String, String> itemNameCache;
+    private final LoadingCache<Long, Overrides> overridesByUser;
+
+    // One user's corrections, keyed by store + item and by item alone (latest correction wins)
+    private record Overrides(Map<String, String> byStoreAndItem, Map<String, String> byItem) {
+    }
+
+    public ItemCategorizer(@Value("${receipts.categorizer.dictionary:classpath:categorizer/dictionary.txt}") Resource dictionary,
+                           @Value("${receipts.categorizer.max-cached-names:50000}") long maxCachedNames,
+                           @Value("${receipts.categorizer.max-cached-users:10000}") long maxCachedUsers) {
+        Map<String, Map<String, String>> sections = readDictionary(dictionary);
+        this.itemMatcher = KeywordMatcher.build(sections.getOrDefault("items", Map.of()));
+        this.storeMatcher = KeywordMatcher.build(sections.getOrDefault("stores", Map.of()));
+        this.itemNameCache = Caffeine.newBuilder()
+                .maximumSize(maxCachedNames)
+                .build();
+        this.overridesByUser = Caffeine.newBuilder()
+                .maximumSize(maxCachedUsers)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build(this::loadOverrides);
+        log.info("Loaded categorizer dictionary: {} item states, {} store states", itemMatcher.size(), storeMatcher.size());
+    }
+
+    // Fills in the category of every item that doesn't have one yet
+    public void categorize(Receipt receipt) {
+        if (receipt.getItems() == null) {
+            return;
+        }
+        Long userId = receipt.getUser().getId();
+        for (ExpenseItem item : receipt.getItems()) {
+            if (item.getCategory() == null || item.getCategory().isBlank()) {
+                item.setCategory(categorize(userId, receipt.getStoreName(), item.getItemName()));
+            }
+        }
+    }
+
+    // The category for one item, or null when nothing recognises it
+    public String categorize(Long userId, String storeName, String itemName) {
+        String itemKey = key(itemName);
+        String storeKey = key(storeName);
+        if (userId != null) {
+            Overrides overrides = overridesByUser.get(userId);
+            String corrected = overrides.byStoreAndItem().get(storeKey + '\n' + itemKey);
+            if (corrected == null) {
+                corrected = overrides.byItem().get(itemKey);
+            }
+            if (corrected != null) {
+                return corrected;
+            }
+        }
+
+        String category = itemNameCache.get(itemKey, name -> {
+            String match = itemMatcher.match(name);
+            return match == null ? NO_MATCH : match;
+        });
+        if (!NO_MATCH.equals(category)) {
+            return category;
+        }
+        return storeMatcher.match(storeKey);
+    }
+
+    // Remembers a category the user chose for an item, so the same item name is categorized
+    // the same way from now on. Runs in the caller's transaction.
+    public String recordCorrection(Long userId, String storeName, String itemName, String category) {
+        String trimmed = category.trim();
+        if (trimmed.length() > MAX_CATEGORY_LENGTH) {
+            trimmed = trimmed.substring(0, MAX_CATEGORY_LENGTH);
+        }
+        String storeKey = key(storeName);
+        String itemKey = key(itemName);
+        CategoryOverride override = categoryOverrideRepository
+                .findByUserIdAndStoreKeyAndItemKey(userId, storeKey, itemKey)
+                .orElseGet(() -> new CategoryOverride(userId, storeKey, itemKey, null));
+        override.setCategory(trimmed);
+        categoryOverrideRepository.save(override);
+        overridesByUser.invalidate(userId);
+        // Invalidate again once committed, in case another thread reloaded the old rows meanwhile
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    overridesByUser.invalidate(userId);
+                }
+            });
+        }
+        return trimmed;
+    }
+
+    private Overrides loadOverrides(Long userId) {
+        Map<String, String> byStoreAndItem = new HashMap<>();
+        Map<String, String> byItem = new HashMap<>();
+        for (CategoryOverride override : categoryOverrideRepository.findByUserIdOrderByUpdatedAtAsc(userId)) {
+            byStoreAndItem.put(override.getStoreKey() + '\n' + override.getItemKey(), override.getCategory());
+            byItem.put(override.getItemKey(), override.getCategory());
+        }
+        return new Overrides(byStoreAndItem, byItem);
+    }
+
+    private static String key(String name) {
+        String normalized = KeywordMatcher.normalize(name);
+        return normalized.length() <= MAX_KEY_LENGTH ? normalized : normalized.substring(0, MAX_KEY_LENGTH);
+    }
+
+    // "strawberr*" is a stem and matches any word it starts. Anything else matches whole words,
+    // in the singular or with a plural "s" ("es" after s, x, z, ch, sh and o); keywords listed
+    // explicitly take precedence over the generated plurals.
+    private static void addKeyword(Map<String, String> keywords, String keyword, String category) {
+        boolean stem = keyword.endsWith("*");
+        String normalized = KeywordMatcher.normalize(stem ? keyword.substring(0, keyword.length() - 1) : keyword);
+        if (normalized.isBlank()) {
+            return;
+        }
+        if (stem) {
+            keywords.put(normalized, category);
+            return;
+        }
+        keywords.put(normalized + ' ', category);
+        keywords.putIfAbsent(normalized + "s ", category);
+        if (normalized.matches(".*(s|x|z|ch|sh|o)")) {
+            keywords.putIfAbsent(normalized + "es ", category);
+        }
+    }
+
+    // Parses "[section]" headers followed by "Category: keyword, keyword" lines
+    private static Map<String, Map<String, String>> readDictionary(Resource dictionary) {
+        Map<String, Map<String, String>> sections = new HashMap<>();
+        Map<String, String> current = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(dictionary.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("[") && line.endsWith("]")) {
+                    current = sections.computeIfAbsent(line.substring(1, line.length() - 1), s -> new LinkedHashMap<>());
+                    continue;
+                }
+                int colon = line.indexOf(':');
+                if (current == null || colon < 0) {
+                    throw new IllegalStateException("Malformed categorizer dictionary line: " + line);
+                }
+                String category = line.substring(0, colon).strip();
+                for (String keyword : line.substring(colon + 1).split(",")) {
+                    addKeyword(current, keyword.strip(), category);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read categorizer dictionary " + dictionary, e);
+        }
+        return sections;
+    }
+}
@@ -0,0 +1,162 @@
+package com.shubho.backend_service.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+// Aho-Corasick automaton over normalized text (a-z, 0-9 and single spaces). The failure links
+// are folded into a full transition table, so matching is one array lookup per character no
+// matter how many keywords there are. When several keywords occur, the longest one wins.
+// Normalized text starts with a space and match() reads one more after its end, so a keyword
+// " milk " only matches the whole word while " strawberr" matches any word it starts.
+public final class KeywordMatcher {
+
+    private static final int ALPHABET = 37; // a-z, 0-9, space
+
+    private static final int SPACE = 36;
+
+    private final int[][] next;
+    private final int[] bestLength;
+    private final String[] bestValue;
+
+    private KeywordMatcher(int[][] next, int[] bestLength, String[] bestValue) {
+        this.next = next;
+        this.bestLength = bestLength;
+        this.bestValue = bestValue;
+    }
+
+    // Keywords must already be normalized; characters outside the alphabet are skipped
+    public static KeywordMatcher build(Map<String, String> keywords) {
+        List<int[]> transitions = new ArrayList<>();
+        List<Integer> depth = new ArrayList<>();
+        List<String> value = new ArrayList<>();
+        transitions.add(newState());
+        depth.add(0);
+        value.add(null);
+
+        for (Map.Entry<String, String> entry : keywords.entrySet()) {
+            int state = 0;
+            for (int i = 0; i < entry.getKey().length(); i++) {
+                int symbol = symbol(entry.getKey().charAt(i));
+                if (symbol < 0) {
+                    continue;
+                }
+                if (transitions.get(state)[symbol] < 0) {
+                    transitions.get(state)[symbol] = transitions.size();
+                    transitions.add(newState());
+                    depth.add(depth.get(state) + 1);
+                    value.add(null);
+                }
+                state = transitions.get(state)[symbol];
+            }
+            if (state != 0) {
+                value.set(state, entry.getValue());
+            }
+        }
+
+        int states = transitions.size();
+        int[][] next = transitions.toArray(new int[0][]);
+        int[] fail = new int[states];
+        int[] bestLength = new int[states];
+        String[] bestValue = new String[states];
+
+        // Breadth-first, so a state's failure target is finished before the state itself
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            if (next[0][symbol] < 0) {
+                next[0][symbol] = 0;
+            } else {
+                fail[next[0][symbol]] = 0;
+                queue.add(next[0][symbol]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (value.get(state) != null) {
+                // A state's own keyword is longer than anything reachable through its failure link
+                bestLength[state] = depth.get(state);
+                bestValue[state] = value.get(state);
+            } else {
+                bestLength[state] = bestLength[fail[state]];
+                bestValue[state] = bestValue[fail[state]];
+            }
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int child = next[state][symbol];
+                if (child < 0) {
+                    next[state][symbol] = next[fail[state]][symbol];
+                } else {
+                    fail[child] = next[fail[state]][symbol];
+                    queue.add(child);
+                }
+            }
+        }
+        return new KeywordMatcher(next, bestLength, bestValue);
+    }
+
+    // Value of the longest keyword found in the text, or null when none occurs
+    public String match(String text) {
+        int state = 0;
+        int length = 0;
+        String result = null;
+        for (int i = 0; i <= text.length(); i++) {
+            // The end of the text ends the last word like a space would
+            int symbol = i < text.length() ? symbol(text.charAt(i)) : SPACE;
+            if (symbol < 0) {
+                continue;
+            }
+            state = next[state][symbol];
+            if (bestLength[state] > length) {
+                length = bestLength[state];
+                result = bestValue[state];
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return next.length;
+    }
+
+    // Lower-cases, turns everything but letters and digits into single spaces and adds a
+    // leading space, so a keyword " milk" only matches at the start of a word. Trailing spaces
+    // are dropped (the result doubles as the stored key of a category correction).
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length() + 1).append(' ');
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                normalized.append(c);
+            } else if (normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+        int end = normalized.length();
+        while (end > 1 && normalized.charAt(end - 1) == ' ') {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + (c - '0');
+        }
+        return c == ' ' ? SPACE : -1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.shubho.backend_service.service;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+// Thrown without hashing anything when the password hashing pool and its queue are full.
+// It's an AuthenticationException so login flows see it as a failed attempt, but callers
+// should answer 503 rather than "wrong password".
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
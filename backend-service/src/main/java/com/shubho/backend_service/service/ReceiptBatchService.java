@@ -0,0 +1,234 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.BatchUploadResult;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptImage;
+import com.shubho.backend_service.model.User;
+import com.shubho.backend_service.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Handles multi-file uploads: extractions run in parallel, then every successful receipt
+// is written in a few batched transactions instead of one save per file.
+@Service
+public class ReceiptBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptBatchService.class);
+    private static final List<String> RECEIPT_EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".webp", ".pdf");
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ReceiptWriteService receiptWriteService;
+
+    @Autowired
+    private ReceiptImageStore receiptImageStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("receiptIngestionExecutor")
+    private ExecutorService executor;
+
+    @Value("${receipts.batch.max-parallelism:8}")
+    private int maxParallelism;
+
+    @Value("${receipts.batch.max-files:100}")
+    private int maxFiles;
+
+    @Value("${receipts.batch.max-zip-entry-bytes:20971520}")
+    private long maxZipEntryBytes;
+
+    @Value("${receipts.batch.max-zip-total-bytes:209715200}")
+    private long maxZipTotalBytes;
+
+    @Value("${receipts.batch.receipts-per-transaction:25}")
+    private int receiptsPerTransaction;
+
+    // A file that made it through extraction and mapping, waiting to be persisted
+    private record Extracted(String fileName, Receipt receipt, String error) {
+    }
+
+    // Decompressed bytes the ZIP entries of one request may still produce, shared by the
+    // per-entry streams
+    private static final class ZipBudget {
+        private long remaining;
+
+        private ZipBudget(long remaining) {
+            this.remaining = remaining;
+        }
+    }
+
+    public List<BatchUploadResult> processBatch(List<MultipartFile> uploads, Long userId) throws IOException {
+        User user = userRepository.getReferenceById(userId);
+
+        List<BatchUploadResult> skipped = new ArrayList<>();
+        List<ReceiptImage> files = expand(uploads, skipped);
+        if (files.size() > maxFiles) {
+            throw new IllegalArgumentException("A batch can contain at most " + maxFiles + " receipts");
+        }
+
+        // Step 1: fan out the extractions, at most maxParallelism in flight for this batch
+        Semaphore permits = new Semaphore(maxParallelism);
+        List<CompletableFuture<Extracted>> futures = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> extract(file, user, permits), executor))
+                .toList();
+        List<Extracted> extracted = futures.stream().map(CompletableFuture::join).toList();
+
+        // Step 2: persist the successful ones in chunks, each chunk in one transaction
+        List<Receipt> toSave = extracted.stream()
+                .filter(e -> e.receipt() != null)
+                .map(Extracted::receipt)
+                .toList();
+        String persistError = null;
+        for (int start = 0; start < toSave.size(); start += receiptsPerTransaction) {
+            List<Receipt> chunk = toSave.subList(start, Math.min(start + receiptsPerTransaction, toSave.size()));
+            try {
+                receiptWriteService.saveAll(chunk);
+            } catch (RuntimeException e) {
+                log.warn("Saving a batch chunk of {} receipts failed", chunk.size(), e);
+                persistError = e.getMessage();
+                chunk.forEach(receipt -> receipt.setId(null));
+            }
+        }
+
+        // Step 3: build the manifest in the order the files were received, followed by the
+        // archive entries that weren't receipts
+        List<BatchUploadResult> manifest = new ArrayList<>(extracted.size() + skipped.size());
+        for (Extracted e : extracted) {
+            if (e.receipt() == null) {
+                manifest.add(BatchUploadResult.failed(e.fileName(), e.error()));
+            } else if (e.receipt().getId() == null) {
+                manifest.add(BatchUploadResult.failed(e.fileName(), "Could not save receipt: " + persistError));
+            } else {
+                manifest.add(BatchUploadResult.saved(e.fileName(), e.receipt()));
+            }
+        }
+        manifest.addAll(skipped);
+        return manifest;
+    }
+
+    private Extracted extract(ReceiptImage file, User user, Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Extracted(file.filename(), null, "Interrupted");
+        }
+        try {
+            String json = receiptService.extractJson(receiptImageStore.open(file), file.hash());
+            Receipt receipt = receiptService.toReceipt(json, user);
+            ReceiptService.attachImage(receipt, file);
+            return new Extracted(file.filename(), receipt, null);
+        } catch (Exception e) {
+            return new Extracted(file.filename(), null, e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Copies the uploaded parts into the image store as individual receipt files, unpacking
+    // any ZIP archives. Entries are streamed straight to disk rather than read into memory;
+    // the ones that aren't receipt files are added to `skipped`.
+    private List<ReceiptImage> expand(List<MultipartFile> uploads, List<BatchUploadResult> skipped) throws IOException {
+        List<ReceiptImage> files = new ArrayList<>();
+        ZipBudget budget = new ZipBudget(maxZipTotalBytes);
+        for (MultipartFile upload : uploads) {
+            String name = upload.getOriginalFilename() == null ? "" : upload.getOriginalFilename();
+            if (name.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                try (ZipInputStream zip = new ZipInputStream(upload.getInputStream())) {
+                    ZipEntry entry;
+                    while ((entry = zip.getNextEntry()) != null) {
+                        if (entry.isDirectory()) {
+                            continue;
+                        }
+                        if (isReceiptFile(entry.getName())) {
+                            files.add(receiptImageStore.store(limited(zip, entry, budget), baseName(entry.getName())));
+                        } else {
+                            skipped.add(BatchUploadResult.skipped(entry.getName(), "Not a receipt image or PDF"));
+                        }
+                        if (files.size() > maxFiles) {
+                            return files;
+                        }
+                    }
+                }
+            } else {
+                files.add(receiptImageStore.store(upload));
+            }
+        }
+        return files;
+    }
+
+    // One ZIP entry with a hard size cap, and a cap on what all entries of the request add up
+    // to, so a zip bomb (or many entries just under the per-entry cap) can't fill the disk.
+    // Going over either fails the batch. Closing it leaves the archive open for the next entry.
+    private InputStream limited(ZipInputStream zip, ZipEntry entry, ZipBudget budget) {
+        return new FilterInputStream(zip) {
+            private long remaining = maxZipEntryBytes;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    count(read);
+                }
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+
+            private void count(int read) {
+                remaining -= read;
+                budget.remaining -= read;
+                if (remaining < 0) {
+                    throw new IllegalArgumentException("ZIP entry " + entry.getName() + " is too large");
+                }
+                if (budget.remaining < 0) {
+                    throw new IllegalArgumentException(
+                            "ZIP archives in a batch can unpack to at most " + maxZipTotalBytes + " bytes");
+                }
+            }
+        };
+    }
+
+    private static boolean isReceiptFile(String path) {
+        String name = baseName(path).toLowerCase(Locale.ROOT);
+        // Skip macOS resource forks and other hidden files
+        return !name.startsWith(".") && !path.startsWith("__MACOSX/")
+                && RECEIPT_EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    private static String baseName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.config.ExtractorProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.function.Supplier;
+
+// The only place that calls the Python extractor. Each call goes through
+// retry -> bulkhead -> circuit breaker, so a slow or dead extractor can neither pile up
+// request threads nor be hammered while it is down. The breaker sits inside the bulkhead:
+// a call turned away for want of a slot never reached the extractor and says nothing about
+// its health, so it must not count as a breaker failure.
+@Service
+public class ReceiptExtractorClient {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptExtractorClient.class);
+    private static final String NAME = "extractor";
+
+    private final RestTemplate restTemplate;
+    private final String url;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Retry retry;
+    private final MeterRegistry meterRegistry;
+
+    public ReceiptExtractorClient(@Qualifier("extractorRestTemplate") RestTemplate restTemplate,
+                                  ExtractorProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.url = properties.url();
+        this.meterRegistry = meterRegistry;
+
+        // 4xx responses mean the upload was bad, not that the extractor is unhealthy
+        CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.failureRateThreshold())
+                .slidingWindowSize(properties.slidingWindowSize())
+                .minimumNumberOfCalls(Math.min(5, properties.slidingWindowSize()))
+                .waitDurationInOpenState(properties.openStateDuration())
+                .permittedNumberOfCallsInHalfOpenState(2)
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build());
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.maxConcurrentCalls())
+                .maxWaitDuration(properties.maxBulkheadWait())
+                .build());
+        // Extraction has no side effects, so timeouts, I/O errors and 5xx are safe to retry
+        RetryRegistry retries = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(properties.retryMaxAttempts())
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(properties.retryInitialBackoff(), 2.0, 0.5))
+                .retryExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+                .build());
+
+        this.circuitBreaker = circuitBreakers.circuitBreaker(NAME);
+        this.bulkhead = bulkheads.bulkhead(NAME);
+        this.retry = retries.retry(NAME);
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+        TaggedRetryMetrics.ofRetryRegistry(retries).bindTo(meterRegistry);
+
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.StateTransition transition = event.getStateTransition();
+            log.warn("Extractor circuit breaker moved from {} to {}", transition.getFromState(), transition.getToState());
+            meterRegistry.counter("extractor.circuitbreaker.transitions",
+                    "from", transition.getFromState().name(),
+                    "to", transition.getToState().name()).increment();
+        });
+    }
+
+    // Sends the file to the extractor and returns its raw JSON response. extractor.calls times
+    // the whole guarded call, retries and bulkhead wait included, by outcome; each HTTP attempt
+    // is also in http.client.requests.
+    public String extract(Resource file) {
+        Supplier<String> call = () -> post(file);
+        Supplier<String> guarded = Retry.decorateSupplier(retry,
+                Bulkhead.decorateSupplier(bulkhead,
+                        CircuitBreaker.decorateSupplier(circuitBreaker, call)));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            String json = guarded.get();
+            outcome = "success";
+            return json;
+        } catch (CallNotPermittedException e) {
+            outcome = "circuit_open";
+            throw new ExtractorUnavailableException("Receipt extractor is unavailable, try again shortly", e);
+        } catch (BulkheadFullException e) {
+            outcome = "bulkhead_full";
+            throw new ExtractorUnavailableException("Too many receipts are being extracted, try again shortly", e);
+        } catch (HttpClientErrorException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("extractor.calls")
+                    .description("Receipt extractions, including retries")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private String post(Resource file) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("image", file);
+        return restTemplate.postForObject(url, body, String.class);
+    }
+}
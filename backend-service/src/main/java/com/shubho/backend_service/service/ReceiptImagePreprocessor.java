@@ -0,0 +1,628 @@
+package com.shubho.backend_service.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Shrinks uploads before they go to the extractor. Photos are turned upright (EXIF
+// orientation), cropped to the receipt, converted to grayscale, scaled down to
+// `maxDimension` pixels on the long edge and re-encoded as JPEG. PDFs are rendered page by
+// page, blank pages are dropped and the rest are sent as grayscale JPEG pages. Anything
+// else, or anything that doesn't come out smaller, is sent as uploaded.
+//
+// The work is CPU bound, so it runs on a fixed pool the size of the machine's cores. When
+// `maxQueued` uploads are already waiting for it, further ones skip preprocessing rather
+// than fail, since it only makes the extraction cheaper.
+@Service
+public class ReceiptImagePreprocessor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptImagePreprocessor.class);
+
+    // How far (0-255) a pixel's gray level must be from the background to count as receipt
+    private static final int CONTENT_CONTRAST = 48;
+    // A row or column is part of the receipt once this fraction of its pixels is
+    private static final double CONTENT_FRACTION = 0.01;
+    // A PDF page with less than this fraction of dark pixels is blank
+    private static final int INK_LEVEL = 160;
+    private static final double BLANK_PAGE_INK = 0.001;
+
+    private enum Kind { IMAGE, PDF, OTHER }
+
+    private record Prepared(byte[] content, String extension) {}
+
+    private record RenderedPage(BufferedImage image, float dpi) {}
+
+    private record Decoded(BufferedImage image, int orientation) {}
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxDimension;
+    private final float jpegQuality;
+    private final int pdfDpi;
+    private final int maxPdfPages;
+    private final ThreadPoolExecutor executor;
+
+    public ReceiptImagePreprocessor(MeterRegistry meterRegistry,
+                                    @Value("${receipts.preprocess.enabled:true}") boolean enabled,
+                                    @Value("${receipts.preprocess.max-dimension:2000}") int maxDimension,
+                                    @Value("${receipts.preprocess.jpeg-quality:0.8}") float jpegQuality,
+                                    @Value("${receipts.preprocess.pdf-dpi:150}") int pdfDpi,
+                                    @Value("${receipts.preprocess.max-pdf-pages:20}") int maxPdfPages,
+                                    @Value("${receipts.preprocess.threads:0}") int threads,
+                                    @Value("${receipts.preprocess.max-queued:50}") int maxQueued) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+        this.pdfDpi = pdfDpi;
+        this.maxPdfPages = maxPdfPages;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued),
+                Thread.ofPlatform().name("receipt-preprocess-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Returns what to send to the extractor in place of `upload`
+    public Resource prepare(Resource upload) throws IOException {
+        if (!enabled) {
+            return upload;
+        }
+        byte[] content = upload.getContentAsByteArray();
+        Kind kind = kindOf(content);
+        if (kind == Kind.OTHER) {
+            return upload;
+        }
+        String tag = kind.name().toLowerCase(Locale.ROOT);
+        long started = System.nanoTime();
+        Future<Prepared> future;
+        try {
+            future = executor.submit(() -> {
+                stageTimer(tag, "queue").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return kind == Kind.IMAGE ? prepareImage(content) : preparePdf(content);
+            });
+        } catch (RejectedExecutionException e) {
+            return finish(upload, tag, content.length, null, "busy", started);
+        }
+        try {
+            Prepared prepared = future.get();
+            if (prepared == null) {
+                return finish(upload, tag, content.length, null, "unchanged", started);
+            }
+            Resource resource = ReceiptService.namedResource(prepared.content(),
+                    withExtension(upload.getFilename(), prepared.extension()));
+            return finish(resource, tag, content.length, prepared, "reduced", started);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while preprocessing " + upload.getFilename());
+        } catch (ExecutionException e) {
+            log.warn("Could not preprocess {}, sending it as uploaded", upload.getFilename(), e.getCause());
+            return finish(upload, tag, content.length, null, "failed", started);
+        }
+    }
+
+    // A grayscale JPEG of the upload (the first page of a PDF) at most `size` pixels on the
+    // long edge, or null when it isn't an image or PDF this can read. Runs on the same pool
+    // and throws RejectedExecutionException when its queue is full.
+    public byte[] thumbnail(Path original, int size) throws IOException {
+        Future<byte[]> future = executor.submit(() -> renderThumbnail(Files.readAllBytes(original), size));
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering a thumbnail of " + original.getFileName());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // For the work queue gauges (see ObservabilityConfig)
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    public int active() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // receipts.preprocess.bytes with stage=in/out shows the payload saved per kind, and the
+    // receipts.preprocess timer the latency added, by outcome
+    private Resource finish(Resource sent, String kind, long inBytes, Prepared prepared, String outcome, long started) {
+        bytesSummary(kind, "in").record(inBytes);
+        bytesSummary(kind, "out").record(prepared != null ? prepared.content().length : inBytes);
+        Timer.builder("receipts.preprocess")
+                .description("Time to preprocess an upload before extraction, including waiting for the pool")
+                .tag("kind", kind)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return sent;
+    }
+
+    private DistributionSummary bytesSummary(String kind, String stage) {
+        return DistributionSummary.builder("receipts.preprocess.bytes")
+                .description("Size of uploads before (in) and after (out) preprocessing")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    private Timer stageTimer(String kind, String stage) {
+        return Timer.builder("receipts.preprocess.stage")
+                .description("Time spent in each preprocessing stage")
+                .tag("kind", kind)
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    private long lap(String kind, String stage, long started) {
+        long now = System.nanoTime();
+        stageTimer(kind, stage).record(now - started, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private Prepared prepareImage(byte[] content) throws IOException {
+        long started = System.nanoTime();
+        Decoded decoded = decode(content, maxDimension);
+        if (decoded == null) {
+            return null;
+        }
+        started = lap("image", "decode", started);
+
+        BufferedImage image = orient(toGray(decoded.image()), decoded.orientation());
+        image = scale(crop(image), maxDimension);
+        started = lap("image", "transform", started);
+
+        byte[] jpeg = encodeJpeg(image);
+        lap("image", "encode", started);
+        // A rotated photo is worth sending even when it didn't get smaller
+        if (jpeg.length >= content.length && decoded.orientation() <= 1) {
+            return null;
+        }
+        return new Prepared(jpeg, "jpg");
+    }
+
+    private static Decoded decode(byte[] content, int target) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // A 12 MP photo is decoded straight at a fraction of its size; scale() still
+                // smooths it down the rest of the way from at least twice the target
+                int step = Math.max(reader.getWidth(0), reader.getHeight(0)) / (2 * target);
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                int orientation = "jpeg".equalsIgnoreCase(reader.getFormatName())
+                        ? exifOrientation(reader.getImageMetadata(0))
+                        : 1;
+                return new Decoded(image, orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private byte[] renderThumbnail(byte[] content, int size) throws IOException {
+        BufferedImage image = switch (kindOf(content)) {
+            case IMAGE -> {
+                Decoded decoded = decode(content, size);
+                yield decoded == null ? null : orient(toGray(decoded.image()), decoded.orientation());
+            }
+            case PDF -> {
+                try (PDDocument document = Loader.loadPDF(content)) {
+                    PDRectangle box = document.getPage(0).getCropBox();
+                    float longestInches = Math.max(box.getWidth(), box.getHeight()) / 72f;
+                    yield new PDFRenderer(document).renderImageWithDPI(0, 2 * size / longestInches, ImageType.GRAY);
+                }
+            }
+            case OTHER -> null;
+        };
+        return image == null ? null : encodeJpeg(scale(image, size));
+    }
+
+    private Prepared preparePdf(byte[] content) throws IOException {
+        long started = System.nanoTime();
+        try (PDDocument document = Loader.loadPDF(content)) {
+            int pageCount = document.getNumberOfPages();
+            if (pageCount > maxPdfPages) {
+                return null;
+            }
+            PDFRenderer renderer = new PDFRenderer(document);
+            List<RenderedPage> kept = new ArrayList<>(pageCount);
+            List<Integer> blank = new ArrayList<>();
+            for (int i = 0; i < pageCount; i++) {
+                PDRectangle box = document.getPage(i).getCropBox();
+                float longestInches = Math.max(box.getWidth(), box.getHeight()) / 72f;
+                float dpi = Math.min(pdfDpi, maxDimension / longestInches);
+                BufferedImage page = renderer.renderImageWithDPI(i, dpi, ImageType.GRAY);
+                if (isBlank(page)) {
+                    blank.add(i);
+                } else {
+                    kept.add(new RenderedPage(page, dpi));
+                }
+            }
+            started = lap("pdf", "render", started);
+            if (kept.isEmpty()) {
+                return null;
+            }
+
+            byte[] rasterized = toJpegPdf(kept);
+            if (rasterized.length < content.length) {
+                lap("pdf", "encode", started);
+                return new Prepared(rasterized, "pdf");
+            }
+            if (blank.isEmpty()) {
+                lap("pdf", "encode", started);
+                return null;
+            }
+            // Text PDFs are smaller than their renderings; still leave out the blank pages
+            for (int i = blank.size() - 1; i >= 0; i--) {
+                document.removePage(blank.get(i));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+            document.save(out);
+            lap("pdf", "encode", started);
+            return new Prepared(out.toByteArray(), "pdf");
+        }
+    }
+
+    private byte[] toJpegPdf(List<RenderedPage> pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (RenderedPage rendered : pages) {
+                BufferedImage image = rendered.image();
+                float scale = 72f / rendered.dpi();
+                PDPage page = new PDPage(new PDRectangle(image.getWidth() * scale, image.getHeight() * scale));
+                document.addPage(page);
+                PDImageXObject jpeg = JPEGFactory.createFromByteArray(document, encodeJpeg(image));
+                try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                    stream.drawImage(jpeg, 0, 0, page.getMediaBox().getWidth(), page.getMediaBox().getHeight());
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            if (param instanceof JPEGImageWriteParam jpeg) {
+                jpeg.setOptimizeHuffmanTables(true);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static Kind kindOf(byte[] content) {
+        if (content.length >= 4 && content[0] == '%' && content[1] == 'P' && content[2] == 'D' && content[3] == 'F') {
+            return Kind.PDF;
+        }
+        if (content.length >= 3 && (content[0] & 0xFF) == 0xFF && (content[1] & 0xFF) == 0xD8
+                && (content[2] & 0xFF) == 0xFF) {
+            return Kind.IMAGE;
+        }
+        if (content.length >= 8 && (content[0] & 0xFF) == 0x89 && content[1] == 'P' && content[2] == 'N'
+                && content[3] == 'G') {
+            return Kind.IMAGE;
+        }
+        return Kind.OTHER;
+    }
+
+    private static String withExtension(String filename, String extension) {
+        if (filename == null || filename.isBlank()) {
+            return "receipt." + extension;
+        }
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0 ? filename.substring(0, dot) : filename) + "." + extension;
+    }
+
+    // The EXIF orientation (1-8) of a JPEG, from its APP1 segment; 1 when there is none
+    static int exifOrientation(IIOMetadata metadata) {
+        if (metadata == null) {
+            return 1;
+        }
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree("javax_imageio_jpeg_image_1.0");
+        var markers = root.getElementsByTagName("unknown");
+        for (int i = 0; i < markers.getLength(); i++) {
+            IIOMetadataNode marker = (IIOMetadataNode) markers.item(i);
+            if ("225".equals(marker.getAttribute("MarkerTag")) && marker.getUserObject() instanceof byte[] app1) {
+                int orientation = exifOrientation(app1);
+                if (orientation != 0) {
+                    return orientation;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // APP1 holds "Exif\0\0", a TIFF header and IFD0, whose tag 0x0112 is the orientation.
+    // Returns 0 when the segment isn't EXIF or has no valid orientation.
+    static int exifOrientation(byte[] app1) {
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        if (tiff.get(0) == 'I' && tiff.get(1) == 'I') {
+            tiff.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (tiff.get(0) != 'M' || tiff.get(1) != 'M') {
+            return 0;
+        }
+        try {
+            int ifd = tiff.getInt(4);
+            int entries = tiff.getShort(ifd) & 0xFFFF;
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd + 2 + i * 12;
+                if ((tiff.getShort(entry) & 0xFFFF) == 0x0112) {
+                    int value = tiff.getShort(entry + 8) & 0xFFFF;
+                    return value >= 1 && value <= 8 ? value : 0;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated segment
+        }
+        return 0;
+    }
+
+    // A packed 8-bit copy of the image (luma of sRGB, transparent areas on white)
+    static BufferedImage toGray(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] out = pixels(gray);
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            image.getRaster().getDataElements(0, 0, width, height, out);
+            return gray;
+        }
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                int alpha = argb >>> 24;
+                int luma = (((argb >> 16) & 0xFF) * 299 + ((argb >> 8) & 0xFF) * 587 + (argb & 0xFF) * 114) / 1000;
+                out[y * width + x] = (byte) ((luma * alpha + 255 * (255 - alpha)) / 255);
+            }
+        }
+        return gray;
+    }
+
+    // Turns a gray image upright for its EXIF orientation; 5-8 swap width and height
+    static BufferedImage orient(BufferedImage gray, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return gray;
+        }
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        boolean transposed = orientation >= 5;
+        int outWidth = transposed ? height : width;
+        int outHeight = transposed ? width : height;
+        BufferedImage out = new BufferedImage(outWidth, outHeight, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] src = pixels(gray);
+        byte[] dst = pixels(out);
+        for (int y = 0; y < outHeight; y++) {
+            for (int x = 0; x < outWidth; x++) {
+                int sx;
+                int sy;
+                switch (orientation) {
+                    case 2 -> { sx = width - 1 - x; sy = y; }
+                    case 3 -> { sx = width - 1 - x; sy = height - 1 - y; }
+                    case 4 -> { sx = x; sy = height - 1 - y; }
+                    case 5 -> { sx = y; sy = x; }
+                    case 6 -> { sx = y; sy = height - 1 - x; }
+                    case 7 -> { sx = width - 1 - y; sy = height - 1 - x; }
+                    default -> { sx = width - 1 - y; sy = x; }
+                }
+                dst[y * outWidth + x] = src[sy * width + sx];
+            }
+        }
+        return out;
+    }
+
+    // Cuts away the table or scanner bed around the receipt: the background level is taken
+    // from the image border, and rows and columns at the edges with almost nothing that
+    // differs from it are dropped. Left alone unless that removes a tenth of the image.
+    static BufferedImage crop(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        byte[] px = pixels(gray);
+        int background = borderLevel(px, width, height);
+        int[] rowContent = new int[height];
+        int[] columnContent = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (Math.abs((px[y * width + x] & 0xFF) - background) > CONTENT_CONTRAST) {
+                    rowContent[y]++;
+                    columnContent[x]++;
+                }
+            }
+        }
+        int top = first(rowContent, width * CONTENT_FRACTION);
+        int bottom = last(rowContent, width * CONTENT_FRACTION);
+        int left = first(columnContent, height * CONTENT_FRACTION);
+        int right = last(columnContent, height * CONTENT_FRACTION);
+        if (top < 0 || left < 0) {
+            return gray;
+        }
+        int margin = Math.max(4, Math.max(width, height) / 100);
+        top = Math.max(0, top - margin);
+        left = Math.max(0, left - margin);
+        bottom = Math.min(height - 1, bottom + margin);
+        right = Math.min(width - 1, right + margin);
+        int cropWidth = right - left + 1;
+        int cropHeight = bottom - top + 1;
+        if ((long) cropWidth * cropHeight > (long) width * height * 9 / 10) {
+            return gray;
+        }
+        BufferedImage out = new BufferedImage(cropWidth, cropHeight, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] dst = pixels(out);
+        for (int y = 0; y < cropHeight; y++) {
+            System.arraycopy(px, (top + y) * width + left, dst, y * cropWidth, cropWidth);
+        }
+        return out;
+    }
+
+    // Scales down so the long edge is at most maxDimension, halving first: a single
+    // bilinear step from far above the target skips most pixels and breaks up small print
+    static BufferedImage scale(BufferedImage gray, int maxDimension) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        int longest = Math.max(width, height);
+        if (longest <= maxDimension) {
+            return gray;
+        }
+        int targetWidth = Math.max(1, (int) Math.round((double) width * maxDimension / longest));
+        int targetHeight = Math.max(1, (int) Math.round((double) height * maxDimension / longest));
+        BufferedImage current = gray;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return resize(current, targetWidth, targetHeight);
+    }
+
+    private static BufferedImage resize(BufferedImage gray, int width, int height) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = out.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(gray, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return out;
+    }
+
+    static boolean isBlank(BufferedImage gray) {
+        byte[] px = pixels(gray);
+        long ink = 0;
+        for (byte value : px) {
+            if ((value & 0xFF) < INK_LEVEL) {
+                ink++;
+            }
+        }
+        return ink < px.length * BLANK_PAGE_INK;
+    }
+
+    // Median gray level of the outermost rows and columns
+    private static int borderLevel(byte[] px, int width, int height) {
+        int[] histogram = new int[256];
+        int count = 0;
+        for (int x = 0; x < width; x++) {
+            histogram[px[x] & 0xFF]++;
+            histogram[px[(height - 1) * width + x] & 0xFF]++;
+            count += 2;
+        }
+        for (int y = 1; y < height - 1; y++) {
+            histogram[px[y * width] & 0xFF]++;
+            histogram[px[y * width + width - 1] & 0xFF]++;
+            count += 2;
+        }
+        int seen = 0;
+        for (int level = 0; level < 256; level++) {
+            seen += histogram[level];
+            if (seen * 2 >= count) {
+                return level;
+            }
+        }
+        return 255;
+    }
+
+    private static int first(int[] counts, double threshold) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > threshold) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int last(int[] counts, double threshold) {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > threshold) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] pixels(BufferedImage gray) {
+        return ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+    }
+}
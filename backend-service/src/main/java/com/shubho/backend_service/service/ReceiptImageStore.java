@@ -0,0 +1,264 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ReceiptImage;
+import com.shubho.backend_service.repository.ReceiptRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Uploaded receipt files on local disk, named by the SHA-256 of their bytes
+// (<dir>/ab/cd/abcd...), so the same file uploaded twice is stored once. Uploads are
+// streamed to a temp file while hashed and then renamed into place; nothing is held in
+// the heap. Thumbnails are rendered on first request and kept under <dir>/thumbnails.
+// Files no receipt points to any more are removed by deleteUnreferenced.
+@Service
+public class ReceiptImageStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String OCTET_STREAM = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+    private static final int MAX_FILENAME_LENGTH = 255;
+
+    // Stored files checked against the receipts per query by deleteUnreferenced
+    private static final int SWEEP_BATCH = 500;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    private final ReceiptImagePreprocessor imagePreprocessor;
+    private final Path root;
+    private final Path incoming;
+    private final Path thumbnails;
+    private final int thumbnailSize;
+
+    public ReceiptImageStore(ReceiptImagePreprocessor imagePreprocessor,
+                             @Value("${receipts.images.dir:data/receipt-images}") Path root,
+                             @Value("${receipts.images.thumbnail-size:320}") int thumbnailSize) throws IOException {
+        this.imagePreprocessor = imagePreprocessor;
+        this.root = root.toAbsolutePath();
+        // Inside the root, so the final rename never crosses file systems
+        this.incoming = Files.createDirectories(this.root.resolve("incoming"));
+        this.thumbnails = Files.createDirectories(this.root.resolve("thumbnails"));
+        this.thumbnailSize = thumbnailSize;
+    }
+
+    public ReceiptImage store(MultipartFile upload) throws IOException {
+        try (InputStream in = upload.getInputStream()) {
+            return store(in, upload.getOriginalFilename());
+        }
+    }
+
+    public ReceiptImage store(Resource upload) throws IOException {
+        try (InputStream in = upload.getInputStream()) {
+            return store(in, upload.getFilename());
+        }
+    }
+
+    // Copies `content` into the store; the stream is read to the end but not closed
+    public ReceiptImage store(InputStream content, String filename) throws IOException {
+        Path temp = Files.createTempFile(incoming, "upload-", ".part");
+        try {
+            MessageDigest digest = newSha256();
+            Files.copy(new DigestInputStream(content, digest), temp, StandardCopyOption.REPLACE_EXISTING);
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = blobPath(hash);
+            if (Files.exists(target)) {
+                // The file is in use again; deleteUnreferenced goes by the modification time
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // A concurrent upload of the same file got there first
+                }
+            }
+            return new ReceiptImage(hash, contentType(target), fitted(filename));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // The stored file as a Resource that keeps the upload's name (the extractor needs it)
+    public Resource open(ReceiptImage image) {
+        return new FileSystemResource(blobPath(image.hash())) {
+            @Override
+            public String getFilename() {
+                return image.filename();
+            }
+        };
+    }
+
+    public Optional<ReceiptImage> findForReceipt(Long receiptId, Long userId) {
+        return receiptRepository.findImage(receiptId, userId);
+    }
+
+    public Optional<Path> original(ReceiptImage image) {
+        Path path = blobPath(image.hash());
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    // The image's thumbnail, rendering it on first use. Empty when there is nothing to
+    // render it from (a format the preprocessor can't read, or a missing original).
+    public Optional<Path> thumbnail(ReceiptImage image) throws IOException {
+        Path path = thumbnails.resolve(image.hash().substring(0, 2)).resolve(image.hash() + "-" + thumbnailSize + ".jpg");
+        if (Files.exists(path)) {
+            return Optional.of(path);
+        }
+        if (!isRenderable(image.contentType())) {
+            return Optional.empty();
+        }
+        Optional<Path> original = original(image);
+        if (original.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] jpeg = imagePreprocessor.thumbnail(original.get(), thumbnailSize);
+        if (jpeg == null) {
+            return Optional.empty();
+        }
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(incoming, "thumbnail-", ".part");
+        try {
+            Files.write(temp, jpeg);
+            // Two requests may render the same thumbnail; either copy is fine
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return Optional.of(path);
+    }
+
+    // Deletes the stored files, and their thumbnails, that no receipt points to: uploads whose
+    // extraction or save failed, and the files of deleted receipts. Only files untouched for
+    // minAge are considered, so an upload whose receipt isn't saved yet is left alone (store()
+    // refreshes the time when the same file comes in again). Returns the number deleted.
+    public int deleteUnreferenced(Duration minAge) throws IOException {
+        Instant cutoff = Instant.now().minus(minAge);
+        int deleted = 0;
+        List<Path> candidates = new ArrayList<>(SWEEP_BATCH);
+        // Blobs are <dir>/ab/cd/<hash>; thumbnails and temp files never match the name
+        try (Stream<Path> blobs = Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()
+                && HASH.matcher(path.getFileName().toString()).matches()
+                && attributes.lastModifiedTime().toInstant().isBefore(cutoff))) {
+            for (Iterator<Path> it = blobs.iterator(); it.hasNext(); ) {
+                candidates.add(it.next());
+                if (candidates.size() == SWEEP_BATCH || !it.hasNext()) {
+                    deleted += deleteUnreferenced(candidates, cutoff);
+                    candidates.clear();
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private int deleteUnreferenced(List<Path> blobs, Instant cutoff) throws IOException {
+        Set<String> referenced = new HashSet<>(receiptRepository.findReferencedImageHashes(
+                blobs.stream().map(blob -> blob.getFileName().toString()).toList()));
+        int deleted = 0;
+        for (Path blob : blobs) {
+            String hash = blob.getFileName().toString();
+            // Skip files stored again since the scan
+            if (referenced.contains(hash) || !Files.getLastModifiedTime(blob).toInstant().isBefore(cutoff)) {
+                continue;
+            }
+            Path thumbnailDir = thumbnails.resolve(hash.substring(0, 2));
+            if (Files.isDirectory(thumbnailDir)) {
+                try (DirectoryStream<Path> rendered = Files.newDirectoryStream(thumbnailDir, hash + "-*.jpg")) {
+                    for (Path thumbnail : rendered) {
+                        Files.deleteIfExists(thumbnail);
+                    }
+                }
+            }
+            if (Files.deleteIfExists(blob)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public int thumbnailSize() {
+        return thumbnailSize;
+    }
+
+    Path blobPath(String hash) {
+        if (!HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 content hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    // Fits the receipts.image_filename column
+    private static String fitted(String filename) {
+        return filename == null || filename.length() <= MAX_FILENAME_LENGTH ? filename
+                : filename.substring(filename.length() - MAX_FILENAME_LENGTH);
+    }
+
+    private static boolean isRenderable(String contentType) {
+        return MediaType.IMAGE_JPEG_VALUE.equals(contentType) || MediaType.IMAGE_PNG_VALUE.equals(contentType)
+                || MediaType.APPLICATION_PDF_VALUE.equals(contentType);
+    }
+
+    // From the file's leading bytes, so what's served back doesn't depend on the type the
+    // client claimed. Anything else is served as a download (see ReceiptController).
+    static String contentType(Path file) throws IOException {
+        byte[] head = new byte[12];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        if (read >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (read >= 4 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (read >= 4 && head[0] == '%' && head[1] == 'P' && head[2] == 'D' && head[3] == 'F') {
+            return MediaType.APPLICATION_PDF_VALUE;
+        }
+        if (read >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        if (read >= 12 && head[4] == 'f' && head[5] == 't' && head[6] == 'y' && head[7] == 'p'
+                && head[8] == 'h' && head[9] == 'e') {
+            return "image/heic";
+        }
+        return OCTET_STREAM;
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptImage;
+import com.shubho.backend_service.model.ReceiptJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class ReceiptJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptJobService.class);
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    @Qualifier("receiptIngestionExecutor")
+    private ExecutorService executor;
+
+    private final Map<String, ReceiptJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final Duration retention;
+
+    public ReceiptJobService(@Value("${receipts.ingestion.max-concurrency:4}") int maxConcurrency,
+                             @Value("${receipts.ingestion.max-queued:100}") int maxQueued,
+                             @Value("${receipts.ingestion.job-retention:PT1H}") Duration retention) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = maxQueued;
+        this.retention = retention;
+    }
+
+    // Registers a job and hands it to the ingestion executor. The upload is read from the
+    // image store, since the multipart temp file is gone once the request returns.
+    public ReceiptJob submit(ReceiptImage upload, Long userId) {
+        if (pending.incrementAndGet() > maxQueued) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException("Too many receipts are waiting to be processed, try again later");
+        }
+
+        ReceiptJob job = new ReceiptJob(userId, upload.filename());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, upload));
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ReceiptJob> findJob(String jobId, Long userId) {
+        return Optional.ofNullable(jobs.get(jobId))
+                .filter(job -> job.getUserId().equals(userId));
+    }
+
+    // Jobs that are still queued or running for this user, oldest first
+    public List<ReceiptJob> findActiveJobs(Long userId) {
+        return jobs.values().stream()
+                .filter(job -> job.getUserId().equals(userId))
+                .filter(job -> !job.getStatus().isFinished())
+                .sorted(Comparator.comparing(ReceiptJob::getSubmittedAt))
+                .toList();
+    }
+
+    // Jobs holding a permit, and jobs accepted but still waiting for one
+    public int runningJobs() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int queuedJobs() {
+        return Math.max(0, pending.get() - runningJobs());
+    }
+
+    private void run(ReceiptJob job, ReceiptImage upload) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.decrementAndGet();
+            job.markFailed("Interrupted before processing started");
+            return;
+        }
+        try {
+            job.markRunning();
+            Receipt receipt = receiptService.processAndSaveReceipt(upload, job.getUserId());
+            job.markDone(receipt.getId(), receipt.getExtractionProblems());
+        } catch (Exception e) {
+            log.warn("Receipt job {} failed", job.getId(), e);
+            job.markFailed(e.getMessage());
+        } finally {
+            permits.release();
+            pending.decrementAndGet();
+        }
+    }
+
+    // On a timer rather than on submit, so jobs expire after a burst of uploads too
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    void purgeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+}
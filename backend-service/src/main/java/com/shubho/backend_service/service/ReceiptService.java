@@ -1,18 +1,21 @@
 package com.shubho.backend_service.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shubho.backend_service.model.ExpenseItem; // Import ExpenseItem
+import com.shubho.backend_service.model.ExtractionResult;
+import com.shubho.backend_service.model.ReceiptImage;
 import com.shubho.backend_service.model.User;
 import com.shubho.backend_service.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import com.shubho.backend_service.model.Receipt; // Import Receipt
-import com.shubho.backend_service.repository.ReceiptRepository; // Import ReceiptRepository
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList; // Import ArrayList
 import java.util.List; // Import List
@@ -20,92 +23,159 @@ import java.util.List; // Import List
 @Service
 public class ReceiptService {
 
+    private static final Logger log = LoggerFactory.getLogger(ReceiptService.class);
+
+    // MySQL TEXT holds 64 KB; receipts are far shorter, this only guards against runaway output
+    private static final int MAX_RAW_TEXT_LENGTH = 16_000;
+
     @Autowired
-    private RestTemplate restTemplate;
+    private ReceiptExtractorClient extractorClient;
 
     @Autowired
-    private ReceiptRepository receiptRepository;
+    private ReceiptWriteService receiptWriteService;
 
     @Autowired
     private UserRepository userRepository;
 
-    public void processAndSaveReceipt(MultipartFile imageFile, String username) throws Exception {
+    @Autowired
+    private ExtractionCacheService extractionCacheService;
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Error: User not found."));
+    @Autowired
+    private ItemCategorizer itemCategorizer;
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("image", imageFile.getResource());
-        String pythonServiceUrl = "http://localhost:5000/process-receipt";
-        String jsonResponse = restTemplate.postForObject(pythonServiceUrl, body, String.class);
+    @Autowired
+    private ReceiptImagePreprocessor imagePreprocessor;
 
-        // --- THIS IS THE NEW LOGIC ---
+    @Autowired
+    private ReceiptImageStore receiptImageStore;
 
-        // 1. Use ObjectMapper to parse the JSON string into a tree of nodes
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode rootNode = objectMapper.readTree(jsonResponse);
+    // receipts.ingest by phase: getting the JSON (cache or extractor), decoding it, saving
+    private Timer extractTimer;
+    private Timer parseTimer;
+    private Timer persistTimer;
 
-        // 2. Create the main Receipt object and populate it from the JSON
-        Receipt receipt = new Receipt();
-        receipt.setUser(user);
-        receipt.setStoreName(rootNode.path("store_name").asText("Unknown Store"));
-        receipt.setReceiptDate(LocalDate.now()); // Or parse from receipt if available
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.extractTimer = phaseTimer(meterRegistry, "extract");
+        this.parseTimer = phaseTimer(meterRegistry, "parse");
+        this.persistTimer = phaseTimer(meterRegistry, "persist");
+    }
+
+    private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder("receipts.ingest")
+                .description("Time spent in each phase of ingesting one receipt")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Receipt processAndSaveReceipt(MultipartFile imageFile, Long userId) throws Exception {
+        return processAndSaveReceipt(receiptImageStore.store(imageFile), userId);
+    }
+
+    public static Resource namedResource(byte[] content, String filename) {
+        return new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    // Extracts and saves a receipt from a file already in the image store
+    public Receipt processAndSaveReceipt(ReceiptImage image, Long userId) throws Exception {
 
-        // Get the date string from the AI's response
-        String dateStr = rootNode.path("receipt_date").asText(LocalDate.now().toString());
+        // The caller's principal carries the id, so a reference is enough to own the receipt
+        User user = userRepository.getReferenceById(userId);
+
+        String jsonResponse = extractJson(receiptImageStore.open(image), image.hash());
+        Receipt receipt = toReceipt(jsonResponse, user);
+        attachImage(receipt, image);
+
+        Timer.Sample sample = Timer.start();
         try {
-            // Parse the string and set it as the receipt date
-            receipt.setReceiptDate(LocalDate.parse(dateStr));
-        } catch (Exception e) {
-            // If parsing fails for any reason, fall back to the current date
-            receipt.setReceiptDate(LocalDate.now());
+            return receiptWriteService.save(receipt);
+        } finally {
+            sample.stop(persistTimer);
         }
+    }
 
-
-        // Safely parse the total price
-        String totalPriceStr = rootNode.path("total_price").asText("0.0");
+    // Returns the extractor's JSON for a file, reusing the stored extraction when this
+    // exact file (by the SHA-256 the image store named it with) has been seen before
+    public String extractJson(Resource imageFile, String contentHash) throws IOException {
+        Timer.Sample sample = Timer.start();
         try {
-            receipt.setTotalAmount(Double.parseDouble(totalPriceStr.replaceAll("[^\\d.]", "")));
-        } catch (NumberFormatException e) {
-            receipt.setTotalAmount(0.0);
+            String jsonResponse = extractionCacheService.find(contentHash).orElse(null);
+            if (jsonResponse == null) {
+                // Keyed by the file as uploaded, so a cache hit skips preprocessing as well
+                jsonResponse = extractorClient.extract(imagePreprocessor.prepare(imageFile));
+                extractionCacheService.store(contentHash, jsonResponse);
+            }
+            return jsonResponse;
+        } finally {
+            sample.stop(extractTimer);
         }
+    }
+
+    public static void attachImage(Receipt receipt, ReceiptImage image) {
+        receipt.setImageHash(image.hash());
+        receipt.setImageContentType(image.contentType());
+        receipt.setImageFilename(image.filename());
+    }
+
+    // Maps the extractor's JSON onto a new (unsaved) Receipt with its items
+    public Receipt toReceipt(String jsonResponse, User user) throws IOException {
 
-        // Safely parse the total discount from the JSON
-        String totalDiscountStr = rootNode.path("total_discount").asText("0.0");
+        // 1. Decode the JSON; amounts arrive as exact cents
+        Timer.Sample sample = Timer.start();
+        ExtractionResult extraction;
         try {
-            receipt.setTotalDiscount(Double.parseDouble(totalDiscountStr.replaceAll("[^\\d.]", "")));
-        } catch (NumberFormatException e) {
-            receipt.setTotalDiscount(0.0);
+            extraction = ExtractionDecoder.decode(jsonResponse);
+        } finally {
+            sample.stop(parseTimer);
+        }
+        if (!extraction.problems().isEmpty()) {
+            log.warn("Extractor response for {} had unreadable fields: {}", extraction.storeName(), extraction.problems());
         }
 
-        // 3. Create a list to hold the expense items
-        List<ExpenseItem> items = new ArrayList<>();
-        JsonNode itemsNode = rootNode.path("items");
-        if (itemsNode.isArray()) {
-            for (JsonNode itemNode : itemsNode) {
-                ExpenseItem item = new ExpenseItem();
-                item.setItemName(itemNode.path("name").asText());
-
-                // Set the quantity from the JSON
-                item.setQuantity(itemNode.path("quantity").asInt(1)); // <-- ADD THIS LINE (defaults to 1 if not found)
-
-                // Safely parse the item price
-                String itemPriceStr = itemNode.path("price").asText("0.0");
-                try {
-                    item.setPrice(Double.parseDouble(itemPriceStr.replaceAll("[^\\d.]", "")));
-                } catch (NumberFormatException e) {
-                    item.setPrice(0.0);
-                }
-
-                item.setReceipt(receipt);
-                items.add(item);
-            }
+        // 2. Create the main Receipt object and populate it from the result
+        Receipt receipt = new Receipt();
+        receipt.setUser(user);
+        receipt.setExtractionProblems(extraction.problems());
+        receipt.setStoreName(extraction.storeName() != null ? extraction.storeName() : "Unknown Store");
+        // Without a readable date, fall back to the current date
+        receipt.setReceiptDate(extraction.receiptDate() != null ? extraction.receiptDate() : LocalDate.now());
+        receipt.setTotalAmount(toAmount(extraction.totalMinor()));
+        receipt.setTotalDiscount(toAmount(extraction.discountMinor()));
+
+        // The receipt's text as printed, kept for search. Extractions cached before the
+        // extractor returned it simply have none.
+        String rawText = extraction.rawText();
+        if (rawText != null && !rawText.isBlank()) {
+            receipt.setRawText(rawText.length() <= MAX_RAW_TEXT_LENGTH ? rawText : rawText.substring(0, MAX_RAW_TEXT_LENGTH));
+        }
+
+        // 3. Create the expense items
+        List<ExpenseItem> items = new ArrayList<>(extraction.items().size());
+        for (ExtractionResult.Item extracted : extraction.items()) {
+            ExpenseItem item = new ExpenseItem();
+            item.setItemName(extracted.name());
+            item.setQuantity(extracted.quantity());
+            item.setPrice(toAmount(extracted.priceMinor()));
+            item.setReceipt(receipt);
+            items.add(item);
         }
 
         // 4. Set the list of items on the receipt
         receipt.setItems(items);
 
-        // 5. Save the receipt. Because of CascadeType.ALL, this also saves all the items.
-        receiptRepository.save(receipt);
+        // 5. Categorize the items locally (the extractor isn't asked for categories)
+        itemCategorizer.categorize(receipt);
+        return receipt;
+    }
+
+    // The entities still hold money as a double; the conversion happens once, here
+    private static Double toAmount(long minorUnits) {
+        return minorUnits / 100.0;
     }
 }
\ No newline at end of file
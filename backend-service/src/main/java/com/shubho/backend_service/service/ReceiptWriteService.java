@@ -0,0 +1,41 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.repository.ReceiptRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Single write path for newly extracted receipts, so the bookkeeping that has to happen in
+// the same transaction as the insert lives in one place.
+@Service
+@Transactional
+public class ReceiptWriteService {
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    public Receipt save(Receipt receipt) {
+        return saveAll(List.of(receipt)).get(0);
+    }
+
+    // All receipts must belong to the same user (one upload or one batch)
+    public List<Receipt> saveAll(List<Receipt> receipts) {
+        if (receipts.isEmpty()) {
+            return receipts;
+        }
+        // Because of CascadeType.ALL, this also saves all the items.
+        List<Receipt> saved = receiptRepository.saveAll(receipts);
+        changeLogService.receiptsSaved(saved.get(0).getUser().getId(), saved);
+        spendingRollupService.receiptsAdded(saved);
+        return saved;
+    }
+}
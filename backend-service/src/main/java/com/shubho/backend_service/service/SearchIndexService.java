@@ -0,0 +1,198 @@
+package com.shubho.backend_service.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.shubho.backend_service.model.ReceiptChange;
+import com.shubho.backend_service.model.ReceiptChange.EntityType;
+import com.shubho.backend_service.model.SearchHit.Type;
+import com.shubho.backend_service.model.SearchResults;
+import com.shubho.backend_service.repository.ReceiptChangeRepository;
+import com.shubho.backend_service.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Keeps one UserSearchIndex per active user. An index is built from the database on the
+// user's first search (or after eviction) and then follows the change log: every committed
+// write schedules a catch-up on the ingestion executor (see ChangeLogService.record), which
+// re-reads only the receipts and items logged since the index's version.
+@Service
+public class SearchIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexService.class);
+
+    private static final String RECEIPTS = """
+            SELECT r.id, r.store_name, r.raw_text, r.receipt_date, r.total_amount
+            FROM receipts r
+            WHERE r.user_id = :userId""";
+
+    private static final String ITEMS = """
+            SELECT i.id, i.receipt_id, i.item_name, i.quantity, i.price, r.store_name, r.receipt_date
+            FROM expense_items i JOIN receipts r ON r.id = i.receipt_id
+            WHERE r.user_id = :userId""";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReceiptChangeRepository receiptChangeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("receiptIngestionExecutor")
+    private ExecutorService executor;
+
+    private final LoadingCache<Long, Entry> indexes;
+
+    private record Entry(UserSearchIndex index, ReentrantReadWriteLock lock, AtomicBoolean catchUpQueued) {
+    }
+
+    public SearchIndexService(@Value("${search.index.max-users:1000}") long maxUsers,
+                              @Value("${search.index.idle-eviction:PT1H}") Duration idleEviction) {
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(idleEviction)
+                .build(this::build);
+    }
+
+    public SearchResults search(Long userId, String query, int page, int size) {
+        Entry entry = indexes.get(userId);
+        // Normally the async catch-up got here first; this covers writes it hasn't reached yet
+        if (entry.index().version() < currentVersion(userId)) {
+            catchUp(userId, entry);
+        }
+        entry.lock().readLock().lock();
+        try {
+            return entry.index().search(query, page, size);
+        } finally {
+            entry.lock().readLock().unlock();
+        }
+    }
+
+    // Called once a transaction that wrote this user's receipts or items has committed
+    public void changed(Long userId) {
+        Entry entry = indexes.getIfPresent(userId);
+        if (entry == null || !entry.catchUpQueued().compareAndSet(false, true)) {
+            // Not loaded (it'll be built fresh on the next search) or a catch-up is already queued
+            return;
+        }
+        executor.execute(() -> {
+            entry.catchUpQueued().set(false);
+            try {
+                catchUp(userId, entry);
+            } catch (RuntimeException e) {
+                log.warn("Search index catch-up failed for user {}, dropping the index", userId, e);
+                indexes.invalidate(userId);
+            }
+        });
+    }
+
+    // Throws the user's index away and builds it again from the database
+    public int rebuild(Long userId) {
+        indexes.invalidate(userId);
+        Entry entry = indexes.get(userId);
+        entry.lock().readLock().lock();
+        try {
+            return entry.index().size();
+        } finally {
+            entry.lock().readLock().unlock();
+        }
+    }
+
+    private Entry build(Long userId) {
+        UserSearchIndex index = new UserSearchIndex();
+        // Version first: anything committed while loading is replayed by the next catch-up
+        index.setVersion(currentVersion(userId));
+        Map<String, Object> params = Map.of("userId", userId);
+        jdbcTemplate.query(RECEIPTS, params, (RowCallbackHandler) rs -> index.put(receipt(rs)));
+        jdbcTemplate.query(ITEMS, params, (RowCallbackHandler) rs -> index.put(item(rs)));
+        return new Entry(index, new ReentrantReadWriteLock(), new AtomicBoolean());
+    }
+
+    private void catchUp(Long userId, Entry entry) {
+        entry.lock().writeLock().lock();
+        try {
+            UserSearchIndex index = entry.index();
+            List<ReceiptChange> changes = receiptChangeRepository
+                    .findByUserIdAndVersionGreaterThanOrderByVersionAsc(userId, index.version());
+            if (changes.isEmpty()) {
+                return;
+            }
+            // Latest state per receipt and item: true when deleted
+            Map<Long, Boolean> receipts = new LinkedHashMap<>();
+            Map<Long, Boolean> items = new LinkedHashMap<>();
+            long version = index.version();
+            for (ReceiptChange change : changes) {
+                (change.getEntityType() == EntityType.RECEIPT ? receipts : items)
+                        .put(change.getEntityId(), change.isDeleted());
+                version = Math.max(version, change.getVersion());
+            }
+
+            receipts.forEach((id, deleted) -> {
+                if (deleted) {
+                    index.removeReceipt(id);
+                }
+            });
+            items.forEach((id, deleted) -> {
+                if (deleted) {
+                    index.remove(Type.ITEM, id);
+                }
+            });
+            List<Long> changedReceipts = ids(receipts);
+            List<Long> changedItems = ids(items);
+            if (!changedReceipts.isEmpty()) {
+                Map<String, Object> params = Map.of("userId", userId, "ids", changedReceipts);
+                jdbcTemplate.query(RECEIPTS + " AND r.id IN (:ids)", params, (RowCallbackHandler) rs -> index.put(receipt(rs)));
+                // Items show their receipt's store and date, so they're refreshed with it
+                jdbcTemplate.query(ITEMS + " AND i.receipt_id IN (:ids)", params, (RowCallbackHandler) rs -> index.put(item(rs)));
+            }
+            if (!changedItems.isEmpty()) {
+                jdbcTemplate.query(ITEMS + " AND i.id IN (:ids)", Map.of("userId", userId, "ids", changedItems),
+                        (RowCallbackHandler) rs -> index.put(item(rs)));
+            }
+            index.setVersion(version);
+        } finally {
+            entry.lock().writeLock().unlock();
+        }
+    }
+
+    private long currentVersion(Long userId) {
+        Long version = userRepository.findChangeVersion(userId);
+        return version == null ? 0 : version;
+    }
+
+    private static List<Long> ids(Map<Long, Boolean> state) {
+        return state.entrySet().stream()
+                .filter(entry -> !entry.getValue())
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static UserSearchIndex.Document receipt(ResultSet rs) throws SQLException {
+        return UserSearchIndex.receipt(rs.getLong(1), rs.getString(2), rs.getString(3),
+                rs.getObject(4, LocalDate.class), rs.getObject(5, Double.class));
+    }
+
+    private static UserSearchIndex.Document item(ResultSet rs) throws SQLException {
+        return UserSearchIndex.item(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(6),
+                rs.getObject(7, LocalDate.class), rs.getObject(4, Integer.class), rs.getObject(5, Double.class));
+    }
+}
@@ -0,0 +1,267 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.RollupRebuildReport;
+import com.shubho.backend_service.model.SpendingBucket;
+import com.shubho.backend_service.model.SpendingRollup;
+import com.shubho.backend_service.model.SpendingSummary;
+import com.shubho.backend_service.repository.SpendingRollupRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps spending_rollups in step with the items table. Writers call add/remove with the
+// item amounts they inserted or deleted (an edit is a remove of the old value plus an add of
+// the new one), and the summary API reads only the rollups, never the raw items.
+@Service
+@Transactional
+public class SpendingRollupService {
+
+    public static final String UNCATEGORIZED = "Uncategorized";
+    public static final String UNKNOWN_STORE = "Unknown Store";
+
+    private static final String UPSERT = """
+            INSERT INTO spending_rollups
+                (user_id, rollup_month, category, store_name, total_amount, item_count, min_amount, max_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                total_amount = total_amount + VALUES(total_amount),
+                item_count = item_count + VALUES(item_count),
+                min_amount = LEAST(min_amount, VALUES(min_amount)),
+                max_amount = GREATEST(max_amount, VALUES(max_amount))""";
+
+    private static final String SUBTRACT = """
+            UPDATE spending_rollups SET total_amount = total_amount - ?, item_count = item_count - ?
+            WHERE user_id = ? AND rollup_month = ? AND category = ? AND store_name = ?""";
+
+    private static final String DELETE_EMPTY = """
+            DELETE FROM spending_rollups
+            WHERE user_id = ? AND rollup_month = ? AND category = ? AND store_name = ? AND item_count <= 0""";
+
+    // Min/max can't be maintained by subtraction, so a bucket that lost its extreme value
+    // recomputes them from its own rows (bounded by one user's month/category/store). The
+    // rows are picked the way bucket() keys them: blank categories are Uncategorized, long
+    // ones cut to 100 characters, and undated receipts belong to the current month (the
+    // last parameter of each filter says whether this is it). The trailing condition skips
+    // the subqueries when the removed amounts weren't extremes.
+    private static final String BUCKET_ROWS = """
+            FROM expense_items i JOIN receipts r ON r.id = i.receipt_id
+            WHERE r.user_id = ?
+              AND (r.receipt_date >= ? AND r.receipt_date < ? OR r.receipt_date IS NULL AND ?)
+              AND CASE WHEN TRIM(COALESCE(i.category, '')) = '' THEN ? ELSE LEFT(i.category, 100) END = ?
+              AND COALESCE(r.store_name, ?) = ?""";
+
+    private static final String REFRESH_EXTREMES = """
+            UPDATE spending_rollups SET
+                min_amount = (SELECT MIN(COALESCE(i.quantity, 1) * COALESCE(i.price, 0)) %s),
+                max_amount = (SELECT MAX(COALESCE(i.quantity, 1) * COALESCE(i.price, 0)) %s)
+            WHERE user_id = ? AND rollup_month = ? AND category = ? AND store_name = ?
+              AND (min_amount >= ? OR max_amount <= ?)""".formatted(BUCKET_ROWS, BUCKET_ROWS);
+
+    private static final String RECOMPUTE = """
+            SELECT YEAR(r.receipt_date), MONTH(r.receipt_date),
+                   COALESCE(i.category, ?), COALESCE(r.store_name, ?),
+                   SUM(COALESCE(i.quantity, 1) * COALESCE(i.price, 0)), COUNT(*),
+                   MIN(COALESCE(i.quantity, 1) * COALESCE(i.price, 0)),
+                   MAX(COALESCE(i.quantity, 1) * COALESCE(i.price, 0))
+            FROM expense_items i JOIN receipts r ON r.id = i.receipt_id
+            WHERE r.user_id = ?
+            GROUP BY YEAR(r.receipt_date), MONTH(r.receipt_date), COALESCE(i.category, ?), COALESCE(r.store_name, ?)""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SpendingRollupRepository spendingRollupRepository;
+
+    // The part of an item that the rollups care about
+    public record ItemAmount(SpendingRollup.Key bucket, double amount) {
+
+        public static ItemAmount of(Receipt receipt, ExpenseItem item) {
+            return of(receipt.getUser().getId(), receipt.getReceiptDate(), receipt.getStoreName(),
+                    item.getCategory(), item.getQuantity(), item.getPrice());
+        }
+
+        public static ItemAmount of(Long userId, LocalDate receiptDate, String storeName, String category,
+                                    Integer quantity, Double price) {
+            return new ItemAmount(SpendingRollupService.bucket(userId, receiptDate, storeName, category),
+                    (quantity == null ? 1 : quantity) * (price == null ? 0 : price));
+        }
+    }
+
+    record Aggregate(double total, long count, double min, double max) {
+
+        static Aggregate of(double amount) {
+            return new Aggregate(amount, 1, amount, amount);
+        }
+
+        static Aggregate merge(Aggregate a, Aggregate b) {
+            return new Aggregate(a.total() + b.total(), a.count() + b.count(),
+                    Math.min(a.min(), b.min()), Math.max(a.max(), b.max()));
+        }
+    }
+
+    public static SpendingRollup.Key bucket(Long userId, LocalDate receiptDate, String storeName, String category) {
+        LocalDate date = receiptDate == null ? LocalDate.now() : receiptDate;
+        String categoryKey = category == null || category.isBlank() ? UNCATEGORIZED : truncate(category, 100);
+        String storeKey = storeName == null ? UNKNOWN_STORE : truncate(storeName, 255);
+        return new SpendingRollup.Key(userId, date.withDayOfMonth(1), categoryKey, storeKey);
+    }
+
+    public void receiptsAdded(Collection<Receipt> receipts) {
+        List<ItemAmount> amounts = new ArrayList<>();
+        for (Receipt receipt : receipts) {
+            if (receipt.getItems() != null) {
+                receipt.getItems().forEach(item -> amounts.add(ItemAmount.of(receipt, item)));
+            }
+        }
+        add(amounts);
+    }
+
+    public void add(Collection<ItemAmount> amounts) {
+        // Aggregate first so a 60-line receipt becomes one upsert per bucket, not 60
+        Map<SpendingRollup.Key, Aggregate> buckets = aggregate(amounts);
+        if (buckets.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT, buckets.entrySet().stream()
+                .map(entry -> {
+                    SpendingRollup.Key key = entry.getKey();
+                    Aggregate value = entry.getValue();
+                    return new Object[]{key.userId(), Date.valueOf(key.month()), key.category(), key.storeName(),
+                            value.total(), value.count(), value.min(), value.max()};
+                })
+                .toList());
+    }
+
+    public void remove(Collection<ItemAmount> amounts) {
+        if (amounts.isEmpty()) {
+            return;
+        }
+        // The recompute below reads expense_items, so pending JPA deletes/updates go first
+        entityManager.flush();
+        aggregate(amounts).forEach((key, removed) -> {
+            Object[] keyArgs = {key.userId(), Date.valueOf(key.month()), key.category(), key.storeName()};
+            jdbcTemplate.update(SUBTRACT, removed.total(), removed.count(), keyArgs[0], keyArgs[1], keyArgs[2], keyArgs[3]);
+            if (jdbcTemplate.update(DELETE_EMPTY, keyArgs) == 0) {
+                refreshExtremes(key, removed);
+            }
+        });
+    }
+
+    private void refreshExtremes(SpendingRollup.Key key, Aggregate removed) {
+        Date start = Date.valueOf(key.month());
+        Date end = Date.valueOf(key.month().plusMonths(1));
+        boolean currentMonth = key.month().equals(LocalDate.now().withDayOfMonth(1));
+        Object[] filter = {key.userId(), start, end, currentMonth, UNCATEGORIZED, key.category(),
+                UNKNOWN_STORE, key.storeName()};
+        List<Object> args = new ArrayList<>(List.of(filter));
+        args.addAll(List.of(filter));
+        args.addAll(List.of(key.userId(), start, key.category(), key.storeName(), removed.min(), removed.max()));
+        jdbcTemplate.update(REFRESH_EXTREMES, args.toArray());
+    }
+
+    // Package-private for ReceiptTotalsBenchmark
+    static Map<SpendingRollup.Key, Aggregate> aggregate(Collection<ItemAmount> amounts) {
+        Map<SpendingRollup.Key, Aggregate> buckets = new LinkedHashMap<>();
+        for (ItemAmount amount : amounts) {
+            buckets.merge(amount.bucket(), Aggregate.of(amount.amount()), Aggregate::merge);
+        }
+        return buckets;
+    }
+
+    @Transactional(readOnly = true)
+    public SpendingSummary summarize(Long userId, YearMonth from, YearMonth to, String groupBy) {
+        LocalDate fromMonth = from.atDay(1);
+        LocalDate toMonth = to.atDay(1);
+        List<Object[]> rows = switch (groupBy) {
+            case "month" -> spendingRollupRepository.summarizeByMonth(userId, fromMonth, toMonth);
+            case "category" -> spendingRollupRepository.summarizeByCategory(userId, fromMonth, toMonth);
+            case "store" -> spendingRollupRepository.summarizeByStore(userId, fromMonth, toMonth);
+            default -> throw new IllegalArgumentException("groupBy must be month, category or store");
+        };
+
+        List<SpendingBucket> buckets = rows.stream()
+                .map(row -> new SpendingBucket(
+                        row[0] instanceof LocalDate month ? YearMonth.from(month).toString() : String.valueOf(row[0]),
+                        ((Number) row[1]).doubleValue(),
+                        ((Number) row[2]).longValue(),
+                        row[3] == null ? null : ((Number) row[3]).doubleValue(),
+                        row[4] == null ? null : ((Number) row[4]).doubleValue()))
+                .toList();
+        double total = buckets.stream().mapToDouble(SpendingBucket::total).sum();
+        long count = buckets.stream().mapToLong(SpendingBucket::count).sum();
+        return new SpendingSummary(from, to, groupBy, total, count, buckets);
+    }
+
+    // Recomputes a user's rollups from the raw rows, compares them with what incremental
+    // maintenance produced, and replaces them with the recomputed values
+    public RollupRebuildReport rebuild(Long userId) {
+        entityManager.flush();
+        Map<SpendingRollup.Key, Aggregate> expected = new HashMap<>();
+        jdbcTemplate.query(RECOMPUTE, rs -> {
+            int year = rs.getInt(1);
+            // Receipts without a date (only older ones) count towards the current month, as in bucket()
+            LocalDate month = rs.wasNull() ? null : LocalDate.of(year, rs.getInt(2), 1);
+            SpendingRollup.Key key = bucket(userId, month, rs.getString(4), rs.getString(3));
+            Aggregate value = new Aggregate(rs.getDouble(5), rs.getLong(6), rs.getDouble(7), rs.getDouble(8));
+            expected.merge(key, value, Aggregate::merge);
+        }, UNCATEGORIZED, UNKNOWN_STORE, userId, UNCATEGORIZED, UNKNOWN_STORE);
+
+        List<SpendingRollup> current = spendingRollupRepository.findByIdUserId(userId);
+        int mismatches = 0;
+        for (SpendingRollup rollup : current) {
+            Aggregate value = expected.get(rollup.getId());
+            if (value == null || !agrees(rollup, value)) {
+                mismatches++;
+            }
+        }
+        Map<SpendingRollup.Key, SpendingRollup> currentByKey = new HashMap<>();
+        current.forEach(rollup -> currentByKey.put(rollup.getId(), rollup));
+        for (SpendingRollup.Key key : expected.keySet()) {
+            if (!currentByKey.containsKey(key)) {
+                mismatches++;
+            }
+        }
+
+        spendingRollupRepository.deleteByUserId(userId);
+        entityManager.clear();
+        jdbcTemplate.batchUpdate(UPSERT, expected.entrySet().stream()
+                .map(entry -> new Object[]{userId, Date.valueOf(entry.getKey().month()), entry.getKey().category(),
+                        entry.getKey().storeName(), entry.getValue().total(), entry.getValue().count(),
+                        entry.getValue().min(), entry.getValue().max()})
+                .toList());
+        return new RollupRebuildReport(userId, current.size(), expected.size(), mismatches);
+    }
+
+    private static boolean agrees(SpendingRollup rollup, Aggregate value) {
+        return rollup.getItemCount() == value.count()
+                && Math.abs(rollup.getTotalAmount() - value.total()) < 0.005
+                && closeTo(rollup.getMinAmount(), value.min())
+                && closeTo(rollup.getMaxAmount(), value.max());
+    }
+
+    private static boolean closeTo(Double actual, double expected) {
+        return actual != null && Math.abs(actual - expected) < 0.005;
+    }
+
+    private static String truncate(String value, int length) {
+        return value.length() <= length ? value : value.substring(0, length);
+    }
+}
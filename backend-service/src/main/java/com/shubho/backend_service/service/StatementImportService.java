@@ -0,0 +1,266 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.ImportJob;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.User;
+import com.shubho.backend_service.repository.UserRepository;
+import com.shubho.backend_service.service.StatementParser.ChargeSign;
+import com.shubho.backend_service.service.StatementParser.Format;
+import com.shubho.backend_service.service.StatementParser.Sink;
+import com.shubho.backend_service.service.StatementParser.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+// Imports bank/card statements as receipts with a single line item each. The file is parsed
+// as a stream, and receipts are written through ReceiptWriteService in transactions of
+// `commitInterval` receipts (Hibernate sends the inserts in JDBC batches), so neither the
+// heap nor a transaction grows with the statement.
+@Service
+public class StatementImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementImportService.class);
+
+    private static final int MAX_STORE_NAME_LENGTH = 255;
+
+    // Covered by the (user_id, receipt_date) index
+    private static final String EXISTING = """
+            SELECT receipt_date, total_amount, store_name
+            FROM receipts
+            WHERE user_id = ? AND receipt_date BETWEEN ? AND ?""";
+
+    @Autowired
+    private ReceiptWriteService receiptWriteService;
+
+    @Autowired
+    private ItemCategorizer itemCategorizer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("receiptIngestionExecutor")
+    private ExecutorService executor;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Semaphore running;
+    private final int maxConcurrent;
+    private final int commitInterval;
+    private final Duration retention;
+
+    public StatementImportService(@Value("${receipts.import.max-concurrent:2}") int maxConcurrent,
+                                  @Value("${receipts.import.commit-interval:1000}") int commitInterval,
+                                  @Value("${receipts.import.job-retention:PT1H}") Duration retention) {
+        this.running = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.commitInterval = commitInterval;
+        this.retention = retention;
+    }
+
+    // Starts importing a statement that has been saved to `file`, which is deleted afterwards
+    public ImportJob submit(Path file, String fileName, Format format, ChargeSign charges,
+                            DateTimeFormatter dateFormat, Long userId) {
+        purgeFinishedJobs();
+        if (!running.tryAcquire()) {
+            throw new RejectedExecutionException("Too many statement imports in progress, try again later");
+        }
+        ImportJob job = new ImportJob(userId, fileName, format.name());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, file, format, charges, dateFormat));
+        } catch (RejectedExecutionException e) {
+            running.release();
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> findJob(String jobId, Long userId) {
+        return Optional.ofNullable(jobs.get(jobId))
+                .filter(job -> job.getUserId().equals(userId));
+    }
+
+    public int runningImports() {
+        return maxConcurrent - running.availablePermits();
+    }
+
+    private void run(ImportJob job, Path file, Format format, ChargeSign charges, DateTimeFormatter dateFormat) {
+        try {
+            job.markRunning();
+            importStatement(job, file, format, charges, dateFormat);
+            job.markDone();
+            log.info("Imported statement {}: {} receipts, {} duplicates, {} skipped", job.getFileName(),
+                    job.getImported(), job.getDuplicates(), job.getSkipped());
+        } catch (Exception e) {
+            log.warn("Statement import {} failed", job.getId(), e);
+            job.markFailed(e.getMessage());
+        } finally {
+            running.release();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete {}", file, e);
+            }
+        }
+    }
+
+    // Two passes over the file: the first only finds the date range, so the receipts the
+    // user already has in it are loaded with one index range scan instead of a lookup per row
+    void importStatement(ImportJob job, Path file, Format format, ChargeSign charges,
+                         DateTimeFormatter dateFormat) throws IOException {
+        LocalDate[] range = new LocalDate[2];
+        parse(file, format, charges, dateFormat, new Sink() {
+            @Override
+            public void transaction(Transaction transaction) {
+                if (range[0] == null || transaction.date().isBefore(range[0])) {
+                    range[0] = transaction.date();
+                }
+                if (range[1] == null || transaction.date().isAfter(range[1])) {
+                    range[1] = transaction.date();
+                }
+            }
+
+            @Override
+            public void skipped(long line, String reason) {
+            }
+        });
+        Map<String, Integer> existing = range[0] == null ? Map.of() : existingKeys(job.getUserId(), range[0], range[1]);
+
+        User user = userRepository.getReferenceById(job.getUserId());
+        List<Receipt> pending = new ArrayList<>(commitInterval);
+        parse(file, format, charges, dateFormat, new Sink() {
+            @Override
+            public void transaction(Transaction transaction) {
+                job.transactionRead();
+                String storeName = storeName(transaction.merchant());
+                // Counted, so two identical charges on one day are kept if only one exists
+                String key = key(transaction.date(), cents(transaction), storeName);
+                Integer copies = existing.get(key);
+                if (copies != null && copies > 0) {
+                    existing.put(key, copies - 1);
+                    job.duplicate();
+                    return;
+                }
+                pending.add(toReceipt(transaction, storeName, user));
+                if (pending.size() >= commitInterval) {
+                    commit(pending, job);
+                }
+            }
+
+            @Override
+            public void skipped(long line, String reason) {
+                job.skipped(line, reason);
+            }
+        });
+        commit(pending, job);
+    }
+
+    private void commit(List<Receipt> receipts, ImportJob job) {
+        if (receipts.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> receiptWriteService.saveAll(receipts));
+        job.imported(receipts.size());
+        receipts.clear();
+    }
+
+    private Receipt toReceipt(Transaction transaction, String storeName, User user) {
+        double amount = transaction.amount().setScale(2, RoundingMode.HALF_UP).doubleValue();
+        Receipt receipt = new Receipt();
+        receipt.setUser(user);
+        receipt.setStoreName(storeName);
+        receipt.setReceiptDate(transaction.date());
+        receipt.setTotalAmount(amount);
+        receipt.setTotalDiscount(0.0);
+
+        ExpenseItem item = new ExpenseItem();
+        item.setItemName(storeName);
+        item.setQuantity(1);
+        item.setPrice(amount);
+        item.setReceipt(receipt);
+        receipt.setItems(new ArrayList<>(List.of(item)));
+        itemCategorizer.categorize(receipt);
+        return receipt;
+    }
+
+    private Map<String, Integer> existingKeys(Long userId, LocalDate from, LocalDate to) {
+        Map<String, Integer> keys = new HashMap<>();
+        jdbcTemplate.query(EXISTING, (RowCallbackHandler) rs -> {
+            Double total = rs.getObject(2, Double.class);
+            String storeName = rs.getString(3);
+            if (total != null && storeName != null) {
+                keys.merge(key(rs.getObject(1, LocalDate.class), Math.round(total * 100), storeName), 1, Integer::sum);
+            }
+        }, userId, Date.valueOf(from), Date.valueOf(to));
+        return keys;
+    }
+
+    private static void parse(Path file, Format format, ChargeSign charges, DateTimeFormatter dateFormat, Sink sink)
+            throws IOException {
+        try (Reader reader = new BufferedReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), 64 * 1024)) {
+            if (format == Format.OFX) {
+                StatementParser.parseOfx(reader, sink);
+            } else {
+                StatementParser.parseCsv(reader, charges, dateFormat, sink);
+            }
+        }
+    }
+
+    private static String storeName(String merchant) {
+        String name = merchant.strip().replaceAll("\\s+", " ");
+        if (name.isEmpty()) {
+            return SpendingRollupService.UNKNOWN_STORE;
+        }
+        return name.length() <= MAX_STORE_NAME_LENGTH ? name : name.substring(0, MAX_STORE_NAME_LENGTH);
+    }
+
+    private static long cents(Transaction transaction) {
+        return transaction.amount().setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    private static String key(LocalDate date, long cents, String storeName) {
+        return date + "|" + cents + "|" + storeName.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private void purgeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,368 @@
+package com.shubho.backend_service.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Streaming parsers for bank/card statement exports. Both read one record at a time from the
+// Reader and hand each charge to a Sink, so a statement of any length is parsed in constant
+// memory. Charges are reported as positive amounts; credits (refunds, payments) are skipped.
+public final class StatementParser {
+
+    public enum Format {
+        CSV, OFX
+    }
+
+    // Which sign a single "Amount" column uses for money spent. Banks usually export spending
+    // as negative, card issuers often as positive.
+    public enum ChargeSign {
+        NEGATIVE, POSITIVE
+    }
+
+    public record Transaction(long line, LocalDate date, String merchant, BigDecimal amount) {
+    }
+
+    public interface Sink {
+        void transaction(Transaction transaction);
+
+        void skipped(long line, String reason);
+    }
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("M/d/uuuu"),
+            DateTimeFormatter.ofPattern("M/d/uu"),
+            DateTimeFormatter.ofPattern("d.M.uuuu"),
+            DateTimeFormatter.BASIC_ISO_DATE,
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("d MMM uuuu").toFormatter(Locale.ENGLISH),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("MMM d, uuuu").toFormatter(Locale.ENGLISH),
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("d-MMM-uu").toFormatter(Locale.ENGLISH));
+
+    private static final List<String> MERCHANT_COLUMNS = List.of("merchant", "payee", "description", "name", "details", "memo");
+
+    private StatementParser() {
+    }
+
+    // CSV with a header row naming a date column, a description column and either an amount
+    // column or separate debit/credit columns. The delimiter (comma, semicolon or tab) is
+    // taken from the header line. dateFormat may be null to try the common formats.
+    public static void parseCsv(Reader reader, ChargeSign charges, DateTimeFormatter dateFormat, Sink sink)
+            throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.header();
+        if (header == null) {
+            return;
+        }
+        int date = column(header, List.of("transaction date", "posted date", "posting date", "date"));
+        int merchant = column(header, MERCHANT_COLUMNS);
+        int amount = column(header, List.of("amount"));
+        int debit = column(header, List.of("debit", "withdrawal", "money out"));
+        int credit = column(header, List.of("credit", "deposit", "money in"));
+        if (amount == debit || amount == credit) {
+            // Only "Debit Amount" / "Credit Amount" columns, no plain amount
+            amount = -1;
+        }
+        if (date < 0 || merchant < 0 || (amount < 0 && debit < 0)) {
+            throw new IllegalArgumentException("CSV header must name a date, a description and an amount or debit column");
+        }
+
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            long line = csv.recordNumber();
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            LocalDate posted = parseDate(field(record, date), dateFormat);
+            if (posted == null) {
+                sink.skipped(line, "Unreadable date '" + field(record, date) + "'");
+                continue;
+            }
+            BigDecimal spent;
+            if (debit >= 0 && !field(record, debit).isBlank()) {
+                spent = parseAmount(field(record, debit));
+                spent = spent == null ? null : spent.abs();
+            } else if (amount >= 0) {
+                spent = parseAmount(field(record, amount));
+                if (spent != null && charges == ChargeSign.NEGATIVE) {
+                    spent = spent.negate();
+                }
+            } else if (credit >= 0 && !field(record, credit).isBlank()) {
+                sink.skipped(line, "Credit");
+                continue;
+            } else {
+                spent = null;
+            }
+            if (spent == null) {
+                sink.skipped(line, "Unreadable amount");
+            } else if (spent.signum() <= 0) {
+                sink.skipped(line, "Credit");
+            } else {
+                sink.transaction(new Transaction(line, posted, field(record, merchant).strip(), spent));
+            }
+        }
+    }
+
+    // OFX/QFX, either the SGML flavour (1.x, leaf tags without end tags) or XML (2.x). Only
+    // the STMTTRN blocks are read; negative TRNAMT values are charges.
+    public static void parseOfx(Reader reader, Sink sink) throws IOException {
+        OfxScanner ofx = new OfxScanner(reader);
+        long transactions = 0;
+        String posted = null;
+        String amount = null;
+        String name = null;
+        String memo = null;
+        boolean inTransaction = false;
+        String tag;
+        while ((tag = ofx.nextTag()) != null) {
+            switch (tag) {
+                case "STMTTRN" -> {
+                    inTransaction = true;
+                    posted = amount = name = memo = null;
+                }
+                case "/STMTTRN" -> {
+                    inTransaction = false;
+                    long line = ++transactions;
+                    // DTPOSTED is YYYYMMDD, optionally followed by a time and zone
+                    LocalDate date = posted == null || posted.length() < 8 ? null
+                            : parseDate(posted.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+                    BigDecimal value = amount == null ? null : parseAmount(amount);
+                    String merchant = name != null && !name.isBlank() ? name : memo;
+                    if (date == null) {
+                        sink.skipped(line, "Unreadable DTPOSTED '" + posted + "'");
+                    } else if (value == null) {
+                        sink.skipped(line, "Unreadable TRNAMT '" + amount + "'");
+                    } else if (value.signum() >= 0) {
+                        sink.skipped(line, "Credit");
+                    } else {
+                        sink.transaction(new Transaction(line, date, merchant == null ? "" : merchant.strip(), value.negate()));
+                    }
+                }
+                case "DTPOSTED" -> posted = inTransaction ? ofx.value() : posted;
+                case "TRNAMT" -> amount = inTransaction ? ofx.value() : amount;
+                case "NAME" -> name = inTransaction ? ofx.value() : name;
+                case "MEMO" -> memo = inTransaction ? ofx.value() : memo;
+                default -> {
+                }
+            }
+        }
+    }
+
+    static LocalDate parseDate(String text, DateTimeFormatter format) {
+        String value = text.strip();
+        if (value.isEmpty()) {
+            return null;
+        }
+        for (DateTimeFormatter candidate : format != null ? List.of(format) : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, candidate);
+            } catch (DateTimeParseException e) {
+                // try the next one
+            }
+        }
+        return null;
+    }
+
+    // Accepts currency symbols, thousands separators, decimal commas ("12,50", "1.234,56") and
+    // accounting-style negatives ("(12.50)"), read as in ExtractionDecoder.minorUnits. The one
+    // difference: statement amounts are in cents, so a lone "." before exactly three digits
+    // groups thousands ("1.234") as a lone "," already does. Null when it doesn't read cleanly.
+    static BigDecimal parseAmount(String text) {
+        String value = text.strip();
+        int dot = value.indexOf('.');
+        if (dot >= 0 && value.indexOf('.', dot + 1) < 0 && value.indexOf(',') < 0 && digitsAfter(value, dot) == 3) {
+            value = value.replace('.', ',');
+        }
+        long minor = ExtractionDecoder.minorUnits(value);
+        return minor == ExtractionDecoder.INVALID ? null : BigDecimal.valueOf(minor, 2);
+    }
+
+    // ASCII digits directly after position `at`
+    private static int digitsAfter(String value, int at) {
+        int count = 0;
+        for (int i = at + 1; i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9'; i++) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int column(List<String> header, List<String> names) {
+        for (String name : names) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).equals(name)) {
+                    return i;
+                }
+            }
+        }
+        // Then as part of a longer name ("Transaction Description", "Debit Amount")
+        for (String name : names) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).contains(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> record, int index) {
+        return index < record.size() ? record.get(index) : "";
+    }
+
+    // RFC 4180 records, including quoted fields that span lines
+    private static final class CsvReader {
+
+        private final Reader reader;
+        private char delimiter = ',';
+        private long records;
+        private int peeked = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        // Reads the header record (lower-cased) and picks the delimiter from it
+        List<String> header() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = read()) >= 0 && c != '\n') {
+                line.append((char) c);
+            }
+            if (c < 0 && line.isEmpty()) {
+                return null;
+            }
+            String text = line.toString();
+            if (!text.isEmpty() && text.charAt(0) == '\uFEFF') {
+                text = text.substring(1);
+            }
+            delimiter = mostFrequent(text);
+            records++;
+            List<String> header = new ArrayList<>();
+            for (String name : split(text)) {
+                header.add(name.strip().toLowerCase(Locale.ROOT));
+            }
+            return header;
+        }
+
+        long recordNumber() {
+            return records;
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            records++;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c >= 0) {
+                if (quoted) {
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            unread(following);
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private List<String> split(String line) throws IOException {
+            CsvReader single = new CsvReader(new StringReader(line));
+            single.delimiter = delimiter;
+            List<String> fields = single.next();
+            return fields == null ? List.of() : fields;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private void unread(int c) {
+            peeked = c;
+        }
+
+        private static char mostFrequent(String line) {
+            char best = ',';
+            long bestCount = -1;
+            for (char candidate : new char[]{',', ';', '\t'}) {
+                long count = line.chars().filter(ch -> ch == candidate).count();
+                if (count > bestCount) {
+                    best = candidate;
+                    bestCount = count;
+                }
+            }
+            return best;
+        }
+    }
+
+    // Tokenizes OFX into tag names (upper-cased, "/NAME" for end tags) and the text after them
+    private static final class OfxScanner {
+
+        private final Reader reader;
+        private final StringBuilder text = new StringBuilder();
+        private int pending = -1;
+
+        OfxScanner(Reader reader) {
+            this.reader = reader;
+        }
+
+        String nextTag() throws IOException {
+            int c = pending >= 0 ? pending : reader.read();
+            pending = -1;
+            while (c >= 0 && c != '<') {
+                c = reader.read();
+            }
+            if (c < 0) {
+                return null;
+            }
+            StringBuilder tag = new StringBuilder();
+            while ((c = reader.read()) >= 0 && c != '>') {
+                tag.append((char) c);
+            }
+            // Read the text up to the next tag, for value()
+            text.setLength(0);
+            while ((c = reader.read()) >= 0 && c != '<') {
+                text.append((char) c);
+            }
+            pending = c;
+            return tag.toString().strip().toUpperCase(Locale.ROOT);
+        }
+
+        String value() {
+            return text.toString().strip()
+                    .replace("&amp;", "&").replace("&lt;", "<").replace("&gt;", ">");
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.shubho.backend_service.service;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.shubho.backend_service.config.TokenProperties;
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.model.TokenPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtIssuerValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Issues and verifies the HS256 tokens used when auth.mode=token. An access token names the
+// user and carries their id, so verifying one needs nothing but the key set: no session and
+// no database, and any instance can serve any request. Every configured key verifies (picked
+// by the token's kid) but only the active one signs, which is what makes rotation possible.
+@Service
+@ConditionalOnProperty(name = "auth.mode", havingValue = "token")
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String TYPE_CLAIM = "typ";
+
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final String EPHEMERAL_KEY_ID = "ephemeral";
+
+    private final UserIdCache userIdCache;
+    private final String issuer;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final String activeKeyId;
+    private final JwtEncoder encoder;
+    private final JwtDecoder accessDecoder;
+    private final JwtDecoder refreshDecoder;
+
+    public TokenService(TokenProperties properties, UserIdCache userIdCache) {
+        this.userIdCache = userIdCache;
+        this.issuer = properties.issuer();
+        this.accessTtl = properties.accessTtl();
+        this.refreshTtl = properties.refreshTtl();
+
+        List<JWK> keys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : properties.keys().entrySet()) {
+            keys.add(signingKey(entry.getKey(), decodeSecret(entry.getKey(), entry.getValue())));
+        }
+        if (keys.isEmpty()) {
+            byte[] secret = new byte[MIN_KEY_BYTES];
+            new SecureRandom().nextBytes(secret);
+            keys.add(signingKey(EPHEMERAL_KEY_ID, secret));
+            this.activeKeyId = EPHEMERAL_KEY_ID;
+            log.warn("No auth.token.keys configured, signing with a random key: tokens won't survive a restart "
+                    + "or be accepted by other instances");
+        } else if (properties.activeKey() == null || properties.activeKey().isBlank()) {
+            if (keys.size() > 1) {
+                throw new IllegalStateException("auth.token.active-key must name one of " + properties.keys().keySet());
+            }
+            this.activeKeyId = keys.get(0).getKeyID();
+        } else if (properties.keys().containsKey(properties.activeKey())) {
+            this.activeKeyId = properties.activeKey();
+        } else {
+            throw new IllegalStateException("auth.token.active-key '" + properties.activeKey()
+                    + "' is not one of " + properties.keys().keySet());
+        }
+
+        JWKSource<SecurityContext> keySource = new ImmutableJWKSet<>(new JWKSet(keys));
+        this.encoder = new NimbusJwtEncoder(keySource);
+        this.accessDecoder = decoder(keySource, ACCESS);
+        this.refreshDecoder = decoder(keySource, REFRESH);
+    }
+
+    public TokenPair issue(AuthenticatedUser user) {
+        Instant now = Instant.now();
+        return new TokenPair(
+                encode(user, ACCESS, now, accessTtl),
+                encode(user, REFRESH, now, refreshTtl),
+                "Bearer",
+                accessTtl.toSeconds());
+    }
+
+    // Trades a valid refresh token for a new pair. Unlike access checks this reads the user
+    // table (not the id cache; one query per user per access-token lifetime), so a deleted
+    // user stops getting access tokens at the next refresh.
+    public TokenPair refresh(String refreshToken) {
+        Jwt jwt = refreshDecoder.decode(refreshToken);
+        AuthenticatedUser user = principal(jwt);
+        if (!user.getId().equals(userIdCache.currentIdOf(user.getUsername()))) {
+            throw new BadJwtException("Refresh token belongs to a user that no longer exists");
+        }
+        return issue(user);
+    }
+
+    // Verifies signature, issuer, expiry and that the token is an access token
+    public JwtDecoder accessTokenDecoder() {
+        return accessDecoder;
+    }
+
+    public static AuthenticatedUser principal(Jwt jwt) {
+        Object id = jwt.getClaim(USER_ID_CLAIM);
+        if (!(id instanceof Number number)) {
+            throw new BadJwtException("Token has no user id");
+        }
+        return new AuthenticatedUser(number.longValue(), jwt.getSubject());
+    }
+
+    private String encode(AuthenticatedUser user, String type, Instant now, Duration ttl) {
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).keyId(activeKeyId).build();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer(issuer)
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(TYPE_CLAIM, type)
+                .id(UUID.randomUUID().toString())
+                .issuedAt(now)
+                .expiresAt(now.plus(ttl))
+                .build();
+        return encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    }
+
+    private JwtDecoder decoder(JWKSource<SecurityContext> keySource, String type) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.HS256, keySource));
+        // Claims are checked by the Spring validators below instead
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithValidators(
+                new JwtIssuerValidator(issuer),
+                new JwtClaimValidator<String>(TYPE_CLAIM, type::equals),
+                new JwtClaimValidator<Instant>(JwtClaimNames.EXP, exp -> exp != null)));
+        return decoder;
+    }
+
+    private static JWK signingKey(String keyId, byte[] secret) {
+        return new OctetSequenceKey.Builder(secret)
+                .keyID(keyId)
+                .algorithm(JWSAlgorithm.HS256)
+                .keyUse(KeyUse.SIGNATURE)
+                .build();
+    }
+
+    private static byte[] decodeSecret(String keyId, String secret) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(secret.strip());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("auth.token.keys." + keyId + " is not valid base64", e);
+        }
+        if (bytes.length < MIN_KEY_BYTES) {
+            throw new IllegalStateException("auth.token.keys." + keyId + " must be at least " + MIN_KEY_BYTES + " bytes");
+        }
+        return bytes;
+    }
+}
@@ -1,32 +1,53 @@
 package com.shubho.backend_service.service;
 
+import com.shubho.backend_service.model.AuthenticatedUser;
 import com.shubho.backend_service.model.User;
 import com.shubho.backend_service.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserIdCache userIdCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // Find our custom User entity from the database
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        // Convert our User entity into Spring Security's UserDetails object
-        return new org.springframework.security.core.userdetails.User(
+        userIdCache.put(user.getUsername(), user.getId());
+
+        // Convert our User entity into our UserDetails principal, which keeps the user's id
+        return new AuthenticatedUser(
+                user.getId(),
                 user.getUsername(),
                 user.getPassword(),
                 new ArrayList<>() // Empty list for authorities/roles for now
         );
     }
-}
\ No newline at end of file
+
+    // Called by Spring Security after a successful login whose stored hash is out of date
+    // (untagged, or a lower BCrypt cost than configured), with the password re-hashed
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        Long id = user instanceof AuthenticatedUser authenticated
+                ? authenticated.getId()
+                : userIdCache.idOf(user.getUsername());
+        return new AuthenticatedUser(id, user.getUsername(), newPassword, user.getAuthorities());
+    }
+}
@@ -0,0 +1,66 @@
+package com.shubho.backend_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shubho.backend_service.model.User;
+import com.shubho.backend_service.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+// Bounded username -> users.id map for the places that only have a name (principals that
+// aren't an AuthenticatedUser). Usernames never change today, but anything that renames or
+// deletes a user must call evict().
+@Service
+public class UserIdCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Cache<String, Long> ids;
+
+    public UserIdCache(@Value("${users.id-cache.max-entries:10000}") long maxEntries,
+                       @Value("${users.id-cache.ttl:PT30M}") Duration ttl) {
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Long idOf(String username) {
+        // Unknown names aren't cached, so a user registered a moment later is still found
+        Long id = ids.get(username, name -> userRepository.findByUsername(name).map(User::getId).orElse(null));
+        if (id == null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        return id;
+    }
+
+    // Reads the users table, bypassing the cache, and brings the cached entry in line with it.
+    // For checks that must see a deleted user as gone right away.
+    public Long currentIdOf(String username) {
+        Long id = userRepository.findByUsername(username).map(User::getId).orElse(null);
+        if (id == null) {
+            ids.invalidate(username);
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        ids.put(username, id);
+        return id;
+    }
+
+    // A JPA reference for associations, without loading the row
+    public User referenceTo(String username) {
+        return userRepository.getReferenceById(idOf(username));
+    }
+
+    public void put(String username, Long id) {
+        ids.put(username, id);
+    }
+
+    public void evict(String username) {
+        ids.invalidate(username);
+    }
+}
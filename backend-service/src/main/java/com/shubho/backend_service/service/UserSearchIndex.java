@@ -0,0 +1,221 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.SearchHit;
+import com.shubho.backend_service.model.SearchHit.Type;
+import com.shubho.backend_service.model.SearchResults;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+// In-memory inverted index over one user's receipts and line items. Words come from the
+// normalized text (see KeywordMatcher.normalize). A query word matches an indexed word
+// exactly, as a prefix, or within a small edit distance, weighted in that order; hits that
+// match more of the query words rank first, then by tf-idf style score, then newest.
+// Not thread-safe: SearchIndexService guards each index with a read/write lock.
+public final class UserSearchIndex {
+
+    private static final float STORE_WEIGHT = 3f;
+    private static final float ITEM_NAME_WEIGHT = 2f;
+    private static final float RAW_TEXT_WEIGHT = 1f;
+
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.6;
+    private static final double FUZZY = 0.4;
+
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    // Indexed text is reduced to word -> weight; only what a hit displays is kept verbatim
+    public record Document(Type type, long id, long receiptId, String title, String storeName, LocalDate date,
+                           Double amount, Map<String, Float> words) {
+    }
+
+    private final Map<String, Document> documents = new HashMap<>();
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private long version;
+
+    public static Document receipt(long id, String storeName, String rawText, LocalDate date, Double total) {
+        Map<String, Float> words = new HashMap<>();
+        addWords(words, storeName, STORE_WEIGHT);
+        addWords(words, rawText, RAW_TEXT_WEIGHT);
+        return new Document(Type.RECEIPT, id, id, storeName, storeName, date, total, words);
+    }
+
+    public static Document item(long id, long receiptId, String itemName, String storeName, LocalDate date,
+                                Integer quantity, Double price) {
+        Map<String, Float> words = new HashMap<>();
+        addWords(words, itemName, ITEM_NAME_WEIGHT);
+        Double amount = price == null ? null : price * (quantity == null ? 1 : quantity);
+        return new Document(Type.ITEM, id, receiptId, itemName, storeName, date, amount, words);
+    }
+
+    // The user's change version this index reflects (see ChangeLogService)
+    public long version() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public void put(Document document) {
+        String key = key(document.type(), document.id());
+        removeKey(key);
+        documents.put(key, document);
+        document.words().forEach((word, weight) -> postings.computeIfAbsent(word, w -> new HashMap<>()).put(key, weight));
+    }
+
+    public void remove(Type type, long id) {
+        removeKey(key(type, id));
+    }
+
+    // Drops a receipt and every item indexed under it
+    public void removeReceipt(long receiptId) {
+        List<String> keys = documents.entrySet().stream()
+                .filter(entry -> entry.getValue().receiptId() == receiptId)
+                .map(Map.Entry::getKey)
+                .toList();
+        keys.forEach(this::removeKey);
+    }
+
+    public SearchResults search(String query, int page, int size) {
+        Set<String> queryWords = new LinkedHashSet<>(words(query));
+        if (queryWords.isEmpty()) {
+            return new SearchResults(query, 0, page, size, List.of());
+        }
+        Map<String, double[]> scores = new HashMap<>(); // key -> {words matched, score}
+        queryWords.stream().limit(MAX_QUERY_WORDS).forEach(queryWord -> {
+            // A document counts once per query word, with its best-matching indexed word
+            Map<String, Double> best = new HashMap<>();
+            matchingWords(queryWord).forEach((word, weight) -> {
+                Map<String, Float> posting = postings.get(word);
+                double idf = Math.log(1 + (double) documents.size() / posting.size());
+                posting.forEach((key, fieldWeight) -> best.merge(key, weight * idf * fieldWeight, Math::max));
+            });
+            best.forEach((key, score) -> {
+                double[] total = scores.computeIfAbsent(key, k -> new double[2]);
+                total[0]++;
+                total[1] += score;
+            });
+        });
+
+        Comparator<Map.Entry<String, double[]>> ranking = Comparator
+                .<Map.Entry<String, double[]>>comparingDouble(entry -> -entry.getValue()[0])
+                .thenComparingDouble(entry -> -entry.getValue()[1])
+                .thenComparing(entry -> documents.get(entry.getKey()).date(),
+                        Comparator.nullsLast(Comparator.reverseOrder()));
+        List<Map.Entry<String, double[]>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(ranking);
+
+        List<SearchHit> hits = ranked.stream()
+                .skip((long) page * size)
+                .limit(size)
+                .map(entry -> hit(documents.get(entry.getKey()), entry.getValue()[1]))
+                .toList();
+        return new SearchResults(query, ranked.size(), page, size, hits);
+    }
+
+    // Indexed words a query word matches, with the weight of the kind of match
+    private Map<String, Double> matchingWords(String queryWord) {
+        Map<String, Double> matches = new LinkedHashMap<>();
+        if (postings.containsKey(queryWord)) {
+            matches.put(queryWord, EXACT);
+        }
+        for (String word : postings.subMap(queryWord, false, queryWord + Character.MAX_VALUE, false).keySet()) {
+            // Shorter completions are closer to what was typed
+            matches.put(word, PREFIX * (0.5 + 0.5 * queryWord.length() / word.length()));
+        }
+        if (queryWord.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = queryWord.length() >= 8 ? 2 : 1;
+            for (String word : postings.keySet()) {
+                if (!matches.containsKey(word) && Math.abs(word.length() - queryWord.length()) <= maxEdits) {
+                    int edits = editDistance(queryWord, word, maxEdits);
+                    if (edits <= maxEdits) {
+                        matches.put(word, FUZZY / edits);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void removeKey(String key) {
+        Document existing = documents.remove(key);
+        if (existing == null) {
+            return;
+        }
+        for (String word : existing.words().keySet()) {
+            Map<String, Float> posting = postings.get(word);
+            if (posting != null) {
+                posting.remove(key);
+                if (posting.isEmpty()) {
+                    postings.remove(word);
+                }
+            }
+        }
+    }
+
+    private static SearchHit hit(Document document, double score) {
+        return new SearchHit(document.type(), document.id(), document.receiptId(), document.title(),
+                document.storeName(), document.date(), document.amount(), Math.round(score * 1000) / 1000.0);
+    }
+
+    private static String key(Type type, long id) {
+        return (type == Type.RECEIPT ? "r" : "i") + id;
+    }
+
+    private static void addWords(Map<String, Float> words, String text, float weight) {
+        for (String word : words(text)) {
+            words.merge(word, weight, Float::sum);
+        }
+    }
+
+    // Each distinct word once per field, so a word repeated all over a receipt doesn't dominate
+    static List<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : KeywordMatcher.normalize(text).split(" ")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    // Levenshtein distance, giving up (returning max + 1) once it must exceed max
+    static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,45 @@
+-- The schema the application had before migrations took over, as its ddl-auto=update created
+-- it: three tables with AUTO_INCREMENT ids. Existing databases are baselined at this version
+-- (spring.flyway.baseline-on-migrate), so this script only runs on empty ones and must keep
+-- Hibernate's table, column and constraint names for the later migrations to apply to both.
+
+create table expense_items (
+    id bigint not null auto_increment,
+    category varchar(255),
+    item_name varchar(255),
+    price float(53),
+    quantity integer,
+    receipt_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table receipts (
+    id bigint not null auto_increment,
+    raw_text TEXT,
+    receipt_date date,
+    store_name varchar(255),
+    total_amount float(53),
+    total_discount float(53),
+    user_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table users (
+    id bigint not null auto_increment,
+    password varchar(255) not null,
+    username varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table users
+   add constraint UKr43af9ap4edm43mmtq01oddj6 unique (username);
+
+alter table expense_items
+   add constraint FKjh4d5vecs96ul75fube5iljqt
+   foreign key (receipt_id)
+   references receipts (id);
+
+alter table receipts
+   add constraint FK7t0uo7yxjck29e967rny84ky4
+   foreign key (user_id)
+   references users (id);
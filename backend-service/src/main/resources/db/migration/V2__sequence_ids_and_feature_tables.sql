@@ -0,0 +1,102 @@
+-- Everything added on top of the baseline schema: pooled id sequences, the optimistic lock and
+-- change versions, stored receipt images, and the tables behind category corrections, delta
+-- sync, spending rollups and the extraction cache.
+
+-- Ids now come from pooled sequences so Hibernate can batch inserts. MySQL has no sequences,
+-- so each is a one-row *_seq table. With allocationSize 50 a fetched next_val of n hands out
+-- n-49..n, so seeding it with MAX(id)+50 starts new ids right after the AUTO_INCREMENT ones
+-- (1 on an empty table is Hibernate's own starting value). The old AUTO_INCREMENT attribute
+-- stays; it's unused once every insert carries its id.
+create table users_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into users_seq select coalesce(max(id) + 50, 1) from users;
+
+create table receipts_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into receipts_seq select coalesce(max(id) + 50, 1) from receipts;
+
+create table expense_items_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into expense_items_seq select coalesce(max(id) + 50, 1) from expense_items;
+
+-- Receipt.version (optimistic lock for item edits) and User.changeVersion (the delta sync
+-- counter); existing rows start at 0
+alter table receipts add column version bigint not null default 0;
+
+alter table users add column change_version bigint not null default 0;
+
+-- The stored upload, named by its SHA-256 (receipts.images.dir); null for older receipts
+alter table receipts add column image_hash varchar(64);
+
+alter table receipts add column image_content_type varchar(100);
+
+alter table receipts add column image_filename varchar(255);
+
+create table category_overrides (
+    id bigint not null,
+    updated_at datetime(6) not null,
+    user_id bigint not null,
+    category varchar(100) not null,
+    item_key varchar(255) not null,
+    store_key varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table category_overrides_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into category_overrides_seq values ( 1 );
+
+alter table category_overrides
+   add constraint UKaqum9u7xhn9ss4lp3j1v81kl5 unique (user_id, store_key, item_key);
+
+create table receipt_changes (
+    deleted bit not null,
+    entity_id bigint not null,
+    id bigint not null,
+    user_id bigint not null,
+    version bigint not null,
+    entity_type enum ('ITEM','RECEIPT') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table receipt_changes_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into receipt_changes_seq values ( 1 );
+
+-- Keyed user first: rollups are always read for one user over a range of months
+create table spending_rollups (
+    max_amount float(53),
+    min_amount float(53),
+    rollup_month date not null,
+    total_amount float(53) not null,
+    item_count bigint not null,
+    user_id bigint not null,
+    category varchar(100) not null,
+    store_name varchar(255) not null,
+    primary key (user_id, rollup_month, category, store_name)
+) engine=InnoDB;
+
+create table extraction_cache (
+    created_at datetime(6) not null,
+    content_hash varchar(64) not null,
+    response_json MEDIUMTEXT not null,
+    primary key (content_hash)
+) engine=InnoDB;
+
+-- How far a startup backfill got (CategoryBackfillService), so a restart only looks at rows
+-- written since
+create table backfill_progress (
+    name varchar(64) not null,
+    last_id bigint not null,
+    primary key (name)
+) engine=InnoDB;
@@ -0,0 +1,23 @@
+-- Indexes shaped after the queries that actually run, so the hot reads are answered from the
+-- index alone instead of one primary key lookup per row. On MySQL the first two also take
+-- over from the indexes the user_id and receipt_id foreign keys created for themselves, which
+-- are then dropped.
+
+-- /api/expenses pages (ReceiptRepository.findPage), statement duplicate checks and exports:
+-- user_id and receipt_date to seek and order by, the rest so the store and total filters and
+-- the ReceiptSummary columns come from the index. InnoDB appends id, the keyset tiebreaker.
+create index idx_receipts_user_date_cover
+   on receipts (user_id, receipt_date, total_amount, total_discount, image_hash, store_name);
+
+-- Items of a page of receipts in id order (ExpenseItemRepository.findViewsByReceiptIds), and
+-- the item side of the export, search index and rollup rebuild joins
+create index idx_expense_items_receipt_cover
+   on expense_items (receipt_id, id, item_name, quantity, price, category);
+
+-- /api/expenses/changes reads whole rows after a version
+create index idx_receipt_changes_user_version_cover
+   on receipt_changes (user_id, version, entity_type, entity_id, deleted);
+
+-- Which stored files some receipt still refers to (ReceiptImageStore.deleteUnreferenced)
+create index idx_receipts_image_hash
+   on receipts (image_hash);
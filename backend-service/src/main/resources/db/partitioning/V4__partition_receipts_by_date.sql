@@ -0,0 +1,45 @@
+-- Optional, MySQL only: range-partitions receipts by receipt_date, one partition per year, so
+-- listings, exports and statement checks bounded by date only read the partitions in range.
+-- Applied when classpath:db/partitioning is added to spring.flyway.locations.
+--
+-- MySQL won't partition a table that takes part in a foreign key, and every unique key has to
+-- contain receipt_date. So the two foreign keys on receipts are dropped (items are only ever
+-- written through their receipt, and neither receipts nor users are deleted), and the primary
+-- key becomes (id, receipt_date); ids stay unique because they come from receipts_seq.
+-- Receipts are always saved with a date (the upload day when none could be read), and the few
+-- older rows without one get the same treatment.
+--
+-- Years past the last partition land in pmax. Split it ahead of time with
+--   alter table receipts reorganize partition pmax into (
+--       partition p2031 values less than ('2032-01-01'), partition pmax values less than (maxvalue));
+
+alter table expense_items drop foreign key FKjh4d5vecs96ul75fube5iljqt;
+
+alter table receipts drop foreign key FK7t0uo7yxjck29e967rny84ky4;
+
+update receipts set receipt_date = current_date where receipt_date is null;
+
+alter table receipts modify receipt_date date not null;
+
+alter table receipts drop primary key, add primary key (id, receipt_date);
+
+alter table receipts partition by range columns (receipt_date) (
+    partition p2014 values less than ('2015-01-01'),
+    partition p2015 values less than ('2016-01-01'),
+    partition p2016 values less than ('2017-01-01'),
+    partition p2017 values less than ('2018-01-01'),
+    partition p2018 values less than ('2019-01-01'),
+    partition p2019 values less than ('2020-01-01'),
+    partition p2020 values less than ('2021-01-01'),
+    partition p2021 values less than ('2022-01-01'),
+    partition p2022 values less than ('2023-01-01'),
+    partition p2023 values less than ('2024-01-01'),
+    partition p2024 values less than ('2025-01-01'),
+    partition p2025 values less than ('2026-01-01'),
+    partition p2026 values less than ('2027-01-01'),
+    partition p2027 values less than ('2028-01-01'),
+    partition p2028 values less than ('2029-01-01'),
+    partition p2029 values less than ('2030-01-01'),
+    partition p2030 values less than ('2031-01-01'),
+    partition pmax values less than (maxvalue)
+);
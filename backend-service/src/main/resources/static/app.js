@@ -10,6 +10,48 @@ document.addEventListener('DOMContentLoaded', function() {
     }
 });
 
+// Tokens from /login when the server runs with auth.mode=token. In session mode nothing is
+// stored and the session cookie authenticates requests instead.
+const TOKEN_STORAGE_KEY = 'expenseVisionTokens';
+
+function storedTokens() {
+    try {
+        return JSON.parse(localStorage.getItem(TOKEN_STORAGE_KEY));
+    } catch (e) {
+        return null;
+    }
+}
+
+/**
+ * fetch() for the API: adds the bearer token when there is one, and on a 401 trades the
+ * refresh token for a new pair and retries once. If the refresh fails, back to the login page.
+ */
+async function apiFetch(url, options = {}) {
+    const tokens = storedTokens();
+    if (!tokens) return fetch(url, options);
+
+    const withToken = (accessToken) => ({
+        ...options,
+        headers: { ...(options.headers || {}), 'Authorization': `Bearer ${accessToken}` }
+    });
+    const response = await fetch(url, withToken(tokens.accessToken));
+    if (response.status !== 401) return response;
+
+    const refreshed = await fetch('/api/auth/refresh', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ refreshToken: tokens.refreshToken })
+    });
+    if (!refreshed.ok) {
+        localStorage.removeItem(TOKEN_STORAGE_KEY);
+        window.location.href = 'index.html';
+        return response;
+    }
+    const next = await refreshed.json();
+    localStorage.setItem(TOKEN_STORAGE_KEY, JSON.stringify(next));
+    return fetch(url, withToken(next.accessToken));
+}
+
 /**
  * Sets up functionality for the Login/Registration page (index.html).
  * It handles toggling between views, displaying login errors, and submitting the registration form.
@@ -37,6 +79,30 @@ function setupLoginPage() {
         loginView.classList.remove('d-none');
     });
 
+    // Submits the login form with fetch so both server modes work: in session mode the
+    // response is the redirect target, in token mode it's a JSON token pair to keep
+    const loginForm = document.getElementById('login-form');
+    loginForm.addEventListener('submit', async (e) => {
+        e.preventDefault();
+        try {
+            const response = await fetch('/login', { method: 'POST', body: new URLSearchParams(new FormData(loginForm)) });
+            const contentType = response.headers.get('Content-Type') || '';
+            if (response.ok && contentType.includes('application/json')) {
+                localStorage.setItem(TOKEN_STORAGE_KEY, JSON.stringify(await response.json()));
+                window.location.href = 'dashboard.html';
+            } else if (response.ok && !response.url.includes('error=true')) {
+                localStorage.removeItem(TOKEN_STORAGE_KEY);
+                window.location.href = response.url;
+            } else if (response.status === 503) {
+                showAlert(loginAlert, 'The server is busy signing people in. Please try again in a moment.');
+            } else {
+                showAlert(loginAlert, 'Login failed. Please check your username and password.');
+            }
+        } catch (error) {
+            showAlert(loginAlert, 'An error occurred. Please try again.');
+        }
+    });
+
     // Check the URL for "?error=true", which Spring Security adds on a failed login
     const urlParams = new URLSearchParams(window.location.search);
     if (urlParams.has('error')) {
@@ -81,117 +147,231 @@ function setupDashboardPage() {
     const itemModal = new bootstrap.Modal(itemModalElement);
     const saveItemButton = document.getElementById('save-item-button');
     const itemForm = document.getElementById('item-form');
+    const bulkEditModal = new bootstrap.Modal(document.getElementById('bulkEditModal'));
+    const bulkEditRows = document.getElementById('bulk-edit-rows');
 
     let allReceipts = []; // Store receipts to find item data for editing
+    let nextCursor = null; // Cursor for the next page of /api/expenses, null when there is none
+    let syncVersion = 0; // Change version the data on screen is current to
+    let syncEtag = null; // ETag of the last /api/expenses/changes response
 
+    // Reloads the dashboard from the first page
     async function fetchAndDisplayExpenses() {
+        allReceipts = [];
+        nextCursor = null;
+        await loadExpensePage();
+    }
+
+    // Fetches the next page of receipts and appends it to what is already shown
+    async function loadExpensePage() {
         try {
-            const response = await fetch('/api/expenses');
+            const url = nextCursor ? `/api/expenses?cursor=${encodeURIComponent(nextCursor)}` : '/api/expenses';
+            const response = await apiFetch(url);
             if (!response.ok) {
                 if (response.status === 401 || response.status === 403) window.location.href = 'index.html';
                 return;
             }
 
-            allReceipts = await response.json(); // Save data to our global variable
-            accordionContainer.innerHTML = '';
+            const page = await response.json();
+            if (!nextCursor) {
+                syncVersion = page.version;
+                syncEtag = null;
+            }
+            allReceipts = allReceipts.concat(page.receipts); // Save data to our global variable
+            nextCursor = page.nextCursor;
+            renderExpenses();
+        } catch (error) {
+            console.error('Error fetching expenses:', error);
+        }
+    }
 
-            if (allReceipts.length === 0) {
-                accordionContainer.innerHTML = '<p class="text-muted">No expenses found. Upload a receipt to get started!</p>';
+    // Pulls only what changed since syncVersion and merges it into allReceipts.
+    // An unchanged poll is answered with 304 thanks to If-None-Match.
+    async function syncChanges() {
+        try {
+            const headers = syncEtag ? { 'If-None-Match': syncEtag } : {};
+            const response = await apiFetch(`/api/expenses/changes?since=${syncVersion}`, { headers });
+            if (response.status === 304) return;
+            if (!response.ok) {
+                if (response.status === 401 || response.status === 403) window.location.href = 'index.html';
                 return;
             }
 
-            const groupedByDate = allReceipts.reduce((acc, receipt) => {
-                const date = receipt.receiptDate;
-                if (!acc[date]) acc[date] = [];
-                acc[date].push(receipt);
-                return acc;
-            }, {});
-
-            let index = 0;
-            for (const date in groupedByDate) {
-                const receiptsForDate = groupedByDate[date];
-
-                let itemsHtml = '<ul class="list-group list-group-flush">';
-                receiptsForDate.forEach(receipt => {
-                    const storeName = receipt.storeName || 'Unknown Store';
-                    const totalAmount = receipt.totalAmount || 0.00;
-                    const totalDiscount = receipt.totalDiscount || 0.00;
-
-                    itemsHtml += `
-                    <li class="list-group-item bg-light d-flex justify-content-between align-items-center">
-                        <strong>${storeName} (Total: $${totalAmount.toFixed(2)})</strong>
+            syncEtag = response.headers.get('ETag');
+            const feed = await response.json();
+            applyChanges(feed);
+            syncVersion = feed.version;
+            renderExpenses();
+        } catch (error) {
+            console.error('Error syncing expenses:', error);
+        }
+    }
+
+    function applyChanges(feed) {
+        const deletedReceipts = new Set(feed.deletedReceiptIds);
+        const deletedItems = new Set(feed.deletedItemIds);
+        allReceipts = allReceipts.filter(receipt => !deletedReceipts.has(receipt.id));
+
+        feed.receipts.forEach(summary => {
+            const existing = allReceipts.find(receipt => receipt.id === summary.id);
+            if (existing) Object.assign(existing, summary);
+            else allReceipts.push({ ...summary, items: [] });
+        });
+
+        allReceipts.forEach(receipt => {
+            receipt.items = receipt.items.filter(item => !deletedItems.has(item.id));
+        });
+
+        feed.items.forEach(item => {
+            const receipt = allReceipts.find(r => r.id === item.receiptId);
+            if (!receipt) return; // Belongs to a page that isn't loaded yet
+            const index = receipt.items.findIndex(i => i.id === item.id);
+            if (index >= 0) receipt.items[index] = item;
+            else receipt.items.push(item);
+        });
+
+        // Keep the same newest-first order as /api/expenses
+        allReceipts.sort((a, b) => b.receiptDate.localeCompare(a.receiptDate) || b.id - a.id);
+    }
+
+    function renderExpenses() {
+        accordionContainer.innerHTML = '';
+
+        if (allReceipts.length === 0) {
+            accordionContainer.innerHTML = '<p class="text-muted">No expenses found. Upload a receipt to get started!</p>';
+            return;
+        }
+
+        const groupedByDate = allReceipts.reduce((acc, receipt) => {
+            const date = receipt.receiptDate;
+            if (!acc[date]) acc[date] = [];
+            acc[date].push(receipt);
+            return acc;
+        }, {});
+
+        let index = 0;
+        for (const date in groupedByDate) {
+            const receiptsForDate = groupedByDate[date];
+
+            let itemsHtml = '<ul class="list-group list-group-flush">';
+            receiptsForDate.forEach(receipt => {
+                const storeName = receipt.storeName || 'Unknown Store';
+                const totalAmount = receipt.totalAmount || 0.00;
+                const totalDiscount = receipt.totalDiscount || 0.00;
+
+                itemsHtml += `
+                <li class="list-group-item bg-light d-flex justify-content-between align-items-center">
+                    <strong>${storeName} (Total: $${totalAmount.toFixed(2)})</strong>
+                    <div class="d-flex flex-nowrap gap-2">
+                        <button class="btn btn-sm btn-outline-secondary bulk-edit-btn" data-receipt-id="${receipt.id}">Edit All</button>
                         <button class="btn btn-sm btn-outline-success create-btn" data-receipt-id="${receipt.id}">Add Item</button>
-                    </li>`;
-
-                    if (totalDiscount > 0) {
-                        itemsHtml += `<li class="list-group-item list-group-item-success ps-4">Savings: -$${totalDiscount.toFixed(2)}</li>`;
-                    }
-
-                    if (receipt.items && receipt.items.length > 0) {
-                        receipt.items.forEach(item => {
-                            // console.log("Inspecting item object:", item);
-                            const itemName = item.itemName || 'Unnamed Item';
-                            const itemPrice = item.price || 0.00;
-                            const itemQuantity = item.quantity || 1;
-
-                            // This block creates the HTML for each item, including the buttons
-                            itemsHtml += `
-                            <li class="list-group-item ps-4 d-flex justify-content-between align-items-center">
-                                <span>&ndash; ${itemQuantity} x ${itemName} ($${itemPrice.toFixed(2)})</span>
-                                <div class="d-flex flex-nowrap gap-2">
-                                    <button class="btn btn-sm btn-outline-primary edit-btn" data-item-id="${item.id}">Edit</button>
-                                    <button class="btn btn-sm btn-outline-danger delete-btn" data-item-id="${item.id}">Delete</button>
-                                </div>
-                            </li>`;
-                        });
-                    }
-                });
-                itemsHtml += '</ul>';
-
-                // This is the full HTML for the accordion item that was missing
-                const accordionItemHtml = `
-                <div class="accordion-item">
-                    <h2 class="accordion-header" id="heading-${index}">
-                        <button class="accordion-button collapsed" type="button" data-bs-toggle="collapse" data-bs-target="#collapse-${index}">
-                            ${date}
-                        </button>
-                    </h2>
-                    <div id="collapse-${index}" class="accordion-collapse collapse" data-bs-parent="#expenses-accordion">
-                        <div class="accordion-body">${itemsHtml}</div>
                     </div>
-                </div>`;
+                </li>`;
 
-                accordionContainer.innerHTML += accordionItemHtml;
-                index++;
-            }
+                if (totalDiscount > 0) {
+                    itemsHtml += `<li class="list-group-item list-group-item-success ps-4">Savings: -$${totalDiscount.toFixed(2)}</li>`;
+                }
 
-        } catch (error) {
-            console.error('Error fetching expenses:', error);
+                if (receipt.items && receipt.items.length > 0) {
+                    receipt.items.forEach(item => {
+                        // console.log("Inspecting item object:", item);
+                        const itemName = item.itemName || 'Unnamed Item';
+                        const itemPrice = item.price || 0.00;
+                        const itemQuantity = item.quantity || 1;
+                        const categoryBadge = item.category
+                            ? ` <span class="badge bg-secondary">${item.category}</span>` : '';
+
+                        // This block creates the HTML for each item, including the buttons
+                        itemsHtml += `
+                        <li class="list-group-item ps-4 d-flex justify-content-between align-items-center">
+                            <span>&ndash; ${itemQuantity} x ${itemName} ($${itemPrice.toFixed(2)})${categoryBadge}</span>
+                            <div class="d-flex flex-nowrap gap-2">
+                                <button class="btn btn-sm btn-outline-primary edit-btn" data-item-id="${item.id}">Edit</button>
+                                <button class="btn btn-sm btn-outline-danger delete-btn" data-item-id="${item.id}">Delete</button>
+                            </div>
+                        </li>`;
+                    });
+                }
+            });
+            itemsHtml += '</ul>';
+
+            // This is the full HTML for the accordion item that was missing
+            const accordionItemHtml = `
+            <div class="accordion-item">
+                <h2 class="accordion-header" id="heading-${index}">
+                    <button class="accordion-button collapsed" type="button" data-bs-toggle="collapse" data-bs-target="#collapse-${index}">
+                        ${date}
+                    </button>
+                </h2>
+                <div id="collapse-${index}" class="accordion-collapse collapse" data-bs-parent="#expenses-accordion">
+                    <div class="accordion-body">${itemsHtml}</div>
+                </div>
+            </div>`;
+
+            accordionContainer.innerHTML += accordionItemHtml;
+            index++;
+        }
+
+        if (nextCursor) {
+            accordionContainer.innerHTML += '<button class="btn btn-outline-secondary w-100 mt-3 load-more-btn">Load more</button>';
         }
     }
 
     // --- ALL EVENT LISTENERS ---
 
+    // Exports are fetched rather than linked so token mode can send its Authorization header
+    document.querySelectorAll('.export-button').forEach(button => button.addEventListener('click', async () => {
+        const format = button.dataset.format;
+        try {
+            const response = await apiFetch(`/api/expenses/export?format=${format}`);
+            if (!response.ok) {
+                alert(`Export failed: ${await response.text()}`);
+                return;
+            }
+            const link = document.createElement('a');
+            link.href = URL.createObjectURL(await response.blob());
+            link.download = `expenses.${format}`;
+            link.click();
+            URL.revokeObjectURL(link.href);
+        } catch (error) {
+            alert('Export failed. Please try again.');
+        }
+    }));
+
     uploadForm.addEventListener('submit', async (e) => {
         e.preventDefault();
         uploadStatus.textContent = 'Processing...';
         uploadStatus.className = 'mt-3 text-primary';
 
-        const imageFile = document.getElementById('receipt-image').files[0];
+        const selectedFiles = Array.from(document.getElementById('receipt-image').files);
+        if (selectedFiles.length > 1 || selectedFiles[0].name.toLowerCase().endsWith('.zip')) {
+            await uploadBatch(selectedFiles);
+            return;
+        }
+
+        const imageFile = selectedFiles[0];
         const formData = new FormData();
         formData.append('image', imageFile);
 
         try {
-            const response = await fetch('/api/receipts/upload', {
+            // Upload in async mode: the server answers 202 with a job we poll until it finishes
+            const response = await apiFetch('/api/receipts/upload?async=true', {
                 method: 'POST',
                 body: formData
             });
 
             if (response.ok) {
-                uploadStatus.textContent = 'Receipt uploaded successfully!';
-                uploadStatus.className = 'mt-3 text-success';
+                const job = await response.json();
                 uploadForm.reset();
-                fetchAndDisplayExpenses();
+                const finishedJob = await waitForJob(job.id);
+                if (finishedJob.status === 'DONE') {
+                    uploadStatus.textContent = 'Receipt uploaded successfully!';
+                    uploadStatus.className = 'mt-3 text-success';
+                    syncChanges();
+                } else {
+                    uploadStatus.textContent = `Processing failed: ${finishedJob.error || 'unknown error'}`;
+                    uploadStatus.className = 'mt-3 text-danger';
+                }
             } else {
                 uploadStatus.textContent = 'Upload failed. Please try again.';
                 uploadStatus.className = 'mt-3 text-danger';
@@ -202,7 +382,53 @@ function setupDashboardPage() {
         }
     });
 
-    logoutButton.addEventListener('click', () => { window.location.href = '/logout'; });
+    // Sends several files (or ZIPs) in one request and summarizes the returned manifest
+    async function uploadBatch(files) {
+        const formData = new FormData();
+        files.forEach(file => formData.append('files', file));
+
+        try {
+            const response = await apiFetch('/api/receipts/batch', { method: 'POST', body: formData });
+            if (!response.ok) {
+                uploadStatus.textContent = `Upload failed: ${await response.text()}`;
+                uploadStatus.className = 'mt-3 text-danger';
+                return;
+            }
+
+            const manifest = await response.json();
+            const failed = manifest.filter(result => result.status === 'FAILED');
+            uploadStatus.textContent = `${manifest.length - failed.length} of ${manifest.length} receipts processed.`
+                + failed.map(result => ` ${result.fileName}: ${result.error}`).join(';');
+            uploadStatus.className = failed.length === 0 ? 'mt-3 text-success' : 'mt-3 text-warning';
+            uploadForm.reset();
+            syncChanges();
+        } catch (error) {
+            uploadStatus.textContent = 'An error occurred during upload.';
+            uploadStatus.className = 'mt-3 text-danger';
+        }
+    }
+
+    // Polls a background upload job until it is DONE or FAILED
+    async function waitForJob(jobId) {
+        while (true) {
+            const response = await apiFetch(`/api/receipts/jobs/${jobId}`);
+            if (!response.ok) return { status: 'FAILED', error: 'Job not found' };
+            const job = await response.json();
+            if (job.status === 'DONE' || job.status === 'FAILED') return job;
+            uploadStatus.textContent = job.status === 'QUEUED' ? 'Waiting in queue...' : 'Processing...';
+            await new Promise(resolve => setTimeout(resolve, 1500));
+        }
+    }
+
+    logoutButton.addEventListener('click', async () => {
+        if (storedTokens()) {
+            localStorage.removeItem(TOKEN_STORAGE_KEY);
+            await fetch('/logout', { method: 'POST' });
+            window.location.href = 'index.html';
+        } else {
+            window.location.href = '/logout';
+        }
+    });
 
     // A single listener for all Create, Edit, and Delete button clicks
     accordionContainer.addEventListener('click', async (e) => {
@@ -210,18 +436,36 @@ function setupDashboardPage() {
 
         console.log("Click detected inside the accordion. Target is:", target);
 
+        if (target && target.classList.contains('load-more-btn')) {
+            target.disabled = true;
+            loadExpensePage();
+            return;
+        }
+
         if (target && target.classList.contains('delete-btn')) {
             const itemId = target.dataset.itemId;
             console.log("itemID: ", itemId);
             if (confirm('Are you sure you want to delete this item?')) {
                 try {
-                    const response = await fetch(`/api/items/${itemId}`, { method: 'DELETE' });
-                    if (response.ok) fetchAndDisplayExpenses();
+                    const response = await apiFetch(`/api/items/${itemId}`, { method: 'DELETE' });
+                    if (response.ok) syncChanges();
+                    else if (response.status === 409) { alert(await response.text()); syncChanges(); }
                     else alert('Failed to delete item.');
                 } catch (error) { console.error('Delete failed:', error); }
             }
         }
 
+        // --- BULK EDIT LOGIC ---
+        if (target && target.classList.contains('bulk-edit-btn')) {
+            const receipt = allReceipts.find(r => r.id == target.dataset.receiptId);
+            if (!receipt) return;
+            document.getElementById('bulk-receipt-id').value = receipt.id;
+            bulkEditRows.innerHTML = '';
+            receipt.items.forEach(item => addBulkRow(item));
+            bulkEditModal.show();
+            return;
+        }
+
         // --- CREATE LOGIC ---
         if (target && target.classList.contains('create-btn')) {
             const receiptId = target.dataset.receiptId;
@@ -262,6 +506,7 @@ function setupDashboardPage() {
                 document.getElementById('modal-item-name').value = itemToEdit.itemName;
                 document.getElementById('modal-item-quantity').value = itemToEdit.quantity;
                 document.getElementById('modal-item-price').value = itemToEdit.price;
+                document.getElementById('modal-item-category').value = itemToEdit.category || '';
                 saveItemButton.dataset.action = 'edit'; // Tell the save button what to do
                 itemModal.show(); // Show the pop-up
             }
@@ -278,7 +523,8 @@ function setupDashboardPage() {
         const itemData = {
             itemName: document.getElementById('modal-item-name').value,
             quantity: parseInt(document.getElementById('modal-item-quantity').value),
-            price: parseFloat(document.getElementById('modal-item-price').value)
+            price: parseFloat(document.getElementById('modal-item-price').value),
+            category: document.getElementById('modal-item-category').value.trim() || null
         };
 
         let url = '';
@@ -293,7 +539,7 @@ function setupDashboardPage() {
         }
 
         try {
-            const response = await fetch(url, {
+            const response = await apiFetch(url, {
                 method: method,
                 headers: { 'Content-Type': 'application/json' },
                 body: JSON.stringify(itemData)
@@ -301,7 +547,11 @@ function setupDashboardPage() {
 
             if (response.ok) {
                 itemModal.hide(); // Hide the pop-up on success
-                fetchAndDisplayExpenses(); // Refresh the dashboard
+                syncChanges(); // Pull just what changed
+            } else if (response.status === 409) {
+                // Someone else changed this receipt first; show the latest state
+                alert(await response.text());
+                syncChanges();
             } else {
                 alert('Failed to save item. Please check the details and try again.');
             }
@@ -310,6 +560,82 @@ function setupDashboardPage() {
         }
     });
 
+    // One editable table row; new rows have no item id
+    function addBulkRow(item) {
+        const row = document.createElement('tr');
+        row.dataset.itemId = item ? item.id : '';
+        row.innerHTML = `
+            <td><input type="text" class="form-control form-control-sm bulk-name"></td>
+            <td><input type="number" class="form-control form-control-sm bulk-quantity"></td>
+            <td><input type="number" step="0.01" class="form-control form-control-sm bulk-price"></td>
+            <td><input type="text" class="form-control form-control-sm bulk-category" placeholder="Auto"></td>
+            <td><input type="checkbox" class="form-check-input bulk-delete"></td>`;
+        row.querySelector('.bulk-name').value = item ? item.itemName : '';
+        row.querySelector('.bulk-quantity').value = item ? item.quantity : 1;
+        row.querySelector('.bulk-price').value = item ? item.price : '';
+        row.querySelector('.bulk-category').value = item && item.category ? item.category : '';
+        bulkEditRows.appendChild(row);
+    }
+
+    document.getElementById('bulk-add-row').addEventListener('click', () => addBulkRow(null));
+
+    // Sends only the rows that changed, as one PATCH for the whole receipt
+    document.getElementById('bulk-save-button').addEventListener('click', async () => {
+        const receiptId = document.getElementById('bulk-receipt-id').value;
+        const receipt = allReceipts.find(r => r.id == receiptId);
+        const operations = [];
+
+        bulkEditRows.querySelectorAll('tr').forEach(row => {
+            const itemId = row.dataset.itemId ? Number(row.dataset.itemId) : null;
+            const fields = {
+                itemName: row.querySelector('.bulk-name').value,
+                quantity: parseInt(row.querySelector('.bulk-quantity').value),
+                price: parseFloat(row.querySelector('.bulk-price').value),
+                category: row.querySelector('.bulk-category').value.trim() || null
+            };
+            const deleteRow = row.querySelector('.bulk-delete').checked;
+
+            if (itemId === null) {
+                if (!deleteRow && fields.itemName) operations.push({ op: 'CREATE', ...fields });
+                return;
+            }
+            if (deleteRow) {
+                operations.push({ op: 'DELETE', id: itemId });
+                return;
+            }
+            const original = receipt.items.find(i => i.id === itemId);
+            const changed = !original || original.itemName !== fields.itemName || original.quantity !== fields.quantity
+                || original.price !== fields.price || (original.category || null) !== fields.category;
+            if (changed) operations.push({ op: 'UPDATE', id: itemId, ...fields });
+        });
+
+        if (operations.length === 0) {
+            bulkEditModal.hide();
+            return;
+        }
+
+        try {
+            const response = await apiFetch(`/api/items/receipt/${receiptId}`, {
+                method: 'PATCH',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify(operations)
+            });
+
+            if (response.ok) {
+                bulkEditModal.hide();
+                syncChanges();
+            } else if (response.status === 409) {
+                alert(await response.text());
+                bulkEditModal.hide();
+                syncChanges();
+            } else {
+                alert(`Failed to save changes: ${await response.text()}`);
+            }
+        } catch (error) {
+            console.error('Bulk save failed:', error);
+        }
+    });
+
     // Initial data load
     fetchAndDisplayExpenses();
 }
@@ -0,0 +1,82 @@
+package com.shubho.backend_service;
+
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.User;
+import jakarta.persistence.EntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Users and receipts for the entity tests
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static User user(EntityManager entityManager, String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        entityManager.persist(user);
+        return user;
+    }
+
+    // An unsaved receipt dated 2025-05-01 at "Corner Shop" until told otherwise. Items have
+    // quantity 1, and the total is the sum of their prices unless set.
+    public static ReceiptBuilder receipt(User user) {
+        return new ReceiptBuilder(user);
+    }
+
+    public static final class ReceiptBuilder {
+        private final Receipt receipt = new Receipt();
+        private final List<ExpenseItem> items = new ArrayList<>();
+        private Double total;
+
+        private ReceiptBuilder(User user) {
+            receipt.setUser(user);
+            receipt.setReceiptDate(LocalDate.of(2025, 5, 1));
+            receipt.setStoreName("Corner Shop");
+        }
+
+        public ReceiptBuilder on(LocalDate date) {
+            receipt.setReceiptDate(date);
+            return this;
+        }
+
+        public ReceiptBuilder at(String storeName) {
+            receipt.setStoreName(storeName);
+            return this;
+        }
+
+        public ReceiptBuilder total(double total) {
+            this.total = total;
+            return this;
+        }
+
+        public ReceiptBuilder item(String name, double price) {
+            ExpenseItem item = new ExpenseItem();
+            item.setItemName(name);
+            item.setQuantity(1);
+            item.setPrice(price);
+            item.setReceipt(receipt);
+            items.add(item);
+            return this;
+        }
+
+        // Items named after their price ("Item 2.5")
+        public ReceiptBuilder items(double... prices) {
+            for (double price : prices) {
+                item("Item " + price, price);
+            }
+            return this;
+        }
+
+        public Receipt build() {
+            receipt.setItems(items);
+            receipt.setTotalAmount(total != null ? total : items.stream().mapToDouble(ExpenseItem::getPrice).sum());
+            return receipt;
+        }
+    }
+}
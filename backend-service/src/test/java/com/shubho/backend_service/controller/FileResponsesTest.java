@@ -0,0 +1,98 @@
+package com.shubho.backend_service.controller;
+
+import com.shubho.backend_service.controller.FileResponses.ByteRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ContentDisposition;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileResponsesTest {
+
+    private static final String ETAG = "\"abc123\"";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesSingleByteRanges() {
+        assertThat(FileResponses.parseRange("bytes=0-99", 1000)).isEqualTo(new ByteRange(0, 99));
+        assertThat(FileResponses.parseRange("bytes=900-", 1000)).isEqualTo(new ByteRange(900, 999));
+        assertThat(FileResponses.parseRange("bytes=-100", 1000)).isEqualTo(new ByteRange(900, 999));
+        assertThat(FileResponses.parseRange("bytes=-5000", 1000)).isEqualTo(new ByteRange(0, 999));
+        assertThat(FileResponses.parseRange("bytes=500-5000", 1000)).isEqualTo(new ByteRange(500, 999));
+        assertThat(FileResponses.parseRange("bytes=1000-", 1000)).isSameAs(ByteRange.UNSATISFIABLE);
+        assertThat(FileResponses.parseRange("bytes=-0", 1000)).isSameAs(ByteRange.UNSATISFIABLE);
+        // Served in full
+        assertThat(FileResponses.parseRange(null, 1000)).isNull();
+        assertThat(FileResponses.parseRange("bytes=0-1,5-6", 1000)).isNull();
+        assertThat(FileResponses.parseRange("bytes=9-3", 1000)).isNull();
+        assertThat(FileResponses.parseRange("items=0-1", 1000)).isNull();
+    }
+
+    @Test
+    void servesTheRequestedRange() throws IOException {
+        Path file = Files.writeString(dir.resolve("blob"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/image");
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileResponses.send(file, "image/jpeg", ETAG, ContentDisposition.inline().build(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentAsString(StandardCharsets.US_ASCII)).isEqualTo("2345");
+        assertThat(response.getHeader("ETag")).isEqualTo(ETAG);
+    }
+
+    @Test
+    void ignoresARangeForAnotherVersion() throws IOException {
+        Path file = Files.writeString(dir.resolve("blob"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/image");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"other\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileResponses.send(file, "image/jpeg", ETAG, ContentDisposition.inline().build(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString(StandardCharsets.US_ASCII)).isEqualTo("0123456789");
+    }
+
+    @Test
+    void answersNotModifiedForAMatchingEtag() throws IOException {
+        Path file = Files.writeString(dir.resolve("blob"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/image");
+        request.addHeader("If-None-Match", "\"other\", W/" + ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileResponses.send(file, "image/jpeg", ETAG, ContentDisposition.inline().build(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void handsLargeBodiesToTomcatSendfile() throws IOException {
+        Path file = Files.write(dir.resolve("blob"), new byte[100_000]);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/image");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=1000-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileResponses.send(file, "image/jpeg", ETAG, ContentDisposition.inline().build(), request, response);
+
+        assertThat(response.getContentLengthLong()).isEqualTo(99_000);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(1000L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(100_000L);
+    }
+}
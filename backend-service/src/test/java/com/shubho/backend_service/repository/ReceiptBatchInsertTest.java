@@ -0,0 +1,60 @@
+package com.shubho.backend_service.repository;
+
+import com.shubho.backend_service.H2JpaTest;
+import com.shubho.backend_service.TestData;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Counts the JDBC statements needed to store one 60-line receipt, with and without batching
+@H2JpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ReceiptBatchInsertTest {
+
+    private static final int ITEMS = 60;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Test
+    void receiptAndItemsAreInsertedAsJdbcBatches() {
+        User user = TestData.user(entityManager, "batch-user");
+        entityManager.flush();
+
+        long batched = statementsToSave(newReceipt(user));
+
+        // Same work with batching switched off for this session (the old per-row behaviour)
+        entityManager.unwrap(Session.class).setJdbcBatchSize(1);
+        long unbatched = statementsToSave(newReceipt(user));
+
+        assertThat(unbatched).isGreaterThanOrEqualTo(ITEMS + 1);
+        assertThat(batched).isLessThanOrEqualTo(6);
+    }
+
+    private long statementsToSave(Receipt receipt) {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        receiptRepository.save(receipt);
+        entityManager.flush();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static Receipt newReceipt(User user) {
+        TestData.ReceiptBuilder receipt = TestData.receipt(user).at("Grocer");
+        for (int i = 0; i < ITEMS; i++) {
+            receipt.item("Item " + i, 1.25);
+        }
+        return receipt.build();
+    }
+}
@@ -0,0 +1,108 @@
+package com.shubho.backend_service.repository;
+
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.User;
+import jakarta.persistence.EntityManager;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Adopting a database the pre-migration application created: its three tables with
+// AUTO_INCREMENT ids and some rows, no Flyway history. It gets baselined at version 1 and the
+// later migrations have to bring it up to what the entities expect. H2 in MySQL mode with the
+// application's MySQL dialect, so ids come from the *_seq tables as they do in production.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:legacy;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaMigrationTest {
+
+    @TestConfiguration
+    static class LegacyDatabase {
+
+        @Bean
+        FlywayMigrationStrategy legacySchemaThenMigrate(DataSource dataSource) {
+            return flyway -> {
+                new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline_schema.sql"))
+                        .execute(dataSource);
+                JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+                jdbc.update("insert into users (id, username, password) values (7, 'legacy', 'hash')");
+                jdbc.update("insert into receipts (id, store_name, receipt_date, total_amount, user_id)"
+                        + " values (120, 'Old Shop', '2025-03-02', 12.5, 7)");
+                jdbc.update("insert into expense_items (id, item_name, price, quantity, receipt_id)"
+                        + " values (300, 'BREAD', 12.5, 1, 120)");
+                flyway.migrate();
+                // H2 reports TEXT and MEDIUMTEXT as VARCHAR, which ddl-auto=validate would reject
+                jdbc.execute("alter table receipts alter column raw_text clob");
+                jdbc.execute("alter table extraction_cache alter column response_json clob not null");
+            };
+        }
+    }
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Test
+    void legacyDatabaseIsBaselinedAndMigrated() {
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("3");
+        assertThat(jdbcTemplate.queryForObject("select version from receipts where id = 120", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("select change_version from users where id = 7", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForList("select table_name from information_schema.tables"
+                + " where table_schema = 'public'", String.class))
+                .contains("category_overrides", "receipt_changes", "spending_rollups", "extraction_cache",
+                        "users_seq", "receipts_seq", "expense_items_seq");
+    }
+
+    @Test
+    void newRowsGetIdsAfterTheLegacyOnes() {
+        User user = new User();
+        user.setUsername("new-user");
+        user.setPassword("secret");
+        userRepository.save(user);
+
+        Receipt receipt = new Receipt();
+        receipt.setUser(entityManager.find(User.class, 7L));
+        receipt.setStoreName("New Shop");
+        receipt.setReceiptDate(LocalDate.of(2025, 7, 15));
+        ExpenseItem item = new ExpenseItem();
+        item.setItemName("MILK");
+        item.setReceipt(receipt);
+        receipt.setItems(List.of(item));
+        receiptRepository.save(receipt);
+        entityManager.flush();
+
+        assertThat(user.getId()).isEqualTo(8L);
+        assertThat(receipt.getId()).isEqualTo(121L);
+        assertThat(item.getId()).isEqualTo(301L);
+    }
+}
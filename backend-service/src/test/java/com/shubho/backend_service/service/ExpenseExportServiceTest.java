@@ -0,0 +1,77 @@
+package com.shubho.backend_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shubho.backend_service.H2JpaTest;
+import com.shubho.backend_service.model.User;
+import com.shubho.backend_service.service.ExpenseExportService.Format;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.shubho.backend_service.TestData.receipt;
+import static com.shubho.backend_service.TestData.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@H2JpaTest
+@Import(ExpenseExportService.class)
+class ExpenseExportServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ExpenseExportService expenseExportService;
+
+    private User user;
+
+    @BeforeEach
+    void storeReceipts() {
+        user = user(entityManager, "export-user");
+        entityManager.persist(receipt(user).on(LocalDate.of(2025, 5, 2)).at("Corner, \"Deli\"")
+                .item("Bagel", 2.5).item("=HYPERLINK()", 2.5).build());
+        entityManager.persist(receipt(user).on(LocalDate.of(2025, 4, 1)).at("Shell").build());
+        entityManager.persist(receipt(user).on(LocalDate.of(2025, 6, 9)).at("Kroger").item("Milk", 2.5).build());
+        entityManager.flush();
+    }
+
+    @Test
+    void csvHasOneLinePerItemInDateOrder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = expenseExportService.export(user.getId(), Format.CSV, null, LocalDate.of(2025, 5, 31), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(rows).isEqualTo(3);
+        assertThat(lines).hasSize(4);
+        assertThat(lines[1]).contains(",2025-04-01,Shell,").endsWith(",,,,,");
+        assertThat(lines[2]).contains(",\"Corner, \"\"Deli\"\"\",").contains(",Bagel,");
+        assertThat(lines[3]).contains(",'=HYPERLINK(),");
+    }
+
+    @Test
+    void ndjsonNestsItemsUnderTheirReceiptAndCanBeGzipped() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            expenseExportService.export(user.getId(), Format.NDJSON, LocalDate.of(2025, 5, 1), null, gzip);
+        }
+
+        String text = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        String[] lines = text.split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode deli = new ObjectMapper().readTree(lines[0]);
+        assertThat(deli.path("storeName").asText()).isEqualTo("Corner, \"Deli\"");
+        assertThat(deli.path("items")).hasSize(2);
+        assertThat(deli.path("items").get(0).path("itemName").asText()).isEqualTo("Bagel");
+        assertThat(new ObjectMapper().readTree(lines[1]).path("receiptDate").asText()).isEqualTo("2025-06-09");
+    }
+}
@@ -0,0 +1,113 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.H2JpaTest;
+import com.shubho.backend_service.TestData;
+import com.shubho.backend_service.config.IngestionConfig;
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.ExpenseItemDto;
+import com.shubho.backend_service.model.ExpenseItemView;
+import com.shubho.backend_service.model.ItemBatchResult;
+import com.shubho.backend_service.model.ItemOperation;
+import com.shubho.backend_service.model.ItemOperation.Op;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.ReceiptOwnership;
+import com.shubho.backend_service.model.User;
+import com.shubho.backend_service.repository.ReceiptRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.List;
+
+import static com.shubho.backend_service.TestData.receipt;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@H2JpaTest
+@Import({ExpenseItemService.class, SpendingRollupService.class, ReceiptWriteService.class, ChangeLogService.class,
+        ItemCategorizer.class, SearchIndexService.class, IngestionConfig.class})
+class ExpenseItemServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ReceiptWriteService receiptWriteService;
+
+    @Autowired
+    private ExpenseItemService expenseItemService;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Test
+    void itemMutationsApplyTheirDeltaToTheReceiptTotal() {
+        User user = user("totals-user");
+        Receipt receipt = receiptWriteService.save(receipt(user).total(12.5).items(3.0, 4.5).build());
+        Long receiptId = receipt.getId();
+        ExpenseItem first = receipt.getItems().get(0);
+
+        ExpenseItemView added = expenseItemService.createExpenseItem(receiptId,
+                new ExpenseItemDto("Eggs", 2, 2.25, null), user.getId());
+        assertThat(added.category()).isEqualTo("Dairy & Eggs");
+        assertThat(total(receiptId)).isEqualTo(17.0);
+
+        expenseItemService.updateExpenseItem(first.getId(), new ExpenseItemDto(first.getItemName(), 2, 3.0, null), user.getId());
+        assertThat(total(receiptId)).isEqualTo(20.0);
+
+        expenseItemService.deleteExpenseItem(added.id(), user.getId());
+        assertThat(total(receiptId)).isEqualTo(15.5);
+        assertThat(owner(receiptId).version()).isEqualTo(receipt.getVersion() + 3);
+    }
+
+    @Test
+    void bulkOperationsApplyTogetherWithOneTotalsUpdate() {
+        User user = user("bulk-user");
+        Receipt receipt = receiptWriteService.save(receipt(user).items(2.0, 3.0, 4.0).build());
+        Long receiptId = receipt.getId();
+        List<ExpenseItem> items = receipt.getItems();
+
+        ItemBatchResult result = expenseItemService.applyOperations(receiptId, List.of(
+                new ItemOperation(Op.UPDATE, items.get(0).getId(), "Whole Milk", 2, 2.5, null),
+                new ItemOperation(Op.DELETE, items.get(1).getId(), null, null, null, null),
+                new ItemOperation(Op.CREATE, null, "Sourdough Bread", 1, 5.0, null)), user.getId());
+
+        assertThat(result.deleted()).containsExactly(items.get(1).getId());
+        assertThat(result.saved()).extracting(ExpenseItemView::category).containsExactly("Dairy & Eggs", "Bakery");
+        assertThat(total(receiptId)).isEqualTo(9.0 + 3.0 - 3.0 + 5.0);
+        assertThat(owner(receiptId).version()).isEqualTo(receipt.getVersion() + 1);
+
+        assertThatThrownBy(() -> expenseItemService.applyOperations(receiptId, List.of(
+                new ItemOperation(Op.DELETE, items.get(1).getId(), null, null, null, null)), user.getId()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("not on this receipt");
+    }
+
+    @Test
+    void staleVersionMatchesNoRowAndOtherUsersAreRejected() {
+        Receipt receipt = receiptWriteService.save(receipt(user("owner")).items(10.0).build());
+        User intruder = user("intruder");
+        ReceiptOwnership before = owner(receipt.getId());
+
+        assertThat(receiptRepository.applyTotalDelta(receipt.getId(), 1.0, before.version())).isEqualTo(1);
+        assertThat(receiptRepository.applyTotalDelta(receipt.getId(), 1.0, before.version())).isZero();
+
+        assertThatThrownBy(() -> expenseItemService.deleteExpenseItem(receipt.getItems().get(0).getId(), intruder.getId()))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    private User user(String username) {
+        return TestData.user(entityManager, username);
+    }
+
+    private ReceiptOwnership owner(Long receiptId) {
+        return receiptRepository.findOwnership(receiptId).orElseThrow();
+    }
+
+    private double total(Long receiptId) {
+        return ((Number) entityManager.createNativeQuery("select total_amount from receipts where id = ?1")
+                .setParameter(1, receiptId).getSingleResult()).doubleValue();
+    }
+}
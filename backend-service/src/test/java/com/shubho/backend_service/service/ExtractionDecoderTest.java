@@ -0,0 +1,82 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ExtractionResult;
+import com.shubho.backend_service.model.ExtractionResult.Item;
+import com.shubho.backend_service.model.ExtractionResult.Problem;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExtractionDecoderTest {
+
+    @Test
+    void readsCurrencyStringsAsMinorUnits() {
+        assertThat(ExtractionDecoder.minorUnits("$1,234.50")).isEqualTo(123_450);
+        assertThat(ExtractionDecoder.minorUnits("12,99 €")).isEqualTo(1_299);
+        assertThat(ExtractionDecoder.minorUnits("3.1")).isEqualTo(310);
+        assertThat(ExtractionDecoder.minorUnits("7")).isEqualTo(700);
+        assertThat(ExtractionDecoder.minorUnits("0.105")).isEqualTo(11);
+        assertThat(ExtractionDecoder.minorUnits("-$2.00")).isEqualTo(-200);
+        assertThat(ExtractionDecoder.minorUnits("(4.25)")).isEqualTo(-425);
+        assertThat(ExtractionDecoder.minorUnits("4.99 F")).isEqualTo(499);
+        assertThat(ExtractionDecoder.minorUnits("USD 1,000")).isEqualTo(100_000);
+        assertThat(ExtractionDecoder.minorUnits("N/A")).isEqualTo(ExtractionDecoder.INVALID);
+        assertThat(ExtractionDecoder.minorUnits("")).isEqualTo(ExtractionDecoder.INVALID);
+    }
+
+    @Test
+    void readsDecimalCommasAndRejectsAmbiguousNumbers() {
+        assertThat(ExtractionDecoder.minorUnits("1.234,56")).isEqualTo(123_456);
+        assertThat(ExtractionDecoder.minorUnits("12,5")).isEqualTo(1_250);
+        assertThat(ExtractionDecoder.minorUnits("1 234,56 €")).isEqualTo(123_456);
+        assertThat(ExtractionDecoder.minorUnits("CHF 1'234.50")).isEqualTo(123_450);
+        assertThat(ExtractionDecoder.minorUnits("1,000,00")).isEqualTo(ExtractionDecoder.INVALID);
+        assertThat(ExtractionDecoder.minorUnits("1.234.56")).isEqualTo(ExtractionDecoder.INVALID);
+        assertThat(ExtractionDecoder.minorUnits("1,2345")).isEqualTo(ExtractionDecoder.INVALID);
+        assertThat(ExtractionDecoder.minorUnits("3.49 2.99")).isEqualTo(ExtractionDecoder.INVALID);
+    }
+
+    @Test
+    void decodesAWellFormedResponseWithoutProblems() throws IOException {
+        ExtractionResult result = ExtractionDecoder.decode("""
+                {"store_name": "Trader Joe's", "receipt_date": "2025-03-14", "total_price": "$12.47",
+                 "total_discount": "-$0.50", "extra": {"ignored": [1, 2]},
+                 "items": [{"name": "ORG BANANAS", "quantity": 2, "price": "$0.29"},
+                           {"name": "SOURDOUGH", "price": 11.39}],
+                 "raw_text": "TRADER JOE'S"}""");
+
+        assertThat(result.storeName()).isEqualTo("Trader Joe's");
+        assertThat(result.receiptDate()).isEqualTo(LocalDate.of(2025, 3, 14));
+        assertThat(result.totalMinor()).isEqualTo(1_247);
+        assertThat(result.discountMinor()).isEqualTo(50);
+        assertThat(result.rawText()).isEqualTo("TRADER JOE'S");
+        assertThat(result.items()).containsExactly(new Item("ORG BANANAS", 2, 29), new Item("SOURDOUGH", 1, 1_139));
+        assertThat(result.problems()).isEmpty();
+    }
+
+    @Test
+    void reportsUnreadableFieldsInsteadOfZeroingThemSilently() throws IOException {
+        ExtractionResult result = ExtractionDecoder.decode("""
+                {"receipt_date": "14/03/2025", "total_price": "see below",
+                 "items": [{"name": "MILK", "quantity": "two", "price": "$3.49"},
+                           {"name": "EGGS", "price": "??"},
+                           {"name": "BREAD", "price": "2.99.1"}]}""");
+
+        assertThat(result.receiptDate()).isNull();
+        assertThat(result.items()).containsExactly(new Item("MILK", 1, 349), new Item("EGGS", 1, 0),
+                new Item("BREAD", 1, 0));
+        // An unreadable total is rebuilt from the items
+        assertThat(result.totalMinor()).isEqualTo(349);
+        assertThat(result.problems()).extracting(Problem::field)
+                .containsExactly("receipt_date", "items[0].quantity", "items[1].price", "items[2].price", "total_price");
+    }
+
+    @Test
+    void rejectsAResponseThatIsNotAnObject() {
+        assertThatThrownBy(() -> ExtractionDecoder.decode("[1, 2]")).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,52 @@
+package com.shubho.backend_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItemCategorizerTest {
+
+    // No user id, so only the built-in dictionary is consulted
+    private final ItemCategorizer categorizer =
+            new ItemCategorizer(new ClassPathResource("categorizer/dictionary.txt"), 1000, 10);
+
+    @Test
+    void matchesKeywordsInAbbreviatedItemNames() {
+        assertThat(categorizer.categorize(null, "Walmart", "GV 2% MILK 1GAL")).isEqualTo("Dairy & Eggs");
+        assertThat(categorizer.categorize(null, "Walmart", "ORG BANANAS")).isEqualTo("Produce");
+        assertThat(categorizer.categorize(null, "Target", "Trash Bags 13gal")).isEqualTo("Household");
+    }
+
+    @Test
+    void longestKeywordWins() {
+        assertThat(categorizer.categorize(null, "Kroger", "JIF PEANUT BUTTER")).isEqualTo("Pantry");
+        assertThat(categorizer.categorize(null, "Kroger", "KERRYGOLD BUTTER")).isEqualTo("Dairy & Eggs");
+    }
+
+    @Test
+    void fallsBackToTheMerchantWhenNoItemKeywordMatches() {
+        assertThat(categorizer.categorize(null, "STARBUCKS #1234", "GRANDE PSL")).isEqualTo("Dining Out");
+        assertThat(categorizer.categorize(null, "Costco", "KS 40CT ASST")).isNull();
+    }
+
+    @Test
+    void keywordsOnlyMatchWholeWords() {
+        assertThat(KeywordMatcher.normalize("  Gv-2%  Milk!")).isEqualTo(" gv 2 milk");
+        assertThat(categorizer.categorize(null, "Costco", "CHAMPAGNE GLASSES")).isNull();
+        // Short keywords (gin, ham, egg, pepper, nail) inside longer words don't count
+        assertThat(categorizer.categorize(null, "Kroger", "GINGER ALE")).isEqualTo("Beverages");
+        assertThat(categorizer.categorize(null, "Kroger", "HAMBURGER BUNS")).isEqualTo("Bakery");
+        assertThat(categorizer.categorize(null, "Kroger", "EGGPLANT")).isEqualTo("Produce");
+        assertThat(categorizer.categorize(null, "Kroger", "PEPPERONI PIZZA")).isEqualTo("Frozen");
+        assertThat(categorizer.categorize(null, "CVS", "NAIL POLISH")).isEqualTo("Personal Care");
+    }
+
+    @Test
+    void pluralsAndStemsStillMatch() {
+        assertThat(categorizer.categorize(null, "Kroger", "LARGE BROWN EGGS 12CT")).isEqualTo("Dairy & Eggs");
+        assertThat(categorizer.categorize(null, "Kroger", "ROMA TOMATOES")).isEqualTo("Produce");
+        assertThat(categorizer.categorize(null, "Kroger", "STRAWBERRIES 1LB")).isEqualTo("Produce");
+        assertThat(categorizer.categorize(null, "Kroger", "GIN")).isEqualTo("Alcohol");
+    }
+}
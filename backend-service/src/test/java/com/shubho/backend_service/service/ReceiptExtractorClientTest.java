@@ -0,0 +1,56 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.config.ExtractorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReceiptExtractorClientTest {
+
+    @Test
+    void aFullBulkheadDoesNotOpenTheCircuit() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // A healthy but slow extractor
+        RestTemplate extractor = new RestTemplate() {
+            @Override
+            public <T> T postForObject(String url, Object request, Class<T> responseType, Object... uriVariables) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return responseType.cast("{}");
+            }
+        };
+        // One slot, no waiting for it, and a breaker that opens after two failures out of two
+        ExtractorProperties properties = new ExtractorProperties("http://extractor", Duration.ofSeconds(1),
+                Duration.ofSeconds(1), 1, Duration.ofSeconds(1), 1, Duration.ZERO, 1, Duration.ofMillis(10),
+                50, 2, Duration.ofMinutes(1));
+        ReceiptExtractorClient client = new ReceiptExtractorClient(extractor, properties, new SimpleMeterRegistry());
+        ByteArrayResource file = new ByteArrayResource(new byte[] {1});
+
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> client.extract(file));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> client.extract(file))
+                    .isInstanceOf(ExtractorUnavailableException.class)
+                    .hasMessageContaining("Too many receipts");
+        }
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("{}");
+
+        // Still closed: the next call goes through
+        assertThat(client.extract(file)).isEqualTo("{}");
+    }
+}
@@ -0,0 +1,145 @@
+package com.shubho.backend_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReceiptImagePreprocessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReceiptImagePreprocessor preprocessor =
+            new ReceiptImagePreprocessor(meterRegistry, true, 1000, 0.8f, 150, 20, 2, 10);
+
+    @AfterEach
+    void tearDown() {
+        preprocessor.close();
+    }
+
+    @Test
+    void cropsGrayscalesAndScalesDownAPhoto() throws IOException {
+        // A 3000x2000 photo: a white 800x1600 receipt with printed lines on a brown table
+        BufferedImage photo = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = photo.createGraphics();
+        graphics.setColor(new Color(120, 80, 40));
+        graphics.fillRect(0, 0, 3000, 2000);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(1100, 200, 800, 1600);
+        graphics.setColor(Color.BLACK);
+        for (int y = 260; y < 1760; y += 40) {
+            graphics.fillRect(1150, y, 600, 12);
+        }
+        graphics.dispose();
+        byte[] png = encode(photo, "png");
+
+        Resource prepared = preprocessor.prepare(ReceiptService.namedResource(png, "IMG_0001.png"));
+
+        assertThat(prepared.getFilename()).isEqualTo("IMG_0001.jpg");
+        assertThat(prepared.contentLength()).isLessThan(png.length);
+        BufferedImage result = ImageIO.read(prepared.getInputStream());
+        assertThat(result.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+        assertThat(Math.max(result.getWidth(), result.getHeight())).isEqualTo(1000);
+        // Only the receipt (plus a small margin) is left, so the portrait shape comes back
+        assertThat((double) result.getHeight() / result.getWidth()).isBetween(1.8, 2.2);
+        assertThat(meterRegistry.get("receipts.preprocess").tag("outcome", "reduced").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("receipts.preprocess.bytes").tag("stage", "in").summary().totalAmount())
+                .isEqualTo(png.length);
+    }
+
+    @Test
+    void dropsBlankPdfPages() throws IOException {
+        byte[] pdf;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < 3; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                if (i != 1) {
+                    try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                        stream.addRect(72, 400, 300, 200);
+                        stream.fill();
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            pdf = out.toByteArray();
+        }
+
+        Resource prepared = preprocessor.prepare(ReceiptService.namedResource(pdf, "statement.pdf"));
+
+        assertThat(prepared.getFilename()).isEqualTo("statement.pdf");
+        try (PDDocument result = Loader.loadPDF(prepared.getContentAsByteArray())) {
+            assertThat(result.getNumberOfPages()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void sendsOtherFilesAsUploaded() throws IOException {
+        Resource upload = ReceiptService.namedResource("not an image".getBytes(StandardCharsets.UTF_8), "notes.txt");
+
+        assertThat(preprocessor.prepare(upload)).isSameAs(upload);
+    }
+
+    @Test
+    void readsExifOrientationInEitherByteOrder() {
+        assertThat(ReceiptImagePreprocessor.exifOrientation(exif(true, 6))).isEqualTo(6);
+        assertThat(ReceiptImagePreprocessor.exifOrientation(exif(false, 8))).isEqualTo(8);
+        assertThat(ReceiptImagePreprocessor.exifOrientation("http://ns.adobe.com/xap/1.0/".getBytes(StandardCharsets.US_ASCII)))
+                .isZero();
+    }
+
+    @Test
+    void rotatesClockwiseForOrientationSix() {
+        // 2x3 with distinct pixels; orientation 6 means the camera was turned 90 degrees
+        BufferedImage gray = new BufferedImage(2, 3, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 2; x++) {
+                gray.getRaster().setSample(x, y, 0, 10 * (y * 2 + x));
+            }
+        }
+
+        BufferedImage upright = ReceiptImagePreprocessor.orient(gray, 6);
+
+        assertThat(upright.getWidth()).isEqualTo(3);
+        assertThat(upright.getHeight()).isEqualTo(2);
+        // The bottom-left pixel ends up top-left, the top-left one top-right
+        assertThat(upright.getRaster().getSample(0, 0, 0)).isEqualTo(40);
+        assertThat(upright.getRaster().getSample(2, 0, 0)).isEqualTo(0);
+        assertThat(upright.getRaster().getSample(2, 1, 0)).isEqualTo(10);
+    }
+
+    // An APP1 segment holding only an orientation tag in IFD0
+    private static byte[] exif(boolean littleEndian, int orientation) {
+        ByteBuffer buffer = ByteBuffer.allocate(6 + 8 + 2 + 12 + 4);
+        buffer.put("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+        buffer.put(littleEndian ? (byte) 'I' : (byte) 'M').put(littleEndian ? (byte) 'I' : (byte) 'M');
+        buffer.order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        buffer.putShort((short) 42).putInt(8);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        buffer.putInt(0);
+        return buffer.array();
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,136 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.ReceiptImage;
+import com.shubho.backend_service.repository.ReceiptRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReceiptImageStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private ReceiptImagePreprocessor preprocessor;
+    private ReceiptImageStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        preprocessor = new ReceiptImagePreprocessor(new SimpleMeterRegistry(), true, 2000, 0.8f, 150, 20, 1, 10);
+        store = new ReceiptImageStore(preprocessor, dir, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        preprocessor.close();
+    }
+
+    @Test
+    void storesEachDistinctFileOnceUnderItsHash() throws IOException {
+        byte[] png = png(400, 800);
+
+        ReceiptImage first = store.store(new ByteArrayInputStream(png), "a.png");
+        ReceiptImage second = store.store(new ByteArrayInputStream(png), "b.png");
+
+        assertThat(first.hash()).hasSize(64).isEqualTo(second.hash());
+        assertThat(first.contentType()).isEqualTo("image/png");
+        assertThat(second.filename()).isEqualTo("b.png");
+        Path blob = store.original(first).orElseThrow();
+        assertThat(blob).isEqualTo(dir.resolve(first.hash().substring(0, 2)).resolve(first.hash().substring(2, 4))
+                .resolve(first.hash()));
+        assertThat(Files.readAllBytes(blob)).isEqualTo(png);
+        assertThat(store.open(second).getFilename()).isEqualTo("b.png");
+        // No temp files left behind
+        try (Stream<Path> incoming = Files.list(dir.resolve("incoming"))) {
+            assertThat(incoming).isEmpty();
+        }
+    }
+
+    @Test
+    void identifiesTheTypeFromTheContentNotTheName() throws IOException {
+        ReceiptImage html = store.store(new ByteArrayInputStream("<script>".getBytes(StandardCharsets.UTF_8)), "x.png");
+
+        assertThat(html.contentType()).isEqualTo("application/octet-stream");
+        assertThat(store.thumbnail(html)).isEmpty();
+    }
+
+    @Test
+    void rendersAThumbnailOnceAndReusesIt() throws IOException {
+        ReceiptImage image = store.store(new ByteArrayInputStream(png(400, 800)), "receipt.png");
+
+        Path thumbnail = store.thumbnail(image).orElseThrow();
+        BufferedImage rendered = ImageIO.read(thumbnail.toFile());
+        assertThat(rendered.getWidth()).isEqualTo(50);
+        assertThat(rendered.getHeight()).isEqualTo(100);
+
+        Files.writeString(thumbnail, "cached");
+        assertThat(store.thumbnail(image)).contains(thumbnail);
+        assertThat(Files.readString(thumbnail)).isEqualTo("cached");
+    }
+
+    @Test
+    void deletesOldFilesNoReceiptRefersTo() throws IOException {
+        ReceiptImage kept = store.store(new ByteArrayInputStream(png(400, 800)), "kept.png");
+        ReceiptImage orphan = store.store(new ByteArrayInputStream(png(300, 600)), "orphan.png");
+        ReceiptImage recent = store.store(new ByteArrayInputStream(png(200, 400)), "recent.png");
+        Path orphanThumbnail = store.thumbnail(orphan).orElseThrow();
+        FileTime twoDaysAgo = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+        Files.setLastModifiedTime(store.original(kept).orElseThrow(), twoDaysAgo);
+        Files.setLastModifiedTime(store.original(orphan).orElseThrow(), twoDaysAgo);
+        ReceiptRepository receipts = mock(ReceiptRepository.class);
+        when(receipts.findReferencedImageHashes(any())).thenReturn(List.of(kept.hash()));
+        ReflectionTestUtils.setField(store, "receiptRepository", receipts);
+
+        assertThat(store.deleteUnreferenced(Duration.ofDays(1))).isEqualTo(1);
+
+        assertThat(store.original(orphan)).isEmpty();
+        assertThat(orphanThumbnail).doesNotExist();
+        assertThat(store.original(kept)).isPresent();
+        // Not yet old enough: its receipt may still be on the way
+        assertThat(store.original(recent)).isPresent();
+    }
+
+    @Test
+    void rejectsHashesThatAreNotSha256() {
+        assertThatThrownBy(() -> store.original(new ReceiptImage("../../etc/passwd", "image/png", null)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(20, 20, width / 2, 10);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
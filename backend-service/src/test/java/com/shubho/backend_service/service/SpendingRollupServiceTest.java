@@ -0,0 +1,106 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.H2JpaTest;
+import com.shubho.backend_service.config.IngestionConfig;
+import com.shubho.backend_service.model.ExpenseItem;
+import com.shubho.backend_service.model.ExpenseItemDto;
+import com.shubho.backend_service.model.Receipt;
+import com.shubho.backend_service.model.SpendingBucket;
+import com.shubho.backend_service.model.SpendingSummary;
+import com.shubho.backend_service.model.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static com.shubho.backend_service.TestData.receipt;
+import static com.shubho.backend_service.TestData.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Drives the item write paths and checks the incrementally maintained rollups against a
+// rebuild from the raw rows
+@H2JpaTest
+@Import({SpendingRollupService.class, ReceiptWriteService.class, ExpenseItemService.class, ChangeLogService.class,
+        ItemCategorizer.class, SearchIndexService.class, IngestionConfig.class})
+class SpendingRollupServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ReceiptWriteService receiptWriteService;
+
+    @Autowired
+    private ExpenseItemService expenseItemService;
+
+    @Autowired
+    private SpendingRollupService spendingRollupService;
+
+    @Test
+    void incrementalRollupsAgreeWithRebuild() {
+        User user = user(entityManager, "rollup-user");
+
+        Receipt march = receiptWriteService.save(
+                receipt(user).on(LocalDate.of(2025, 3, 14)).at("Costco").items(2.0, 5.0, 9.5).build());
+        receiptWriteService.save(receipt(user).on(LocalDate.of(2025, 4, 2)).at("Costco").items(3.0).build());
+
+        ExpenseItem cheapest = march.getItems().get(0);
+        ExpenseItem dearest = march.getItems().get(2);
+        expenseItemService.createExpenseItem(march.getId(), new ExpenseItemDto("Milk", 2, 4.0, null), user.getId());
+        expenseItemService.updateExpenseItem(cheapest.getId(), new ExpenseItemDto("Bread", 1, 6.0, null), user.getId());
+        expenseItemService.deleteExpenseItem(dearest.getId(), user.getId());
+
+        SpendingSummary summary = spendingRollupService.summarize(user.getId(),
+                YearMonth.of(2025, 1), YearMonth.of(2025, 12), "month");
+        assertThat(summary.buckets()).extracting(SpendingBucket::key).containsExactly("2025-03", "2025-04");
+        SpendingBucket marchBucket = summary.buckets().get(0);
+        assertThat(marchBucket.total()).isEqualTo(6.0 + 5.0 + 8.0);
+        assertThat(marchBucket.count()).isEqualTo(3);
+        assertThat(marchBucket.min()).isEqualTo(5.0);
+        assertThat(marchBucket.max()).isEqualTo(8.0);
+        assertThat(summary.total()).isEqualTo(22.0);
+
+        assertThat(spendingRollupService.rebuild(user.getId()).mismatchedBuckets()).isZero();
+    }
+
+    @Test
+    void rebuildCountsUndatedReceiptsInTheCurrentMonth() {
+        User user = user(entityManager, "undated-user");
+        Receipt receipt = receiptWriteService.save(receipt(user).on(LocalDate.of(2025, 3, 14)).items(4.0).build());
+        // Older receipts may have no date at all
+        entityManager.flush();
+        entityManager.createNativeQuery("update receipts set receipt_date = null where id = ?1")
+                .setParameter(1, receipt.getId())
+                .executeUpdate();
+
+        spendingRollupService.rebuild(user.getId());
+
+        YearMonth now = YearMonth.now();
+        assertThat(spendingRollupService.summarize(user.getId(), now, now, "month").total()).isEqualTo(4.0);
+    }
+
+    @Test
+    void extremesAreRecomputedForBlankAndLongCategories() {
+        User user = user(entityManager, "category-user");
+        Receipt receipt = receipt(user).at("Market").items(2.0, 5.0, 9.0, 1.0, 3.0, 7.0).build();
+        String longCategory = "Household ".repeat(12).strip();
+        // Older rows may hold a blank category; the API keeps a long one at full length
+        for (int i = 0; i < 3; i++) {
+            receipt.getItems().get(i).setCategory(" ");
+            receipt.getItems().get(i + 3).setCategory(longCategory);
+        }
+        receiptWriteService.save(receipt);
+
+        expenseItemService.deleteExpenseItem(receipt.getItems().get(2).getId(), user.getId());
+        expenseItemService.deleteExpenseItem(receipt.getItems().get(5).getId(), user.getId());
+
+        SpendingSummary summary = spendingRollupService.summarize(user.getId(),
+                YearMonth.of(2025, 5), YearMonth.of(2025, 5), "category");
+        assertThat(summary.buckets()).extracting(SpendingBucket::min).containsExactlyInAnyOrder(2.0, 1.0);
+        assertThat(summary.buckets()).extracting(SpendingBucket::max).containsExactlyInAnyOrder(5.0, 3.0);
+        assertThat(spendingRollupService.rebuild(user.getId()).mismatchedBuckets()).isZero();
+    }
+}
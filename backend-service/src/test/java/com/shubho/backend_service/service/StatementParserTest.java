@@ -0,0 +1,93 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.service.StatementParser.ChargeSign;
+import com.shubho.backend_service.service.StatementParser.Sink;
+import com.shubho.backend_service.service.StatementParser.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementParserTest {
+
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final List<String> skipped = new ArrayList<>();
+
+    private final Sink sink = new Sink() {
+        @Override
+        public void transaction(Transaction transaction) {
+            transactions.add(transaction);
+        }
+
+        @Override
+        public void skipped(long line, String reason) {
+            skipped.add(line + ": " + reason);
+        }
+    };
+
+    @Test
+    void csvWithSignedAmountKeepsOnlyCharges() throws IOException {
+        String csv = """
+                Date,Description,Amount
+                2024-03-01,"ACME, Inc.",-12.50
+                2024-03-02,Salary,2000.00
+                03/04/2024,"Joe's ""Diner""\",(8.25)
+                not a date,Nowhere,-1.00
+                """;
+        StatementParser.parseCsv(new StringReader(csv), ChargeSign.NEGATIVE, null, sink);
+
+        assertThat(transactions).containsExactly(
+                new Transaction(2, LocalDate.of(2024, 3, 1), "ACME, Inc.", new BigDecimal("12.50")),
+                new Transaction(4, LocalDate.of(2024, 3, 4), "Joe's \"Diner\"", new BigDecimal("8.25")));
+        assertThat(skipped).containsExactly("3: Credit", "5: Unreadable date 'not a date'");
+    }
+
+    @Test
+    void csvWithDebitAndCreditColumnsAndSemicolons() throws IOException {
+        String csv = "\uFEFFPosting Date;Payee;Debit Amount;Credit Amount\r\n"
+                + "01.03.2024;Bakery;4,20;\r\n"
+                + "02.03.2024;Refund;;10,00\r\n"
+                + "03.03.2024;Furniture;1.234,56;\r\n"
+                + "04.03.2024;Rent;1.250;\r\n";
+        StatementParser.parseCsv(new StringReader(csv), ChargeSign.NEGATIVE, null, sink);
+
+        assertThat(transactions).containsExactly(
+                new Transaction(2, LocalDate.of(2024, 3, 1), "Bakery", new BigDecimal("4.20")),
+                new Transaction(4, LocalDate.of(2024, 3, 3), "Furniture", new BigDecimal("1234.56")),
+                new Transaction(5, LocalDate.of(2024, 3, 4), "Rent", new BigDecimal("1250.00")));
+        assertThat(skipped).containsExactly("3: Credit");
+    }
+
+    @Test
+    void csvWithoutAmountColumnIsRejected() {
+        assertThatThrownBy(() -> StatementParser.parseCsv(new StringReader("Date,Description\n"),
+                ChargeSign.NEGATIVE, null, sink))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sgmlOfxWithoutEndTags() throws IOException {
+        String ofx = """
+                OFXHEADER:100
+                DATA:OFXSGML
+                <OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>
+                <STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20240305120000[-5:EST]<TRNAMT>-23.10<NAME>Corner &amp; Co</STMTTRN>
+                <STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20240306<TRNAMT>100.00<NAME>Payroll</STMTTRN>
+                <STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20240307<TRNAMT>-5<MEMO>Parking</STMTTRN>
+                </BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>
+                """;
+        StatementParser.parseOfx(new StringReader(ofx), sink);
+
+        assertThat(transactions).containsExactly(
+                new Transaction(1, LocalDate.of(2024, 3, 5), "Corner & Co", new BigDecimal("23.10")),
+                new Transaction(3, LocalDate.of(2024, 3, 7), "Parking", new BigDecimal("5.00")));
+        assertThat(skipped).containsExactly("2: Credit");
+    }
+}
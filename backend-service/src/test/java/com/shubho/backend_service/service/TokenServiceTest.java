@@ -0,0 +1,94 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.config.TokenProperties;
+import com.shubho.backend_service.model.AuthenticatedUser;
+import com.shubho.backend_service.model.TokenPair;
+import com.shubho.backend_service.model.User;
+import com.shubho.backend_service.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenServiceTest {
+
+    private static final String OLD_KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+    private static final String NEW_KEY = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes());
+
+    private final UserRepository users = mock(UserRepository.class);
+    private final UserIdCache userIdCache = new UserIdCache(100, Duration.ofMinutes(5));
+
+    TokenServiceTest() {
+        ReflectionTestUtils.setField(userIdCache, "userRepository", users);
+    }
+
+    private TokenService tokens(String activeKey, Map<String, String> keys) {
+        return new TokenService(new TokenProperties("test", Duration.ofMinutes(15), Duration.ofDays(7), activeKey, keys),
+                userIdCache);
+    }
+
+    @Test
+    void accessTokenCarriesTheUserWithoutALookup() {
+        TokenService service = tokens("k1", Map.of("k1", OLD_KEY));
+        TokenPair pair = service.issue(new AuthenticatedUser(42L, "alice"));
+
+        Jwt jwt = service.accessTokenDecoder().decode(pair.accessToken());
+        AuthenticatedUser user = TokenService.principal(jwt);
+        assertThat(user.getId()).isEqualTo(42L);
+        assertThat(user.getUsername()).isEqualTo("alice");
+        assertThat(pair.expiresIn()).isEqualTo(900);
+    }
+
+    @Test
+    void refreshTokenIsNotAnAccessToken() {
+        TokenService service = tokens("k1", Map.of("k1", OLD_KEY));
+        TokenPair pair = service.issue(new AuthenticatedUser(42L, "alice"));
+
+        assertThatThrownBy(() -> service.accessTokenDecoder().decode(pair.refreshToken()))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void tokensFromTheOldKeyStillVerifyAfterRotation() {
+        TokenPair beforeRotation = tokens("k1", Map.of("k1", OLD_KEY)).issue(new AuthenticatedUser(42L, "alice"));
+        storedUser(42L, "alice");
+
+        TokenService rotated = tokens("k2", Map.of("k1", OLD_KEY, "k2", NEW_KEY));
+        assertThat(rotated.accessTokenDecoder().decode(beforeRotation.accessToken()).getSubject()).isEqualTo("alice");
+        TokenPair refreshed = rotated.refresh(beforeRotation.refreshToken());
+        assertThat(rotated.accessTokenDecoder().decode(refreshed.accessToken()).getHeaders()).containsEntry("kid", "k2");
+
+        // Once the old key is dropped, its tokens are rejected
+        TokenService retired = tokens("k2", Map.of("k2", NEW_KEY));
+        assertThatThrownBy(() -> retired.accessTokenDecoder().decode(beforeRotation.accessToken()))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void refreshIsRefusedOnceTheUserIsDeletedEvenIfCached() {
+        TokenService service = tokens("k1", Map.of("k1", OLD_KEY));
+        TokenPair pair = service.issue(new AuthenticatedUser(42L, "alice"));
+        userIdCache.put("alice", 42L);
+
+        assertThatThrownBy(() -> service.refresh(pair.refreshToken()))
+                .isInstanceOf(UsernameNotFoundException.class);
+    }
+
+    private void storedUser(Long id, String username) {
+        User user = new User();
+        user.setUsername(username);
+        ReflectionTestUtils.setField(user, "id", id);
+        when(users.findByUsername(username)).thenReturn(Optional.of(user));
+    }
+}
@@ -0,0 +1,72 @@
+package com.shubho.backend_service.service;
+
+import com.shubho.backend_service.model.SearchHit;
+import com.shubho.backend_service.model.SearchHit.Type;
+import com.shubho.backend_service.model.SearchResults;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserSearchIndexTest {
+
+    private final UserSearchIndex index = new UserSearchIndex();
+
+    @BeforeEach
+    void indexTwoReceipts() {
+        index.put(UserSearchIndex.receipt(1, "Trader Joe's", "TRADER JOE'S #552\nORGANIC BANANAS 0.99\nTOTAL 12.40",
+                LocalDate.of(2025, 7, 1), 12.40));
+        index.put(UserSearchIndex.item(10, 1, "Organic Bananas", "Trader Joe's", LocalDate.of(2025, 7, 1), 1, 0.99));
+        index.put(UserSearchIndex.item(11, 1, "Almond Butter", "Trader Joe's", LocalDate.of(2025, 7, 1), 1, 6.49));
+        index.put(UserSearchIndex.receipt(2, "Shell", null, LocalDate.of(2025, 7, 3), 40.00));
+        index.put(UserSearchIndex.item(20, 2, "Unleaded Fuel", "Shell", LocalDate.of(2025, 7, 3), 1, 40.00));
+    }
+
+    @Test
+    void matchesWholeWordsPrefixesAndTypos() {
+        assertThat(ids(index.search("bananas", 0, 10))).contains("ITEM 10", "RECEIPT 1");
+        assertThat(ids(index.search("bana", 0, 10))).contains("ITEM 10");
+        assertThat(ids(index.search("bannanas", 0, 10))).contains("ITEM 10");
+        assertThat(index.search("coffee", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void hitsMatchingEveryWordRankFirst() {
+        SearchResults results = index.search("almond shell", 0, 10);
+        assertThat(results.total()).isEqualTo(2);
+
+        SearchResults both = index.search("trader bananas", 0, 10);
+        assertThat(ids(both).get(0)).isEqualTo("RECEIPT 1");
+    }
+
+    @Test
+    void removedAndReplacedDocumentsLeaveNoStalePostings() {
+        index.put(UserSearchIndex.item(10, 1, "Plantains", "Trader Joe's", LocalDate.of(2025, 7, 1), 1, 0.99));
+        assertThat(ids(index.search("bananas", 0, 10))).doesNotContain("ITEM 10");
+        assertThat(ids(index.search("plantain", 0, 10))).containsExactly("ITEM 10");
+
+        index.removeReceipt(2);
+        assertThat(index.search("fuel", 0, 10).total()).isZero();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void pagesThroughRankedHits() {
+        SearchResults first = index.search("trader", 0, 1);
+        SearchResults second = index.search("trader", 1, 1);
+        assertThat(first.total()).isEqualTo(1);
+        assertThat(first.hits()).hasSize(1);
+        assertThat(second.hits()).isEmpty();
+    }
+
+    private static List<String> ids(SearchResults results) {
+        return results.hits().stream().map(UserSearchIndexTest::id).toList();
+    }
+
+    private static String id(SearchHit hit) {
+        return (hit.type() == Type.RECEIPT ? "RECEIPT " : "ITEM ") + hit.id();
+    }
+}